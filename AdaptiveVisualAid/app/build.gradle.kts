@@ -25,6 +25,14 @@ android {
             )
         }
     }
+    buildFeatures {
+        // BuildConfig.DEBUG switches on native tensor leak tracking (OrtTensorArena.LEAKS).
+        buildConfig = true
+    }
+    androidResources {
+        // Keep models uncompressed so they can be memory-mapped straight from the APK.
+        noCompress += listOf("onnx", "tflite")
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -40,6 +48,9 @@ dependencies {
     implementation("com.microsoft.onnxruntime:onnxruntime-android:1.17.0")
     implementation("org.tensorflow:tensorflow-lite:2.12.0")
     // implementation(libs.litert)
+    implementation(libs.camera.core)
+    implementation(libs.camera.camera2)
+    implementation(libs.camera.lifecycle)
     //
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
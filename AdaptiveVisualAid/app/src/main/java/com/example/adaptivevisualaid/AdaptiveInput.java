@@ -0,0 +1,166 @@
+package com.example.adaptivevisualaid;
+
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+
+/**
+ * A square NCHW image input whose size follows a {@link ResolutionController}. Every size on the
+ * ladder has its own packer and resize kernel, allocated up front, so a switch only wraps another
+ * buffer. The session stays the same: models exported with dynamic height and width accept any
+ * size. ORT sets a shape up on its first run, so a size's first run on a session is an extra warm-up
+ * run that is kept out of the controller's timings; a session warms up each size only once, however
+ * many arenas and inputs use it, and {@link #warmUp} does all sizes ahead of time. A model with a
+ * fixed input size keeps that one size.
+ * Not thread-safe, except {@link #warmUp}: use it on the thread that runs the session.
+ */
+final class AdaptiveInput {
+
+    private static final String TAG = "AdaptiveInput";
+
+    /** Sizes each session has run at; guarded by itself. */
+    private static final Map<OrtSession, Set<Integer>> warmSizes = new WeakHashMap<>();
+
+    private final String inputName;
+    private final int[] ladder;
+    private final long targetNanos;
+    private ResolutionController controller;
+    private int[] sizes;
+    private ResizeNormalizeKernel[] kernels;
+    private OrtSession session;
+    private long lastNanos;
+
+    AdaptiveInput(String inputName, int[] ladder, long targetNanos) {
+        this.inputName = inputName;
+        this.ladder = ladder.clone();
+        this.targetNanos = targetNanos;
+        useSizes(ladder);
+    }
+
+    /**
+     * Fits the ladder to {@code session}'s input and warms the current size up on {@code arena}
+     * unless the session already ran at it. Call it whenever a new arena is created for a session.
+     * The warm-up run aborts if {@code request} is cancelled.
+     */
+    void prepare(OrtSession session, OrtTensorArena arena, InferenceRequest<?> request) throws OrtException {
+        this.session = session;
+        int fixed = fixedSize(session);
+        if (fixed > 0) {
+            if (sizes.length != 1 || sizes[0] != fixed) useSizes(new int[]{fixed});
+            Log.d(TAG, inputName + " has a fixed size of " + fixed + ", resolution stays put");
+        } else if (sizes.length != ladder.length) {
+            useSizes(ladder);
+        }
+        warmUp(arena, controller.getIndex(), request);
+    }
+
+    /**
+     * Resizes {@code source} to the current size and runs the session on it. The time both take is
+     * fed to the controller, so the size may change for the next frame. The run aborts if
+     * {@code request} is cancelled.
+     */
+    OrtTensorArena.Outputs run(OrtTensorArena arena, PixelSource source, InferenceRequest<?> request) throws OrtException {
+        int index = controller.getIndex();
+        warmUp(arena, index, request); // first run at this size, e.g. right after a switch
+        long start = System.nanoTime();
+        ResizeNormalizeKernel kernel = kernels[index];
+        TensorPacker packer = kernel.getPacker();
+        kernel.run(source, 0);
+        OrtTensorArena.Outputs outputs = arena.run(request, inputName, packer.getFloatBuffer(), packer.getShape());
+        lastNanos = System.nanoTime() - start;
+        controller.record(lastNanos);
+        return outputs;
+    }
+
+    /**
+     * Warms {@code session} up at every size on its own buffers, so {@link #prepare} and {@link #run}
+     * find them warm. Thread-safe: meant for a background thread, on a session not in use yet.
+     */
+    void warmUp(OrtEnvironment env, OrtSession session) throws OrtException {
+        int fixed = fixedSize(session);
+        try (OrtTensorArena arena = new OrtTensorArena(env, session)) {
+            for (int size : fixed > 0 ? new int[]{fixed} : ladder) {
+                if (isWarm(session, size)) continue;
+                TensorPacker packer = new TensorPacker(size, size, TensorPacker.Layout.NCHW);
+                arena.run(null, inputName, packer.getFloatBuffer(), packer.getShape()).close();
+                markWarm(session, size);
+            }
+        }
+    }
+
+    /** Size the next {@link #run} will use. */
+    int getSize() {
+        return controller.getSize();
+    }
+
+    ResolutionController getController() {
+        return controller;
+    }
+
+    /** Preprocessing plus inference time of the last {@link #run}. */
+    long getLastNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * True at the smallest or the largest size, where changing the size alone can no longer make
+     * up for running too slow or too fast.
+     */
+    boolean isAtLadderEnd() {
+        int index = controller.getIndex();
+        return index == 0 || index == sizes.length - 1;
+    }
+
+    /** Runs the session once at {@code sizes[index]}, untimed, unless it already ran at that size. */
+    private void warmUp(OrtTensorArena arena, int index, InferenceRequest<?> request) throws OrtException {
+        if (isWarm(session, sizes[index])) return;
+        TensorPacker packer = kernels[index].getPacker();
+        arena.run(request, inputName, packer.getFloatBuffer(), packer.getShape()).close();
+        markWarm(session, sizes[index]);
+    }
+
+    private static boolean isWarm(OrtSession session, int size) {
+        synchronized (warmSizes) {
+            Set<Integer> warm = warmSizes.get(session);
+            return warm != null && warm.contains(size);
+        }
+    }
+
+    private static void markWarm(OrtSession session, int size) {
+        synchronized (warmSizes) {
+            Set<Integer> warm = warmSizes.get(session);
+            if (warm == null) warmSizes.put(session, warm = new HashSet<>());
+            warm.add(size);
+        }
+    }
+
+    private void useSizes(int[] sizes) {
+        this.sizes = sizes.clone();
+        controller = new ResolutionController(sizes, targetNanos);
+        kernels = new ResizeNormalizeKernel[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            kernels[i] = new ResizeNormalizeKernel(new TensorPacker(sizes[i], sizes[i], TensorPacker.Layout.NCHW));
+        }
+    }
+
+    /** The input's side if the model fixes it, otherwise 0. */
+    private int fixedSize(OrtSession session) throws OrtException {
+        NodeInfo input = session.getInputInfo().get(inputName);
+        if (input == null || !(input.getInfo() instanceof TensorInfo)) return 0;
+        long[] shape = ((TensorInfo) input.getInfo()).getShape(); // [N, 3, H, W]
+        long height = shape[shape.length - 2];
+        long width = shape[shape.length - 1];
+        if (height <= 0 || width <= 0) return 0;
+        if (height != width) throw new IllegalStateException(inputName + " is not square: " + width + "x" + height);
+        return (int) width;
+    }
+}
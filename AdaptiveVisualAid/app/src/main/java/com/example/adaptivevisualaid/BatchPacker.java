@@ -0,0 +1,110 @@
+package com.example.adaptivevisualaid;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Preprocesses several images in parallel into one {@code [N, 3, H, W]} NCHW tensor. Each batch
+ * slot has its own {@link ResizeNormalizeKernel} whose packer writes straight into that slot's
+ * part of the shared direct buffer, so slots can be filled concurrently and nothing is copied.
+ * Call {@link #pack} from one thread at a time; close it to stop the preprocessing threads.
+ */
+public final class BatchPacker implements AutoCloseable {
+
+    /** Fills one batch slot, e.g. decodes an image and runs the kernel on it. */
+    public interface SlotTask {
+        /** Runs on a preprocessing thread; {@code kernel} is the slot's own. */
+        void run(int slot, ResizeNormalizeKernel kernel) throws Exception;
+    }
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer batch;
+    private final ResizeNormalizeKernel[] kernels;
+    // Views reused across batches, so a session's input tensor over them can be reused as well.
+    private final FloatBuffer[] firstImages;
+    private final FloatBuffer[] images;
+    private final ExecutorService pool;
+
+    public BatchPacker(int width, int height, int maxBatch, float[] mean, float[] std) {
+        this.width = width;
+        this.height = height;
+        int imageBytes = 3 * width * height * 4;
+        batch = ByteBuffer.allocateDirect(maxBatch * imageBytes).order(ByteOrder.nativeOrder());
+        kernels = new ResizeNormalizeKernel[maxBatch];
+        firstImages = new FloatBuffer[maxBatch];
+        images = new FloatBuffer[maxBatch];
+        for (int i = 0; i < maxBatch; i++) {
+            batch.position(i * imageBytes).limit((i + 1) * imageBytes);
+            ByteBuffer slot = batch.slice().order(ByteOrder.nativeOrder());
+            kernels[i] = new ResizeNormalizeKernel(new TensorPacker(width, height, TensorPacker.Layout.NCHW, mean, std, slot));
+            images[i] = slot.asFloatBuffer();
+            batch.clear();
+            firstImages[i] = batch.asFloatBuffer();
+            firstImages[i].limit((i + 1) * imageBytes / 4);
+        }
+        int threads = Math.max(1, Math.min(maxBatch, Runtime.getRuntime().availableProcessors()));
+        pool = Executors.newFixedThreadPool(threads, r -> new Thread(r, "BatchPreprocess"));
+    }
+
+    public int getMaxBatch() {
+        return kernels.length;
+    }
+
+    /** The first {@code count} images as one tensor, rewound. */
+    public FloatBuffer getBatch(int count) {
+        FloatBuffer buffer = firstImages[count - 1];
+        buffer.rewind();
+        return buffer;
+    }
+
+    /** The image in {@code slot} alone, rewound, for models that take one image at a time. */
+    public FloatBuffer getImage(int slot) {
+        FloatBuffer buffer = images[slot];
+        buffer.rewind();
+        return buffer;
+    }
+
+    /** {@code [count, 3, height, width]}. */
+    public long[] getShape(int count) {
+        return new long[]{count, 3, height, width};
+    }
+
+    /**
+     * Runs {@code task} for slots {@code 0..count-1} in parallel and returns once all are packed.
+     * Rethrows the first failure; if the calling thread is interrupted, the slots still running
+     * are interrupted too.
+     */
+    public void pack(int count, SlotTask task) throws Exception {
+        if (count < 1 || count > kernels.length) {
+            throw new IllegalArgumentException("Batch of " + count + ", at most " + kernels.length);
+        }
+        List<Future<?>> slots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int slot = i;
+            slots.add(pool.submit(() -> {
+                task.run(slot, kernels[slot]);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> slot : slots) slot.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            for (Future<?> slot : slots) slot.cancel(true); // no-op for the finished ones
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
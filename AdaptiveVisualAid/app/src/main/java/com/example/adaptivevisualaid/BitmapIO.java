@@ -0,0 +1,164 @@
+package com.example.adaptivevisualaid;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Environment;
+import android.util.DisplayMetrics;
+import android.view.View;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decoding of picked images at the size they are displayed at, plus the separate full-resolution
+ * path used only when exporting results.
+ */
+final class BitmapIO {
+
+    /**
+     * The decoded image's short side is never below this (unless the image itself is smaller), so
+     * model inputs (up to 518x518) are not upsampled.
+     */
+    private static final int MIN_DECODE_SIZE = 640;
+
+    private BitmapIO() {}
+
+    /** Box a picked image should be decoded into to fill {@code view}, before the view is laid out too. */
+    static int[] displayBox(View view) {
+        DisplayMetrics metrics = view.getResources().getDisplayMetrics();
+        int width = view.getWidth() > 0 ? view.getWidth() : metrics.widthPixels;
+        int height = view.getHeight() > 0 ? view.getHeight() : metrics.heightPixels;
+        return new int[]{Math.max(width, MIN_DECODE_SIZE), Math.max(height, MIN_DECODE_SIZE)};
+    }
+
+    /** The smallest decode box that still does not upsample model inputs, for images kept in bulk. */
+    static int[] modelBox() {
+        return new int[]{MIN_DECODE_SIZE, MIN_DECODE_SIZE};
+    }
+
+    /** Clockwise rotation in degrees stored in the image's EXIF orientation tag. */
+    static int readRotationDegrees(ContentResolver resolver, Uri uri) throws IOException {
+        try (InputStream exifStream = resolver.openInputStream(uri)) {
+            ExifInterface exif = new ExifInterface(exifStream);
+            switch (exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    /** Upright width and height of the encoded image, without decoding its pixels. */
+    static int[] readUprightSize(ContentResolver resolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = decodeBounds(resolver, uri);
+        int rotation = readRotationDegrees(resolver, uri);
+        return rotation == 90 || rotation == 270
+                ? new int[]{bounds.outHeight, bounds.outWidth}
+                : new int[]{bounds.outWidth, bounds.outHeight};
+    }
+
+    /**
+     * Decodes {@code uri} upright and scaled to fit within {@code maxWidth x maxHeight}, subsampling
+     * in the decoder so the full-resolution pixels are never held in memory. A very wide or tall
+     * image may overflow the box, so that its short side still reaches {@link #MIN_DECODE_SIZE}.
+     */
+    static Bitmap decodeForDisplay(ContentResolver resolver, Uri uri, int maxWidth, int maxHeight) throws IOException {
+        int rotation = readRotationDegrees(resolver, uri);
+        BitmapFactory.Options bounds = decodeBounds(resolver, uri);
+        // Fit the box against the upright image.
+        boolean transposed = rotation == 90 || rotation == 270;
+        int srcWidth = transposed ? bounds.outHeight : bounds.outWidth;
+        int srcHeight = transposed ? bounds.outWidth : bounds.outHeight;
+        float minScale = Math.min(1f, (float) MIN_DECODE_SIZE / Math.min(srcWidth, srcHeight));
+        if (Math.min((float) maxWidth / srcWidth, (float) maxHeight / srcHeight) < minScale) {
+            // E.g. a panorama fitted into a portrait box: grow the box to the image's minimum size.
+            maxWidth = (int) Math.ceil(srcWidth * minScale);
+            maxHeight = (int) Math.ceil(srcHeight * minScale);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(srcWidth, srcHeight, maxWidth, maxHeight);
+        int sampledWidth = srcWidth / options.inSampleSize;
+        int sampledHeight = srcHeight / options.inSampleSize;
+        float scale = Math.min((float) maxWidth / sampledWidth, (float) maxHeight / sampledHeight);
+        if (scale < 1f) {
+            // Let the decoder do the remaining non-power-of-two downscale.
+            options.inScaled = true;
+            options.inDensity = transposed ? sampledHeight : sampledWidth;
+            options.inTargetDensity = Math.max(1, Math.round(options.inDensity * scale));
+        }
+        Bitmap bitmap;
+        try (InputStream inputStream = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+        }
+        if (bitmap == null) throw new IOException("Cannot decode " + uri);
+        return rotate(bitmap, rotation);
+    }
+
+    /** Decodes {@code uri} upright at full resolution, mutable. Only for exporting results. */
+    static Bitmap decodeFullResolution(ContentResolver resolver, Uri uri) throws IOException {
+        int rotation = readRotationDegrees(resolver, uri);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inMutable = true;
+        Bitmap bitmap;
+        try (InputStream inputStream = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+        }
+        if (bitmap == null) throw new IOException("Cannot decode " + uri);
+        Bitmap upright = rotate(bitmap, rotation);
+        return upright.isMutable() ? upright : upright.copy(Bitmap.Config.ARGB_8888, true);
+    }
+
+    /** Largest power-of-two subsample that keeps the image at least as large as the box it must fit. */
+    static int calculateInSampleSize(int srcWidth, int srcHeight, int maxWidth, int maxHeight) {
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= maxWidth && srcHeight / (sampleSize * 2) >= maxHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /** Saves {@code bitmap} as a PNG in the app's Pictures directory and returns the file. */
+    static File saveExport(Context context, Bitmap bitmap, String prefix) throws IOException {
+        File dir = context.getExternalFilesDir(Environment.DIRECTORY_PICTURES);
+        if (dir == null) dir = context.getFilesDir();
+        File file = new File(dir, prefix + "_" + System.currentTimeMillis() + ".png");
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.PNG, 100, fos)) {
+                throw new IOException("Failed to encode " + file);
+            }
+        }
+        return file;
+    }
+
+    private static BitmapFactory.Options decodeBounds(ContentResolver resolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream inputStream = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(inputStream, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IOException("Cannot decode " + uri);
+        return bounds;
+    }
+
+    private static Bitmap rotate(Bitmap bitmap, int rotation) {
+        if (rotation == 0) return bitmap;
+        Matrix matrix = new Matrix();
+        matrix.postRotate(rotation);
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) bitmap.recycle();
+        return rotated;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.adaptivevisualaid;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Back camera frames through a CameraX {@link ImageAnalysis} use case. CameraX already keeps only
+ * the latest image and rotates it upright as RGBA, so each image is a single bulk copy into a
+ * pooled ARGB_8888 bitmap (both are RGBA bytes in memory).
+ */
+public final class CameraXFrameSource implements FrameSource {
+
+    private static final String TAG = "CameraXFrameSource";
+    // One frame being filled, one waiting in the pipeline's slot and one being processed.
+    private static final int POOL_SIZE = 3;
+    private static final long MAX_SENSOR_AGE_NANOS = 1_000_000_000L;
+
+    private final Context context;
+    private final LifecycleOwner lifecycleOwner;
+    private final Size targetSize;
+
+    private final ArrayDeque<Frame> freeFrames = new ArrayDeque<>();
+    private int allocatedFrames;
+    private ByteBuffer packedRows;
+    private long nextSequence;
+
+    private ProcessCameraProvider cameraProvider;
+    private ImageAnalysis analysis;
+    private ExecutorService analysisExecutor;
+    private volatile Sink sink;
+    // Counts start() calls (main thread only), so a camera callback can tell it is out of date.
+    private int generation;
+
+    public CameraXFrameSource(Context context, LifecycleOwner lifecycleOwner, Size targetSize) {
+        this.context = context;
+        this.lifecycleOwner = lifecycleOwner;
+        this.targetSize = targetSize;
+    }
+
+    /** Must be called on the main thread. */
+    @Override
+    public void start(Sink sink) {
+        if (this.sink != null) return;
+        this.sink = sink;
+        int started = ++generation;
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "CameraAnalysis"));
+        analysisExecutor = executor;
+        ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(context);
+        future.addListener(() -> {
+            // Stopped before the camera was ready, and maybe started again since.
+            if (generation != started || this.sink == null) return;
+            try {
+                cameraProvider = future.get();
+                analysis = new ImageAnalysis.Builder()
+                        .setResolutionSelector(new ResolutionSelector.Builder()
+                                .setResolutionStrategy(new ResolutionStrategy(targetSize,
+                                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_LOWER_THEN_HIGHER))
+                                .build())
+                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                        .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_RGBA_8888)
+                        .setOutputImageRotationEnabled(true)
+                        .build();
+                analysis.setAnalyzer(executor, this::analyze);
+                cameraProvider.bindToLifecycle(lifecycleOwner, CameraSelector.DEFAULT_BACK_CAMERA, analysis);
+            } catch (Exception e) {
+                Log.e(TAG, "Camera start failed", e);
+            }
+        }, ContextCompat.getMainExecutor(context));
+    }
+
+    /** Must be called on the main thread. */
+    @Override
+    public void stop() {
+        if (sink == null) return;
+        sink = null;
+        if (analysis != null) {
+            analysis.clearAnalyzer();
+            cameraProvider.unbind(analysis);
+            analysis = null;
+        }
+        analysisExecutor.shutdown();
+        analysisExecutor = null;
+    }
+
+    @Override
+    public void release(Frame frame) {
+        synchronized (freeFrames) {
+            freeFrames.push(frame);
+        }
+    }
+
+    private void analyze(ImageProxy image) {
+        try {
+            Sink sink = this.sink;
+            if (sink == null) return;
+            Frame frame = obtainFrame(image.getWidth(), image.getHeight());
+            if (frame == null) return; // every pooled frame is still in flight
+            copyPixels(image.getPlanes()[0], frame.bitmap);
+            // Sensor timestamps use the elapsedRealtime clock on most devices; otherwise fall back
+            // to the time the image reached us.
+            long now = System.nanoTime();
+            long age = SystemClock.elapsedRealtimeNanos() - image.getImageInfo().getTimestamp();
+            frame.captureTimeNanos = age >= 0 && age < MAX_SENSOR_AGE_NANOS ? now - age : now;
+            frame.sequence = nextSequence++;
+            sink.onFrame(frame);
+        } finally {
+            image.close();
+        }
+    }
+
+    private Frame obtainFrame(int width, int height) {
+        Frame frame;
+        synchronized (freeFrames) {
+            frame = freeFrames.poll();
+            if (frame == null) {
+                if (allocatedFrames == POOL_SIZE) return null;
+                allocatedFrames++;
+            }
+        }
+        if (frame != null && frame.bitmap.getWidth() == width && frame.bitmap.getHeight() == height) {
+            return frame;
+        }
+        // First use, or the analysis resolution changed.
+        if (frame != null) frame.bitmap.recycle();
+        return new Frame(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+    }
+
+    private void copyPixels(ImageProxy.PlaneProxy plane, Bitmap bitmap) {
+        ByteBuffer pixels = plane.getBuffer();
+        int rowBytes = bitmap.getWidth() * 4;
+        int rowStride = plane.getRowStride();
+        if (rowStride == rowBytes) {
+            pixels.rewind();
+            bitmap.copyPixelsFromBuffer(pixels);
+            return;
+        }
+        // Rows are padded; pack them tightly first.
+        int height = bitmap.getHeight();
+        if (packedRows == null || packedRows.capacity() < rowBytes * height) {
+            packedRows = ByteBuffer.allocateDirect(rowBytes * height);
+        }
+        packedRows.clear();
+        for (int y = 0; y < height; y++) {
+            pixels.limit(y * rowStride + rowBytes);
+            pixels.position(y * rowStride);
+            packedRows.put(pixels);
+        }
+        pixels.clear();
+        packedRows.flip();
+        bitmap.copyPixelsFromBuffer(packedRows);
+    }
+}
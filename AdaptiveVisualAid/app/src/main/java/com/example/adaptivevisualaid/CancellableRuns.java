@@ -0,0 +1,79 @@
+package com.example.adaptivevisualaid;
+
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import ai.onnxruntime.OnnxTensorLike;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+/** Model runs that abort in native code when their {@link InferenceRequest} is cancelled. */
+final class CancellableRuns {
+
+    private static final String TAG = "CancellableRuns";
+
+    private CancellableRuns() {}
+
+    /** {@code session.run(inputs)}, terminated through its run options on cancel. */
+    static OrtSession.Result run(InferenceRequest<?> request, OrtSession session,
+                                 Map<String, ? extends OnnxTensorLike> inputs) throws OrtException {
+        return run(request, session, inputs, session.getOutputNames(), Collections.emptyMap());
+    }
+
+    /**
+     * {@code session.run(inputs, requestedOutputs, pinnedOutputs)}, terminated through its run
+     * options on cancel. Pinned outputs are written in place and not closed with the result.
+     */
+    static OrtSession.Result run(InferenceRequest<?> request, OrtSession session,
+                                 Map<String, ? extends OnnxTensorLike> inputs, Set<String> requestedOutputs,
+                                 Map<String, ? extends OnnxValue> pinnedOutputs) throws OrtException {
+        try (OrtSession.RunOptions runOptions = new OrtSession.RunOptions()) {
+            return run(request, session, inputs, requestedOutputs, pinnedOutputs, runOptions);
+        }
+    }
+
+    /**
+     * As above, terminated through the caller's {@code runOptions}, e.g. ones reused for every run
+     * of a session. They are left with terminate unset, ready for the next run.
+     */
+    static OrtSession.Result run(InferenceRequest<?> request, OrtSession session,
+                                 Map<String, ? extends OnnxTensorLike> inputs, Set<String> requestedOutputs,
+                                 Map<String, ? extends OnnxValue> pinnedOutputs,
+                                 OrtSession.RunOptions runOptions) throws OrtException {
+        Runnable terminate = () -> {
+            try {
+                runOptions.setTerminate(true);
+            } catch (OrtException e) {
+                Log.w(TAG, "Cannot terminate run", e);
+            }
+        };
+        request.addCancelHook(terminate);
+        try {
+            return session.run(inputs, requestedOutputs, pinnedOutputs, runOptions);
+        } finally {
+            request.removeCancelHook(terminate);
+            runOptions.setTerminate(false); // only once the hook is gone, so nothing sets it again
+        }
+    }
+
+    /**
+     * {@code interpreter.runForMultipleInputsOutputs(inputs, outputs)}; the interpreter must be
+     * created cancellable.
+     */
+    static void run(InferenceRequest<?> request, Interpreter interpreter, Object[] inputs, Map<Integer, Object> outputs) {
+        interpreter.setCancelled(false);
+        Runnable cancel = () -> interpreter.setCancelled(true);
+        request.addCancelHook(cancel);
+        try {
+            interpreter.runForMultipleInputsOutputs(inputs, outputs);
+        } finally {
+            request.removeCancelHook(cancel);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.adaptivevisualaid;
+
+/**
+ * Maps model class ids to a smaller set of groups, each with its own label and color. Given to
+ * {@link SegformerPostProcessor#setClassGroups}, the argmax writes group ids instead of class ids,
+ * so every later pass (rendering, histograms, fusion) works on a handful of ids.
+ * {@link #navigation()} groups the ADE20K classes by what matters when walking.
+ */
+public final class ClassGroups {
+
+    private final String[] labels;
+    private final int[] palette;
+    private final byte[] groupOf;
+
+    /**
+     * @param labels  name of each group
+     * @param palette ARGB color of each group
+     * @param groupOf group id of each class id; at most 256 groups
+     */
+    public ClassGroups(String[] labels, int[] palette, byte[] groupOf) {
+        if (labels.length != palette.length || labels.length > 256) {
+            throw new IllegalArgumentException("Need one color per group and at most 256 groups");
+        }
+        for (byte group : groupOf) {
+            if ((group & 0xFF) >= labels.length) throw new IllegalArgumentException("Unknown group " + (group & 0xFF));
+        }
+        this.labels = labels.clone();
+        this.palette = palette.clone();
+        this.groupOf = groupOf.clone();
+    }
+
+    /** Every ADE20K class in a group of its own. */
+    public static ClassGroups ade20k() {
+        byte[] groupOf = new byte[Ade20k.NUM_CLASSES];
+        for (int c = 0; c < groupOf.length; c++) groupOf[c] = (byte) c;
+        return new ClassGroups(Ade20k.labels(), Ade20k.palette(), groupOf);
+    }
+
+    /** ADE20K classes grouped for navigation; classes not listed fall into "other". */
+    public static ClassGroups navigation() {
+        String[][] groups = {
+                {"other"},
+                {"walkable", "floor", "road", "sidewalk", "path", "rug", "earth", "grass", "field", "sand",
+                        "land", "dirt track", "runway"},
+                {"stairs", "stairs", "stairway", "step", "escalator"},
+                {"door", "door", "screen door"},
+                {"person", "person"},
+                {"vehicle", "car", "bus", "truck", "van", "bicycle", "minibike", "boat", "ship", "airplane"},
+                {"furniture", "bed", "cabinet", "table", "chair", "sofa", "shelf", "armchair", "seat", "desk",
+                        "wardrobe", "chest of drawers", "counter", "bookcase", "coffee table", "bench", "stool",
+                        "ottoman", "swivel chair", "kitchen island", "buffet", "pool table", "countertop", "cradle"},
+                {"wall", "wall", "building", "house", "fence", "column", "skyscraper", "railing", "bannister",
+                        "windowpane", "glass", "mirror"},
+                {"pole / sign", "pole", "streetlight", "signboard", "traffic light", "ashcan", "bulletin board"},
+                {"plant", "tree", "plant", "flower", "palm"},
+                {"water", "water", "sea", "river", "lake", "swimming pool", "fountain"},
+                {"sky / ceiling", "sky", "ceiling"},
+        };
+        int[] colors = {
+                0xFF808080, 0xFF2ECC40, 0xFFFF851B, 0xFF0074D9, 0xFFFF4136, 0xFFB10DC9,
+                0xFFFFDC00, 0xFFAAAAAA, 0xFFF012BE, 0xFF3D9970, 0xFF7FDBFF, 0xFFDDDDDD,
+        };
+        String[] labels = new String[groups.length];
+        byte[] groupOf = new byte[Ade20k.NUM_CLASSES];
+        for (int g = 0; g < groups.length; g++) {
+            labels[g] = groups[g][0];
+            for (int i = 1; i < groups[g].length; i++) {
+                groupOf[classId(groups[g][i])] = (byte) g;
+            }
+        }
+        return new ClassGroups(labels, colors, groupOf);
+    }
+
+    private static int classId(String label) {
+        for (int c = 0; c < Ade20k.NUM_CLASSES; c++) {
+            if (Ade20k.label(c).equals(label)) return c;
+        }
+        throw new IllegalArgumentException("No ADE20K class " + label);
+    }
+
+    public int getGroupCount() {
+        return labels.length;
+    }
+
+    public int getClassCount() {
+        return groupOf.length;
+    }
+
+    public String getLabel(int group) {
+        return labels[group];
+    }
+
+    public int getColor(int group) {
+        return palette[group];
+    }
+
+    /** ARGB color per group id, for {@link SegmentationRenderer}. A copy. */
+    public int[] getPalette() {
+        return palette.clone();
+    }
+
+    public int groupOf(int classId) {
+        return groupOf[classId] & 0xFF;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Turns a relative depth map (a flat row-major {@link FloatBuffer}, larger = nearer for
+ * Depth-Anything) into colors through a 256-entry lookup table. The value range is found in one
+ * streaming min/max pass, optionally narrowed to the 2nd..98th percentile using a fixed-bin
+ * histogram so a few outliers do not wash out the picture. Rows are written in bulk and every
+ * buffer, including the two output bitmaps it alternates between, is reused.
+ */
+public class DepthRenderer {
+
+    public enum Colormap {
+        GRAYSCALE,
+        TURBO,
+        INFERNO,
+        /** Black-red-yellow-white, so the nearest surfaces are the brightest and hottest. */
+        NEAR_IS_HOT
+    }
+
+    private static final int HISTOGRAM_BINS = 1024;
+    private static final float LOW_PERCENTILE = 0.02f;
+    private static final float HIGH_PERCENTILE = 0.98f;
+
+    private static final int[][] LUTS = new int[Colormap.values().length][];
+
+    private int[] lut;
+    private boolean robustRange;
+    private final int[] histogram = new int[HISTOGRAM_BINS];
+    private float[] rowValues = new float[0];
+    private int[] rowColors = new int[0];
+    private float rangeMin;
+    private float rangeMax;
+
+    // Double-buffered so the bitmap on screen is never the one being drawn into.
+    private final Bitmap[] outputs = new Bitmap[2];
+    private int nextOutput;
+
+    public DepthRenderer(Colormap colormap) {
+        setColormap(colormap);
+    }
+
+    public void setColormap(Colormap colormap) {
+        lut = lut(colormap);
+    }
+
+    /** Clip the range to the 2nd..98th percentile instead of the raw min/max. */
+    public void setRobustRange(boolean robustRange) {
+        this.robustRange = robustRange;
+    }
+
+    /** Lower end of the value range mapped by the last render. */
+    public float getRangeMin() {
+        return rangeMin;
+    }
+
+    /** Upper end of the value range mapped by the last render. */
+    public float getRangeMax() {
+        return rangeMax;
+    }
+
+    /** Renders a {@code width x height} depth map into a reused bitmap of the same size. */
+    public Bitmap render(FloatBuffer depth, int width, int height) {
+        Bitmap output = outputs[nextOutput];
+        if (output == null || output.getWidth() != width || output.getHeight() != height) {
+            output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            outputs[nextOutput] = output;
+        }
+        nextOutput ^= 1;
+
+        computeRange(depth, width, height);
+        depth.position(0);
+        for (int y = 0; y < height; y++) {
+            depth.get(rowValues, 0, width);
+            mapRow(width);
+            output.setPixels(rowColors, 0, width, 0, y, width, 1);
+        }
+        depth.rewind();
+        return output;
+    }
+
+    /** Array form of {@link #render(FloatBuffer, int, int)}, writing ARGB into {@code out}. */
+    public void render(FloatBuffer depth, int width, int height, int[] out) {
+        computeRange(depth, width, height);
+        depth.position(0);
+        for (int y = 0; y < height; y++) {
+            depth.get(rowValues, 0, width);
+            mapRow(width);
+            System.arraycopy(rowColors, 0, out, y * width, width);
+        }
+        depth.rewind();
+    }
+
+    private void computeRange(FloatBuffer depth, int width, int height) {
+        if (rowValues.length < width) {
+            rowValues = new float[width];
+            rowColors = new int[width];
+        }
+        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+        depth.position(0);
+        for (int y = 0; y < height; y++) {
+            depth.get(rowValues, 0, width);
+            for (int x = 0; x < width; x++) {
+                float v = rowValues[x];
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+        }
+        rangeMin = min;
+        rangeMax = max;
+        if (!robustRange || max <= min) return;
+
+        Arrays.fill(histogram, 0);
+        float toBin = HISTOGRAM_BINS / (max - min);
+        depth.position(0);
+        for (int y = 0; y < height; y++) {
+            depth.get(rowValues, 0, width);
+            for (int x = 0; x < width; x++) {
+                int bin = (int) ((rowValues[x] - min) * toBin);
+                histogram[bin < HISTOGRAM_BINS ? bin : HISTOGRAM_BINS - 1]++;
+            }
+        }
+        long total = (long) width * height;
+        long lowCount = (long) (total * LOW_PERCENTILE);
+        long highCount = (long) Math.ceil(total * HIGH_PERCENTILE);
+        float binWidth = (max - min) / HISTOGRAM_BINS;
+        long seen = 0;
+        int lowBin = -1, highBin = HISTOGRAM_BINS - 1;
+        for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+            seen += histogram[bin];
+            if (lowBin < 0 && seen > lowCount) lowBin = bin;
+            if (seen >= highCount) {
+                highBin = bin;
+                break;
+            }
+        }
+        rangeMin = min + lowBin * binWidth;
+        rangeMax = min + (highBin + 1) * binWidth;
+    }
+
+    private void mapRow(int width) {
+        float lo = rangeMin;
+        float scale = rangeMax > rangeMin ? 256f / (rangeMax - rangeMin) : 0f;
+        int[] table = lut;
+        for (int x = 0; x < width; x++) {
+            int index = (int) ((rowValues[x] - lo) * scale);
+            if (index < 0) index = 0;
+            if (index > 255) index = 255;
+            rowColors[x] = table[index];
+        }
+    }
+
+    static synchronized int[] lut(Colormap colormap) {
+        int[] table = LUTS[colormap.ordinal()];
+        if (table == null) {
+            table = new int[256];
+            for (int i = 0; i < 256; i++) {
+                table[i] = color(colormap, i / 255f);
+            }
+            LUTS[colormap.ordinal()] = table;
+        }
+        return table;
+    }
+
+    private static int color(Colormap colormap, float t) {
+        float r, g, b;
+        switch (colormap) {
+            case TURBO: {
+                // Polynomial approximation of Google's Turbo colormap.
+                float t2 = t * t, t3 = t2 * t, t4 = t3 * t, t5 = t4 * t;
+                r = 0.13572138f + 4.61539260f * t - 42.66032258f * t2 + 132.13108234f * t3 - 152.94239396f * t4 + 59.28637943f * t5;
+                g = 0.09140261f + 2.19418839f * t + 4.84296658f * t2 - 14.18503333f * t3 + 4.27729857f * t4 + 2.82956604f * t5;
+                b = 0.10667330f + 12.64194608f * t - 60.58204836f * t2 + 110.36276771f * t3 - 89.90310912f * t4 + 27.34824973f * t5;
+                break;
+            }
+            case INFERNO:
+                // Degree-6 polynomial fit of matplotlib's inferno.
+                r = poly(t, 0.0002189403691192265f, 0.1065134194856116f, 11.60249308247187f, -41.70399613139459f,
+                        77.162935699427f, -71.31942824499214f, 25.13112622477341f);
+                g = poly(t, 0.001651004631001012f, 0.5639564367884091f, -3.972853965665698f, 17.43639888205313f,
+                        -33.40235894210092f, 32.62606426397723f, -12.24266895238567f);
+                b = poly(t, -0.01948089843709184f, 3.932712388889277f, -15.9423941062914f, 44.35414519872813f,
+                        -81.80730925738993f, 73.20951985803202f, -23.07032500287172f);
+                break;
+            case NEAR_IS_HOT:
+                r = 3f * t;
+                g = 3f * t - 1f;
+                b = 3f * t - 2f;
+                break;
+            default:
+                r = g = b = t;
+                break;
+        }
+        return 0xFF000000 | (channel(r) << 16) | (channel(g) << 8) | channel(b);
+    }
+
+    private static float poly(float t, float c0, float c1, float c2, float c3, float c4, float c5, float c6) {
+        return c0 + t * (c1 + t * (c2 + t * (c3 + t * (c4 + t * (c5 + t * c6)))));
+    }
+
+    private static int channel(float v) {
+        return Math.round(Math.max(0f, Math.min(1f, v)) * 255f);
+    }
+}
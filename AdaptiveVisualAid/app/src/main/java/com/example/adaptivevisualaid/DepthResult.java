@@ -0,0 +1,18 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+/** Outcome of estimating depth for one picked image. Owns its bitmaps; nothing is reused. */
+public final class DepthResult {
+
+    public final Bitmap original;
+    /** Colorized depth, scaled to the size of {@link #original}. */
+    public final Bitmap depth;
+    public final long inferenceMillis;
+
+    public DepthResult(Bitmap original, Bitmap depth, long inferenceMillis) {
+        this.original = original;
+        this.depth = depth;
+        this.inferenceMillis = inferenceMillis;
+    }
+}
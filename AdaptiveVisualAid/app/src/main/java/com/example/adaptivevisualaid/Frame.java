@@ -0,0 +1,23 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+/** One upright camera (or replayed) frame, stamped with the time it was captured. */
+public final class Frame {
+
+    public final Bitmap bitmap;
+    /** {@link System#nanoTime()} when the frame was captured, for capture-to-display latency. */
+    public long captureTimeNanos;
+    /** Position of the frame in its source's stream, counting from 0. */
+    public long sequence;
+
+    public Frame(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public Frame(Bitmap bitmap, long captureTimeNanos, long sequence) {
+        this.bitmap = bitmap;
+        this.captureTimeNanos = captureTimeNanos;
+        this.sequence = sequence;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.adaptivevisualaid;
+
+/**
+ * Decides per camera frame whether the scene changed enough to be worth running the models again.
+ * Each frame is reduced to a small luma thumbnail and compared with the thumbnail of the last frame
+ * that got full inference; the share of thumbnail cells whose brightness moved past a noise
+ * threshold picks {@link Decision#FULL}, {@link Decision#PARTIAL} (run only the cheaper model) or
+ * {@link Decision#REUSE}. Fast device rotation forces a full run, and so does the maximum reuse
+ * interval, so a change is never missed for longer than that.
+ * Not thread-safe, except {@link #setMotion}, which a sensor callback may call from any thread.
+ */
+public class FrameChangeGate {
+
+    public enum Decision { FULL, PARTIAL, REUSE }
+
+    private final int thumbWidth;
+    private final int thumbHeight;
+    private final int[] thumbnail;
+    private final int[] reference;
+    private boolean hasReference;
+    private int[] row = new int[0];
+
+    private int pixelThreshold = 20;
+    private float partialThreshold = 0.02f;
+    private float fullThreshold = 0.10f;
+    private float motionThreshold = 0.6f;
+    private long maxReuseNanos = 500_000_000L;
+    private int maxReuseFrames = 15;
+
+    private volatile float motion;
+    private long lastFullNanos;
+    private int framesSinceFull;
+    private float lastChange;
+    private final long[] counts = new long[Decision.values().length];
+
+    public FrameChangeGate(int thumbWidth, int thumbHeight) {
+        this.thumbWidth = thumbWidth;
+        this.thumbHeight = thumbHeight;
+        this.thumbnail = new int[thumbWidth * thumbHeight];
+        this.reference = new int[thumbWidth * thumbHeight];
+    }
+
+    /**
+     * Share of thumbnail cells that must change for a partial and for a full run, 0 to 1. A cell
+     * changed when its luma (0..255) moved more than {@code pixelThreshold}.
+     */
+    public void setThresholds(int pixelThreshold, float partialThreshold, float fullThreshold) {
+        this.pixelThreshold = pixelThreshold;
+        this.partialThreshold = partialThreshold;
+        this.fullThreshold = fullThreshold;
+    }
+
+    /** The longest a result may be reused, in time and in frames, before a full run is forced. */
+    public void setMaxReuse(long maxReuseNanos, int maxReuseFrames) {
+        this.maxReuseNanos = maxReuseNanos;
+        this.maxReuseFrames = maxReuseFrames;
+    }
+
+    /** Device rotation speed (rad/s) above which every frame gets a full run. */
+    public void setMotionThreshold(float radiansPerSecond) {
+        this.motionThreshold = radiansPerSecond;
+    }
+
+    /** Latest device rotation speed in rad/s, e.g. the gyroscope vector's magnitude. */
+    public void setMotion(float radiansPerSecond) {
+        this.motion = radiansPerSecond;
+    }
+
+    /** Classifies {@code frame}, captured at {@code timeNanos}; a FULL decision makes it the new reference. */
+    public Decision decide(PixelSource frame, long timeNanos) {
+        return decide(frame, timeNanos, true);
+    }
+
+    /**
+     * As {@link #decide(PixelSource, long)}; without {@code partialAllowed}, for callers that have
+     * no cheaper run, a change that would be PARTIAL is FULL instead, so the frame becomes the new
+     * reference and is counted as what actually ran.
+     */
+    public Decision decide(PixelSource frame, long timeNanos, boolean partialAllowed) {
+        computeThumbnail(frame);
+        Decision decision;
+        if (!hasReference) {
+            lastChange = 1f;
+            decision = Decision.FULL;
+        } else {
+            lastChange = changedShare();
+            if (lastChange >= fullThreshold || motion >= motionThreshold
+                    || framesSinceFull >= maxReuseFrames || timeNanos - lastFullNanos >= maxReuseNanos) {
+                decision = Decision.FULL;
+            } else {
+                decision = lastChange < partialThreshold ? Decision.REUSE
+                        : partialAllowed ? Decision.PARTIAL : Decision.FULL;
+            }
+        }
+        if (decision == Decision.FULL) {
+            System.arraycopy(thumbnail, 0, reference, 0, thumbnail.length);
+            hasReference = true;
+            lastFullNanos = timeNanos;
+            framesSinceFull = 0;
+        } else {
+            framesSinceFull++;
+        }
+        counts[decision.ordinal()]++;
+        return decision;
+    }
+
+    /** Share of thumbnail cells that changed in the last {@link #decide} call. */
+    public float getLastChange() {
+        return lastChange;
+    }
+
+    public long getCount(Decision decision) {
+        return counts[decision.ordinal()];
+    }
+
+    /** Share of frames whose previous result was reused without running any model. */
+    public float getSkipRatio() {
+        long total = 0;
+        for (long count : counts) total += count;
+        return total == 0 ? 0f : (float) counts[Decision.REUSE.ordinal()] / total;
+    }
+
+    /**
+     * Makes the next {@link #decide} a FULL run, counted as such, e.g. when the caller has no
+     * result to reuse because the last full run failed. The counts are kept.
+     */
+    public void forceFull() {
+        hasReference = false;
+    }
+
+    /** Forgets the reference frame and the counts, e.g. after switching models. */
+    public void reset() {
+        hasReference = false;
+        framesSinceFull = 0;
+        lastChange = 0f;
+        for (int i = 0; i < counts.length; i++) counts[i] = 0;
+    }
+
+    private float changedShare() {
+        int changed = 0;
+        for (int i = 0; i < thumbnail.length; i++) {
+            if (Math.abs(thumbnail[i] - reference[i]) > pixelThreshold) changed++;
+        }
+        return (float) changed / thumbnail.length;
+    }
+
+    /** Mean luma of each cell along the cell's middle source row. */
+    private void computeThumbnail(PixelSource frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (row.length < width) row = new int[width];
+        for (int ty = 0; ty < thumbHeight; ty++) {
+            frame.readRow(Math.min(height - 1, (2 * ty + 1) * height / (2 * thumbHeight)), row);
+            for (int tx = 0; tx < thumbWidth; tx++) {
+                int x0 = tx * width / thumbWidth;
+                int x1 = Math.max(x0 + 1, (tx + 1) * width / thumbWidth);
+                int sum = 0;
+                for (int x = x0; x < x1; x++) {
+                    int p = row[x];
+                    sum += (((p >> 16) & 0xFF) * 77 + ((p >> 8) & 0xFF) * 150 + (p & 0xFF) * 29) >> 8;
+                }
+                thumbnail[ty * thumbWidth + tx] = sum / (x1 - x0);
+            }
+        }
+    }
+}
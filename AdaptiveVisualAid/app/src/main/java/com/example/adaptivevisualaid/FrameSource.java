@@ -0,0 +1,20 @@
+package com.example.adaptivevisualaid;
+
+/**
+ * Produces frames for {@link RealtimePipeline}: the camera in the app, replayed frames in tests.
+ * Frames may be pooled, so a source gets every frame back through {@link #release(Frame)} once the
+ * pipeline is done with it (or has dropped it) and may then refill it.
+ */
+public interface FrameSource {
+
+    interface Sink {
+        /** Called on the source's own thread; must not block. */
+        void onFrame(Frame frame);
+    }
+
+    void start(Sink sink);
+
+    void stop();
+
+    void release(Frame frame);
+}
@@ -0,0 +1,203 @@
+package com.example.adaptivevisualaid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+/**
+ * Handle to one {@link InferenceRunner} submission. The owner can {@link #cancel()} it; the task
+ * running it reports its stages and checks for cancellation between them. Stage, result and error
+ * callbacks are posted to the callback executor and dropped once the request is cancelled.
+ * Each stage is timed from its {@link #enterStage} to the next; see {@link #recordLatencyAs}.
+ */
+public final class InferenceRequest<R> {
+
+    public enum Stage {
+        DECODING("Decoding image..."),
+        WAITING_FOR_MODEL("Waiting for model to load..."),
+        PREPROCESSING("Preprocessing..."),
+        INFERENCE("Running inference..."),
+        POSTPROCESSING("Postprocessing..."),
+        RENDERING("Rendering...");
+
+        public final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final int TRACE_REQUEST = Tracing.section("inference request");
+    private static final int[] TRACE_STAGES = new int[Stage.values().length];
+
+    static {
+        for (Stage s : Stage.values()) TRACE_STAGES[s.ordinal()] = Tracing.section(s.name().toLowerCase(Locale.ROOT));
+    }
+
+    private final Executor callbackExecutor;
+    private final InferenceRunner.Callback<R> callback;
+    private final long submitNanos = System.nanoTime();
+    // Written by the task's thread; read after the task finished (ordered by the result's posting).
+    private final long[] stageNanos = new long[Stage.values().length];
+    private Stage stage;
+    private long stageStartNanos;
+    private String metricsModel;
+    private String metricsProvider;
+
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private final List<Runnable> cancelHooks = new ArrayList<>(2);
+    private Thread worker;
+
+    InferenceRequest(Executor callbackExecutor, InferenceRunner.Callback<R> callback) {
+        this.callbackExecutor = callbackExecutor;
+        this.callback = callback;
+    }
+
+    /**
+     * Cancels the request: no further callbacks are delivered, the cancel hooks run and a task
+     * blocked in an interruptible wait is interrupted. Safe to call more than once.
+     */
+    public synchronized void cancel() {
+        if (cancelled) return;
+        cancelled = true; // also drops a result that is finished but not yet delivered
+        // Under the lock, so the task cannot remove a hook and free what it aborts meanwhile.
+        for (Runnable hook : cancelHooks) hook.run();
+        if (worker != null) worker.interrupt();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** True once the task has finished, failed or noticed it was cancelled. */
+    public boolean isDone() {
+        return done;
+    }
+
+    /** Milliseconds since the request was submitted. */
+    public long elapsedMillis() {
+        return (System.nanoTime() - submitNanos) / 1_000_000L;
+    }
+
+    /** Called by the task as it moves on; throws if the request was cancelled meanwhile. */
+    public void enterStage(Stage stage) {
+        throwIfCancelled();
+        endStage(System.nanoTime());
+        this.stage = stage;
+        Tracing.begin(TRACE_STAGES[stage.ordinal()]);
+        stageStartNanos = System.nanoTime();
+        callbackExecutor.execute(() -> {
+            if (!cancelled) callback.onStage(stage);
+        });
+    }
+
+    /**
+     * Nanoseconds spent in {@code stage} so far, 0 if it was not entered. Valid on the task's
+     * thread, and in the result callback.
+     */
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Records this request's stage times into {@link LatencyMetrics}, under {@code model} and
+     * {@code provider}, once it completes successfully. Besides the stages, "delivery" is the time
+     * from the result being posted until the result callback returned, and "total" is from submit
+     * until then. Call it from the task.
+     */
+    public void recordLatencyAs(String model, String provider) {
+        metricsModel = model;
+        metricsProvider = provider;
+    }
+
+    /**
+     * Runs {@code update} on the callback executor unless the request is cancelled by then, e.g. to
+     * show part of the result while the task goes on. Throws if the request was cancelled already.
+     */
+    public void post(Runnable update) {
+        throwIfCancelled();
+        callbackExecutor.execute(() -> {
+            if (!cancelled) update.run();
+        });
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled) throw new CancellationException();
+    }
+
+    /**
+     * Adds an action that aborts work in progress (e.g. terminating a native run) when the request
+     * is cancelled; runs it immediately if already cancelled. Model runs on parallel threads each
+     * add their own. Remove the hook before releasing whatever it touches.
+     */
+    public void addCancelHook(Runnable hook) {
+        synchronized (this) {
+            if (!cancelled) {
+                cancelHooks.add(hook);
+                return;
+            }
+        }
+        hook.run();
+    }
+
+    public synchronized void removeCancelHook(Runnable hook) {
+        cancelHooks.remove(hook);
+    }
+
+    private void endStage(long nowNanos) {
+        if (stage == null) return;
+        stageNanos[stage.ordinal()] += nowNanos - stageStartNanos;
+        Tracing.end(TRACE_STAGES[stage.ordinal()]);
+        stage = null;
+    }
+
+    private void recordLatency(long postedNanos, long deliveredNanos) {
+        LatencyMetrics metrics = LatencyMetrics.getInstance();
+        for (Stage s : Stage.values()) {
+            long nanos = stageNanos[s.ordinal()];
+            if (nanos > 0) metrics.histogram(metricsModel, metricsProvider, s.name().toLowerCase(Locale.ROOT)).record(nanos);
+        }
+        metrics.histogram(metricsModel, metricsProvider, "delivery").record(deliveredNanos - postedNanos);
+        metrics.histogram(metricsModel, metricsProvider, "total").record(deliveredNanos - submitNanos);
+    }
+
+    void execute(InferenceRunner.Task<R> task) {
+        synchronized (this) {
+            if (cancelled) {
+                done = true;
+                return;
+            }
+            worker = Thread.currentThread();
+        }
+        try {
+            Tracing.begin(TRACE_REQUEST);
+            R result = task.run(this);
+            long postedNanos = System.nanoTime();
+            endStage(postedNanos);
+            callbackExecutor.execute(() -> {
+                if (cancelled) return;
+                callback.onResult(result);
+                if (metricsModel != null) recordLatency(postedNanos, System.nanoTime());
+            });
+        } catch (Exception e) {
+            // Failures caused by cancelling (terminated runs, interrupted waits) are not errors.
+            if (!cancelled) {
+                callbackExecutor.execute(() -> {
+                    if (!cancelled) callback.onError(e);
+                });
+            }
+        } finally {
+            endStage(System.nanoTime()); // a stage left open by a failure
+            Tracing.end(TRACE_REQUEST);
+            synchronized (this) {
+                done = true;
+                worker = null;
+                cancelHooks.clear();
+            }
+            Thread.interrupted(); // don't leak a cancel into the next request on this thread
+        }
+    }
+}
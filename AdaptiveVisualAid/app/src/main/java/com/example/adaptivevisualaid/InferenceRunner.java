@@ -0,0 +1,66 @@
+package com.example.adaptivevisualaid;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs an activity's gallery inference off the UI thread. Requests execute one at a time on a
+ * worker thread, so a task may reuse the activity's packers and renderers without locking, and
+ * submitting a new request cancels the previous one: only the latest picked image is ever shown.
+ */
+public final class InferenceRunner {
+
+    public interface Task<R> {
+        /** Runs on the worker thread. Report progress through {@link InferenceRequest#enterStage}. */
+        R run(InferenceRequest<R> request) throws Exception;
+    }
+
+    /** Delivered on the callback executor, and never for a cancelled request. */
+    public interface Callback<R> {
+        default void onStage(InferenceRequest.Stage stage) {}
+
+        void onResult(R result);
+
+        default void onError(Exception e) {}
+    }
+
+    private final Executor callbackExecutor;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "Inference"));
+    private InferenceRequest<?> current;
+
+    /** {@code callbackExecutor} is normally {@code ContextCompat.getMainExecutor(activity)}. */
+    public InferenceRunner(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /** Queues {@code task}, cancelling the previously submitted request. */
+    public synchronized <R> InferenceRequest<R> submit(Task<R> task, Callback<R> callback) {
+        if (current != null) current.cancel();
+        InferenceRequest<R> request = new InferenceRequest<>(callbackExecutor, callback);
+        current = request;
+        worker.execute(() -> request.execute(task));
+        return request;
+    }
+
+    /** Cancels the current request, if any. */
+    public synchronized void cancel() {
+        if (current != null) current.cancel();
+    }
+
+    /** Cancels the current request and stops the worker thread once it is idle. */
+    public synchronized void close() {
+        cancel();
+        worker.shutdown();
+    }
+
+    /**
+     * Like {@link #close()}, but first runs {@code cleanup} on the worker thread after the last
+     * request, so it can free what the tasks use (native tensors) without racing them.
+     */
+    public synchronized void close(Runnable cleanup) {
+        cancel();
+        worker.execute(cleanup);
+        worker.shutdown();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.adaptivevisualaid;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide latency histograms, one per model, execution provider and stage (decoding,
+ * inference, ...). {@link InferenceRequest} records every stage of a request it was told to
+ * measure; anything else can look up a {@link LatencyHistogram} once and record into it directly.
+ * Read the numbers with {@link #format()} for a debug screen or {@link #writeCsv} for a file.
+ */
+public final class LatencyMetrics {
+
+    private static final LatencyMetrics INSTANCE = new LatencyMetrics();
+
+    /** One histogram and what it measures. */
+    public static final class Series {
+        public final String model;
+        public final String provider;
+        public final String stage;
+        public final LatencyHistogram histogram = new LatencyHistogram();
+
+        Series(String model, String provider, String stage) {
+            this.model = model;
+            this.provider = provider;
+            this.stage = stage;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+
+    /** The app records into {@link #getInstance()}; separate instances are for tests. */
+    LatencyMetrics() {}
+
+    public static LatencyMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /** The histogram for {@code stage} of {@code model} on {@code provider}, created on first use. */
+    public LatencyHistogram histogram(String model, String provider, String stage) {
+        String key = model + '\n' + provider + '\n' + stage;
+        Series existing = series.get(key);
+        if (existing != null) return existing.histogram;
+        return series.computeIfAbsent(key, k -> new Series(model, provider, stage)).histogram;
+    }
+
+    /** Every series recorded so far, sorted by model, provider and stage name. */
+    public List<Series> getSeries() {
+        List<Series> sorted = new ArrayList<>(series.values());
+        sorted.sort((a, b) -> {
+            int byModel = a.model.compareTo(b.model);
+            if (byModel != 0) return byModel;
+            int byProvider = a.provider.compareTo(b.provider);
+            return byProvider != 0 ? byProvider : a.stage.compareTo(b.stage);
+        });
+        return sorted;
+    }
+
+    /** A plain-text table in milliseconds, grouped by model and provider. */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        String group = null;
+        for (Series s : getSeries()) {
+            String name = s.model + " on " + s.provider;
+            if (!name.equals(group)) {
+                group = name;
+                text.append(name).append('\n')
+                        .append(String.format(Locale.US, "  %-16s %6s %8s %8s %8s %8s%n",
+                                "stage", "count", "p50", "p95", "p99", "max"));
+            }
+            LatencyHistogram h = s.histogram;
+            text.append(String.format(Locale.US, "  %-16s %6d %8.1f %8.1f %8.1f %8.1f%n", s.stage, h.getCount(),
+                    millis(h.getPercentileNanos(50)), millis(h.getPercentileNanos(95)),
+                    millis(h.getPercentileNanos(99)), millis(h.getMaxNanos())));
+        }
+        return text.length() == 0 ? "No latencies recorded yet." : text.toString();
+    }
+
+    /** One CSV row per series, latencies in nanoseconds. */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("model,provider,stage,count,mean_ns,p50_ns,p95_ns,p99_ns,max_ns\n");
+        for (Series s : getSeries()) {
+            LatencyHistogram h = s.histogram;
+            out.write(String.format(Locale.US, "%s,%s,%s,%d,%d,%d,%d,%d,%d%n", s.model, s.provider, s.stage,
+                    h.getCount(), h.getMeanNanos(), h.getPercentileNanos(50), h.getPercentileNanos(95),
+                    h.getPercentileNanos(99), h.getMaxNanos()));
+        }
+    }
+
+    public void reset() {
+        for (Series s : series.values()) s.histogram.reset();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
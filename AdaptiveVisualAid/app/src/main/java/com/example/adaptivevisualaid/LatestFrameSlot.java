@@ -0,0 +1,49 @@
+package com.example.adaptivevisualaid;
+
+/**
+ * A queue of capacity one where the newest item wins: offering into a full slot replaces the
+ * waiting item and hands it back so the producer can recycle it. The consumer therefore always
+ * works on the freshest frame instead of draining a backlog of stale ones.
+ */
+public final class LatestFrameSlot<T> {
+
+    private T item;
+    private boolean closed;
+
+    /**
+     * Puts {@code next} in the slot. Returns the item it displaced (never consumed), {@code next}
+     * itself if the slot is closed, or null.
+     */
+    public synchronized T offer(T next) {
+        if (closed) return next;
+        T displaced = item;
+        item = next;
+        notifyAll();
+        return displaced;
+    }
+
+    /** Waits for an item and removes it. Returns null once the slot is closed. */
+    public synchronized T take() throws InterruptedException {
+        while (item == null && !closed) {
+            wait();
+        }
+        if (closed) return null;
+        T next = item;
+        item = null;
+        return next;
+    }
+
+    /** Removes and returns the waiting item, or null if there is none. */
+    public synchronized T poll() {
+        T next = item;
+        item = null;
+        return next;
+    }
+
+    /** Wakes any waiting consumer and rejects further offers. Returns the item left in the slot. */
+    public synchronized T close() {
+        closed = true;
+        notifyAll();
+        return poll();
+    }
+}
@@ -34,6 +34,12 @@ import android.Manifest;
 
 public class MainActivity extends AppCompatActivity implements TextToSpeech.OnInitListener {
 
+    private static final int TRACE_SPEAK = Tracing.section("tts speak");
+    private static final int TRACE_SPEECH_START = Tracing.section("tts start");
+    private static final int TRACE_SPEECH_DONE = Tracing.section("tts done");
+    private static final int TRACE_WAKE_WORD = Tracing.section("wake word received");
+    private static final int TRACE_USB_MIC_POLL = Tracing.section("usb mic poll");
+
     public TextToSpeech tts;
     public boolean isTtsReady = false;
     boolean heyAvaEnabled;
@@ -160,9 +166,15 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
         if (!isTtsReady) return;
 
         tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
-            @Override public void onStart(String utteranceId) {}
-            @Override public void onDone(String utteranceId) { runOnUiThread(action); }
-            @Override public void onError(String utteranceId) { runOnUiThread(action); }
+            @Override public void onStart(String utteranceId) { Tracing.instant(TRACE_SPEECH_START); }
+            @Override public void onDone(String utteranceId) {
+                Tracing.instant(TRACE_SPEECH_DONE);
+                runOnUiThread(action);
+            }
+            @Override public void onError(String utteranceId) {
+                Tracing.instant(TRACE_SPEECH_DONE);
+                runOnUiThread(action);
+            }
         });
 
         speak(message);
@@ -170,6 +182,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
     public void speak(String message) {
         if (isTtsReady) {
+            Tracing.instant(TRACE_SPEAK);
             tts.speak(message, TextToSpeech.QUEUE_FLUSH, null, "TTS_MESSAGE_ID");
         }
     }
@@ -206,6 +219,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
     private final BroadcastReceiver wakeWordReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
+            Tracing.instant(TRACE_WAKE_WORD);
             Log.d("WakeWord", "Hey Ava detected. Starting voice assistant.");
             runOnUiThread(() -> {
                 speak("Hi, how can I help you?");
@@ -228,7 +242,12 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                 @Override
                 public void run() {
                     boolean prevUsbMicFound = usbMicFound;
-                    checkUsbMicrophoneAvailability();
+                    Tracing.begin(TRACE_USB_MIC_POLL);
+                    try {
+                        checkUsbMicrophoneAvailability();
+                    } finally {
+                        Tracing.end(TRACE_USB_MIC_POLL);
+                    }
 
                     if (usbMicFound && !prevUsbMicFound) {
                         Log.d("USBMic", "USB Microphone plugged in");
@@ -0,0 +1,153 @@
+package com.example.adaptivevisualaid;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import ai.onnxruntime.OrtSession;
+
+/**
+ * {@link ModelRegistry.Loader}s for the models bundled in assets. Models are stored uncompressed
+ * in the APK (see {@code noCompress} in the build script) and memory-mapped straight out of it.
+ * Only if an asset is compressed anyway is it copied out, once, into a verified file.
+ */
+final class ModelLoaders {
+
+    private static final String TAG = "ModelLoaders";
+    private static final String MODEL_DIR = "models";
+
+    private ModelLoaders() {}
+
+    static ModelRegistry.Loader<OrtSession> onnxSession(String assetName) {
+        return context -> OrtSessionFactory.create(context, assetName, ProviderAutotuner.bestConfig(context, assetName));
+    }
+
+    /** Register the result under {@link #tfliteKey}, so interpreters with other settings are not shared. */
+    static ModelRegistry.Loader<Interpreter> tfliteInterpreter(String assetName, TfliteSettings settings) {
+        return context -> {
+            // Cancellable so a stale gallery request can abort its run (see CancellableRuns).
+            Interpreter.Options options = new Interpreter.Options()
+                    .setCancellable(true)
+                    .setNumThreads(settings.numThreads)
+                    .setUseXNNPACK(settings.useXnnpack);
+            ByteBuffer model = mapAsset(context, assetName);
+            if (model != null) {
+                return new Interpreter(model, options);
+            }
+            return new Interpreter(copyAssetToFile(context, assetName), options);
+        };
+    }
+
+    static String tfliteKey(String assetName, TfliteSettings settings) {
+        return assetName + "@" + settings;
+    }
+
+    /**
+     * Maps {@code assetName} read-only straight from the APK, or returns null if the asset is
+     * stored compressed and so has no file descriptor.
+     */
+    static MappedByteBuffer mapAsset(Context context, String assetName) throws IOException {
+        AssetFileDescriptor descriptor;
+        try {
+            descriptor = context.getAssets().openFd(assetName);
+        } catch (FileNotFoundException e) {
+            Log.w(TAG, assetName + " is compressed in the APK; falling back to a copy.");
+            return null;
+        }
+        try (AssetFileDescriptor fd = descriptor;
+             FileInputStream inputStream = new FileInputStream(fd.getFileDescriptor());
+             FileChannel channel = inputStream.getChannel()) {
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer model = channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+            deleteLegacyCopy(context, assetName);
+            return model;
+        }
+    }
+
+    /**
+     * Copies {@code assetName} out of the APK unless a verified copy already exists. The copy is
+     * written to a temporary file, synced, checked against the asset's size and SHA-256 and only
+     * then renamed into place, so a copy interrupted half-way is never mistaken for the model.
+     */
+    static File copyAssetToFile(Context context, String assetName) throws IOException {
+        File dir = new File(context.getCacheDir(), MODEL_DIR);
+        File file = new File(dir, assetName);
+        if (file.exists()) return file; // only ever created by the rename below
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+        File temp = new File(dir, assetName + ".tmp");
+        MessageDigest assetDigest = sha256();
+        long size = 0;
+        try (InputStream is = context.getAssets().open(assetName);
+             FileOutputStream fos = new FileOutputStream(temp)) {
+            byte[] buffer = new byte[256 * 1024];
+            int length;
+            while ((length = is.read(buffer)) > 0) {
+                assetDigest.update(buffer, 0, length);
+                fos.write(buffer, 0, length);
+                size += length;
+            }
+            fos.getFD().sync();
+        }
+        if (temp.length() != size || !Arrays.equals(assetDigest.digest(), hashFile(temp))) {
+            temp.delete();
+            throw new IOException("Verification of the copied " + assetName + " failed");
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp + " to " + file);
+        }
+        deleteLegacyCopy(context, assetName);
+        Log.d(TAG, "Copied " + assetName + " (" + size + " bytes)");
+        return file;
+    }
+
+    static byte[] sha256(ByteBuffer buffer) {
+        MessageDigest digest = sha256();
+        digest.update(buffer.duplicate());
+        return digest.digest();
+    }
+
+    static byte[] hashFile(File file) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileInputStream is = new FileInputStream(file)) {
+            byte[] buffer = new byte[256 * 1024];
+            int length;
+            while ((length = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e); // every Android release ships SHA-256
+        }
+    }
+
+    /** Older builds copied every model unverified to the top of cacheDir; reclaim that space. */
+    private static void deleteLegacyCopy(Context context, String assetName) {
+        File legacy = new File(context.getCacheDir(), assetName);
+        if (legacy.isFile() && legacy.delete()) {
+            Log.d(TAG, "Deleted legacy copy of " + assetName);
+        }
+    }
+}
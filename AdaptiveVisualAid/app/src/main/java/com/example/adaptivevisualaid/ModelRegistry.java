@@ -0,0 +1,173 @@
+package com.example.adaptivevisualaid;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide cache of loaded models (ORT sessions, TFLite interpreters).
+ * Each model is loaded once on a background thread and shared between activities through
+ * reference-counted {@link Handle}s. Models nobody holds stay cached until the system reports
+ * memory pressure through {@link #onTrimMemory(int)}.
+ */
+public final class ModelRegistry implements ComponentCallbacks2 {
+
+    private static final String TAG = "ModelRegistry";
+
+    private static ModelRegistry instance;
+
+    public interface Loader<T extends AutoCloseable> {
+        T load(Context context) throws Exception;
+    }
+
+    private static final class Entry {
+        final String key;
+        final CompletableFuture<AutoCloseable> future;
+        int refCount;
+
+        Entry(String key, CompletableFuture<AutoCloseable> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+
+    /** A reference to a shared model. Close it when the owner (usually an activity) goes away. */
+    public static final class Handle<T extends AutoCloseable> implements AutoCloseable {
+        private final ModelRegistry registry;
+        private final Entry entry;
+        private final CompletableFuture<T> ready;
+        private boolean closed;
+
+        private Handle(ModelRegistry registry, Entry entry, CompletableFuture<T> ready) {
+            this.registry = registry;
+            this.entry = entry;
+            this.ready = ready;
+        }
+
+        /** Completes with the model once loaded, or exceptionally if loading failed. */
+        public CompletableFuture<T> ready() {
+            return ready;
+        }
+
+        /** Returns the model if it is already loaded, otherwise null. */
+        public T getNow() {
+            return ready.isDone() && !ready.isCompletedExceptionally() ? ready.join() : null;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                registry.release(entry);
+            }
+        }
+    }
+
+    private final Context appContext;
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "ModelLoader"));
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private ModelRegistry(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    public static synchronized ModelRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new ModelRegistry(context.getApplicationContext());
+            instance.appContext.registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns a handle to the model registered under {@code key}, starting the load with
+     * {@code loader} if the model is not cached yet (or a previous load failed).
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends AutoCloseable> Handle<T> acquire(String key, Loader<T> loader) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.future.isCompletedExceptionally()) {
+            int traceSection = Tracing.section("load " + key);
+            CompletableFuture<AutoCloseable> future = CompletableFuture.supplyAsync(() -> {
+                Tracing.begin(traceSection);
+                try {
+                    long start = System.currentTimeMillis();
+                    T model = loader.load(appContext);
+                    Log.d(TAG, key + " loaded in " + (System.currentTimeMillis() - start) + " ms");
+                    return model;
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to load " + key, e);
+                    throw new RuntimeException("Failed to load " + key, e);
+                } finally {
+                    Tracing.end(traceSection);
+                }
+            }, loadExecutor);
+            entry = new Entry(key, future);
+            entries.put(key, entry);
+        }
+        entry.refCount++;
+        return new Handle<>(this, entry, entry.future.thenApply(model -> (T) model));
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.refCount--;
+        if (entry.refCount < 0) {
+            Log.w(TAG, "Unbalanced release of " + entry.key);
+            entry.refCount = 0;
+        }
+    }
+
+    /** Closes every loaded model that currently has no handle. */
+    public void evictIdle() {
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.refCount == 0 && entry.future.isDone()) {
+                    it.remove();
+                    evicted.add(entry);
+                }
+            }
+        }
+        for (Entry entry : evicted) {
+            AutoCloseable model = entry.future.isCompletedExceptionally() ? null : entry.future.join();
+            if (model == null) continue;
+            try {
+                model.close();
+                Log.d(TAG, "Evicted idle model " + entry.key);
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to close " + entry.key, e);
+            }
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // UI_HIDDEN alone just means the user left the app; keep models warm for their return.
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            evictIdle();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        evictIdle();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
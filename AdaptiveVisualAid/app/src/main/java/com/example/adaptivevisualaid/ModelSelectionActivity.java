@@ -2,10 +2,17 @@ package com.example.adaptivevisualaid;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.Spinner;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ModelSelectionActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -17,6 +24,9 @@ public class ModelSelectionActivity extends AppCompatActivity {
         Button btnDepthAnythingTflite = findViewById(R.id.btn_depth_anything_tflite);
         Button btnRealtimeOnnx = findViewById(R.id.btn_realtime_onnx);
 
+        bindModelOverride(findViewById(R.id.spinner_segmentation_model), ModelTiers.Task.SEGMENTATION);
+        bindModelOverride(findViewById(R.id.spinner_depth_model), ModelTiers.Task.DEPTH);
+
         btnSegformerOnnx.setOnClickListener(v -> {
             Intent intent = new Intent(ModelSelectionActivity.this, ONNXSegformerActivity.class);
             startActivity(intent);
@@ -37,4 +47,29 @@ public class ModelSelectionActivity extends AppCompatActivity {
             startActivity(intent);
         });
     }
+
+    /**
+     * "Auto" lets the realtime screen pick the model variant that fits the device; any other entry
+     * pins that variant everywhere.
+     */
+    private void bindModelOverride(Spinner spinner, ModelTiers.Task task) {
+        List<String> models = ModelTiers.available(this, task);
+        List<String> labels = new ArrayList<>();
+        labels.add("Auto (fit this device)");
+        for (String model : models) labels.add(ModelTiers.label(task, model));
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, labels);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+        spinner.setSelection(models.indexOf(ModelTiers.getOverride(this, task)) + 1); // -1 + 1 is Auto
+
+        spinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                ModelTiers.setOverride(ModelSelectionActivity.this, task, position == 0 ? null : models.get(position - 1));
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+    }
 }
@@ -0,0 +1,183 @@
+package com.example.adaptivevisualaid;
+
+/**
+ * Picks which variant of a model to run, from tier 0 (lightest) to the heaviest, so that inference
+ * meets a latency budget on this device. It starts at the heaviest tier and demotes after a run of
+ * frames over budget, or while the device is thermally throttled; it promotes once the smoothed
+ * latency leaves enough headroom and the device is cool. A promotion that is demoted again right
+ * away doubles the wait before the next attempt, so a tier that does not fit is not retried every
+ * few frames. A tier that failed to load is left alone for a while, with the same kind of backoff.
+ * A manual override pins the tier and pauses the policy.
+ * Not thread-safe, except {@link #setThermal}, which a system callback may call from any thread.
+ */
+public class ModelTierPolicy {
+
+    public enum Thermal {
+        /** No throttling. */
+        NORMAL,
+        /** Throttling has begun: no promotions. */
+        WARM,
+        /** Heavy throttling: demote, one tier per settle period. */
+        HOT
+    }
+
+    public static final int AUTO = -1;
+
+    private final int tierCount;
+    private final long budgetNanos;
+    private float smoothing = 0.25f;
+    private float downThreshold = 1.15f;
+    private float upThreshold = 0.50f;
+    private int settleFrames = 5;
+    private int sustainFrames = 5;
+    private int minPromoteFrames = 30;
+    private int maxPromoteFrames = 960;
+
+    private volatile Thermal thermal = Thermal.NORMAL;
+    private int override = AUTO;
+    private int tier;
+    private double averageNanos;
+    private int framesAtTier;
+    private int overruns;
+    private int promoteFrames;
+    private boolean justPromoted;
+    private int promotions;
+    private int demotions;
+    private int failedTier = -1;
+    private int failedWaitFrames;
+    private int failedFramesLeft;
+
+    public ModelTierPolicy(int tierCount, long budgetNanos) {
+        if (tierCount < 1) throw new IllegalArgumentException("Need at least one tier");
+        this.tierCount = tierCount;
+        this.budgetNanos = budgetNanos;
+        this.tier = tierCount - 1;
+        this.promoteFrames = minPromoteFrames;
+    }
+
+    /**
+     * A frame is an overrun above {@code down} x budget; promotion needs a smoothed latency below
+     * {@code up} x budget, leaving room for the heavier model. {@code up} must be below {@code down}.
+     */
+    public void setThresholds(float down, float up) {
+        if (up >= down) throw new IllegalArgumentException("The up threshold must be below the down threshold");
+        this.downThreshold = down;
+        this.upThreshold = up;
+    }
+
+    /** Frames run at a new tier (warm-up, first runs) before they count. */
+    public void setSettleFrames(int settleFrames) {
+        this.settleFrames = settleFrames;
+    }
+
+    /** Consecutive overruns that demote. */
+    public void setSustainFrames(int sustainFrames) {
+        this.sustainFrames = sustainFrames;
+    }
+
+    /** Frames of headroom before a promotion, and the most that failed promotions back off to. */
+    public void setPromoteFrames(int min, int max) {
+        this.minPromoteFrames = min;
+        this.maxPromoteFrames = max;
+        this.promoteFrames = min;
+    }
+
+    public void setThermal(Thermal thermal) {
+        this.thermal = thermal;
+    }
+
+    /** Pins {@code tier}, or {@link #AUTO} to hand the choice back to the policy. */
+    public void setOverride(int tier) {
+        if (tier != AUTO && (tier < 0 || tier >= tierCount)) throw new IllegalArgumentException("No tier " + tier);
+        if (tier == override) return;
+        override = tier;
+        if (tier == AUTO) moveTo(this.tier);
+    }
+
+    public int getOverride() {
+        return override;
+    }
+
+    /** The tier to run. */
+    public int getTier() {
+        return override != AUTO ? override : tier;
+    }
+
+    public int getTierCount() {
+        return tierCount;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /** Smoothed latency at the current tier, or 0 before its first frame. */
+    public long getAverageNanos() {
+        return (long) averageNanos;
+    }
+
+    public int getPromotions() {
+        return promotions;
+    }
+
+    public int getDemotions() {
+        return demotions;
+    }
+
+    /**
+     * Reports that {@code tier}, which the policy moved to, could not be loaded, so the previous
+     * {@code fallbackTier} is still running. The policy goes back to it and does not move to the
+     * failed tier for the promotion wait; every further failure of the same tier doubles that wait.
+     * An override stays as it is.
+     */
+    public void loadFailed(int tier, int fallbackTier) {
+        failedWaitFrames = tier == failedTier ? Math.min(maxPromoteFrames, failedWaitFrames * 2) : minPromoteFrames;
+        failedTier = tier;
+        failedFramesLeft = failedWaitFrames;
+        moveTo(fallbackTier);
+    }
+
+    /** The tier that failed to load and is still being left alone, or -1. */
+    public int getFailedTier() {
+        return failedFramesLeft > 0 ? failedTier : -1;
+    }
+
+    /** Records one frame's inference time at {@link #getTier()}; returns true if the tier changed. */
+    public boolean record(long nanos) {
+        if (override != AUTO) return false;
+        if (failedFramesLeft > 0) failedFramesLeft--;
+        averageNanos = framesAtTier == 0 ? nanos : averageNanos + smoothing * (nanos - averageNanos);
+        framesAtTier++;
+        if (framesAtTier <= settleFrames) return false;
+
+        overruns = nanos > budgetNanos * (double) downThreshold ? overruns + 1 : 0;
+        Thermal currentThermal = thermal;
+        if (tier > 0 && tier - 1 != getFailedTier() && (overruns >= sustainFrames || currentThermal == Thermal.HOT)) {
+            // Demoted straight after a promotion: that tier does not fit, wait longer next time.
+            promoteFrames = justPromoted ? Math.min(maxPromoteFrames, promoteFrames * 2) : promoteFrames;
+            demotions++;
+            moveTo(tier - 1);
+            return true;
+        }
+        if (justPromoted && framesAtTier > settleFrames + promoteFrames) {
+            justPromoted = false; // the promotion held
+            promoteFrames = minPromoteFrames;
+        }
+        if (tier < tierCount - 1 && tier + 1 != getFailedTier() && currentThermal == Thermal.NORMAL
+                && framesAtTier > settleFrames + promoteFrames && averageNanos < budgetNanos * (double) upThreshold) {
+            promotions++;
+            moveTo(tier + 1);
+            justPromoted = true;
+            return true;
+        }
+        return false;
+    }
+
+    private void moveTo(int newTier) {
+        tier = newTier;
+        averageNanos = 0;
+        framesAtTier = 0;
+        overruns = 0;
+        justPromoted = false;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.adaptivevisualaid;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The model variants of each task, lightest first, and the user's manual choice among them. Only
+ * variants bundled in assets are offered; the heaviest is the model the app always shipped. Every
+ * variant of a task has the same input and output names, with float32 inputs and outputs (fp16
+ * and int8 exports keep float32 I/O), so they are interchangeable.
+ */
+final class ModelTiers {
+
+    private static final String TAG = "ModelTiers";
+    private static final String PREFS_NAME = TfliteSettings.PREFS_NAME;
+    private static final String KEY_OVERRIDE_PREFIX = "model_override_";
+
+    enum Task {
+        SEGMENTATION(
+                new String[]{"Segformer b0", "Segformer b1", "Segformer b2"},
+                new String[]{"segformer-b0-finetuned-ade-512-512.onnx", "segformer-b1-finetuned-ade-512-512.onnx",
+                        "segformer-b2-finetuned-ade-512-512.onnx"}),
+        DEPTH(
+                new String[]{"Depth Anything S int8", "Depth Anything S fp16", "Depth Anything S fp32"},
+                new String[]{"depth_anything_v2_vits_int8.onnx", "depth_anything_v2_vits_fp16.onnx",
+                        "depth_anything_v2_vits.onnx"});
+
+        final String[] labels;
+        final String[] models;
+
+        Task(String[] labels, String[] models) {
+            this.labels = labels;
+            this.models = models;
+        }
+    }
+
+    private ModelTiers() {}
+
+    /** Models of {@code task} bundled in assets, lightest first; at least the heaviest one. */
+    static List<String> available(Context context, Task task) {
+        List<String> assets;
+        try {
+            String[] names = context.getAssets().list("");
+            assets = names != null ? Arrays.asList(names) : new ArrayList<>();
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot list assets", e);
+            assets = new ArrayList<>();
+        }
+        List<String> models = new ArrayList<>();
+        for (String model : task.models) {
+            if (assets.contains(model)) models.add(model);
+        }
+        String shipped = task.models[task.models.length - 1];
+        if (models.isEmpty()) models.add(shipped); // let loading it report what is missing
+        return models;
+    }
+
+    static String label(Task task, String model) {
+        int index = Arrays.asList(task.models).indexOf(model);
+        return index >= 0 ? task.labels[index] : model;
+    }
+
+    /** The model the user picked for {@code task}, or null to let the tier policy choose. */
+    static String getOverride(Context context, Task task) {
+        return prefs(context).getString(KEY_OVERRIDE_PREFIX + task.name(), null);
+    }
+
+    /** Pins {@code task} to {@code model}, or with null hands it back to the tier policy. */
+    static void setOverride(Context context, Task task, String model) {
+        SharedPreferences.Editor editor = prefs(context).edit();
+        if (model == null) {
+            editor.remove(KEY_OVERRIDE_PREFIX + task.name());
+        } else {
+            editor.putString(KEY_OVERRIDE_PREFIX + task.name(), model);
+        }
+        editor.apply();
+    }
+
+    /**
+     * The model for a one-off run, like the gallery's: the override if it is available, otherwise
+     * the heaviest available model, since a single picked image has no frame budget.
+     */
+    static String pick(Context context, Task task) {
+        List<String> models = available(context, task);
+        String override = getOverride(context, task);
+        return override != null && models.contains(override) ? override : models.get(models.size() - 1);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
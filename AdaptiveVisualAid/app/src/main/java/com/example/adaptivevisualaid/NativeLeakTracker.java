@@ -0,0 +1,114 @@
+package com.example.adaptivevisualaid;
+
+import android.util.Log;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Bookkeeping of native resources (ORT tensors, results) for debug builds. Every tracked object
+ * remembers where it was created; one that is garbage collected while still open has leaked its
+ * native memory until its finalizer runs, and is logged with that stack trace. A disabled tracker
+ * does nothing, so release builds pay nothing for it.
+ */
+public final class NativeLeakTracker {
+
+    private static final String TAG = "NativeLeakTracker";
+
+    /** Returned by {@link #track}; close it when the resource is closed. */
+    public static final class Token extends WeakReference<Object> implements AutoCloseable {
+        private final NativeLeakTracker tracker;
+        private final String label;
+        private final Throwable site;
+
+        private Token(NativeLeakTracker tracker, Object resource, String label) {
+            super(resource, tracker.queue);
+            this.tracker = tracker;
+            this.label = label;
+            this.site = new Throwable("Created here");
+        }
+
+        /** The disabled tracker's token, which tracks nothing. */
+        private Token() {
+            super(null);
+            this.tracker = null;
+            this.label = null;
+            this.site = null;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /** Stack trace of the {@link #track} call. */
+        public Throwable getSite() {
+            return site;
+        }
+
+        @Override
+        public void close() {
+            if (tracker != null) tracker.live.remove(this);
+        }
+    }
+
+    private static final Token NO_OP = new Token();
+
+    private final boolean enabled;
+    private final Consumer<Token> leakReporter;
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Map<Token, Boolean> live = new ConcurrentHashMap<>();
+    private int leaked;
+
+    public NativeLeakTracker(boolean enabled) {
+        this(enabled, token -> Log.w(TAG, "Native resource leaked (garbage collected without close): "
+                + token.getLabel(), token.getSite()));
+    }
+
+    /** {@code leakReporter} is called for each leak {@link #checkLeaks} finds, instead of logging it. */
+    public NativeLeakTracker(boolean enabled, Consumer<Token> leakReporter) {
+        this.enabled = enabled;
+        this.leakReporter = leakReporter;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Starts tracking {@code resource}; {@code label} names it in reports. */
+    public Token track(Object resource, String label) {
+        if (!enabled) return NO_OP;
+        checkLeaks();
+        Token token = new Token(this, resource, label);
+        live.put(token, Boolean.TRUE);
+        return token;
+    }
+
+    /** Resources tracked and not yet closed, including leaked ones not yet noticed. */
+    public int liveCount() {
+        return live.size();
+    }
+
+    /** Reports the resources collected without being closed since the last check; returns the total so far. */
+    public synchronized int checkLeaks() {
+        Token token;
+        while ((token = (Token) queue.poll()) != null) {
+            if (live.remove(token) != null) {
+                leaked++;
+                leakReporter.accept(token);
+            }
+        }
+        return leaked;
+    }
+
+    /** Labels of the resources still open. */
+    public List<String> report() {
+        List<String> labels = new ArrayList<>();
+        for (Token token : live.keySet()) labels.add(token.label);
+        return labels;
+    }
+}
@@ -2,9 +2,6 @@ package com.example.adaptivevisualaid;
 
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
-import android.media.ExifInterface;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
@@ -15,31 +12,35 @@ import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 
 import ai.onnxruntime.*;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.io.IOException;
-import java.nio.FloatBuffer;
-import java.util.Collections;
 
 public class ONNXDepthAnythingActivity extends AppCompatActivity {
 
     private static final String TAG = "ONNXDepthAnythingActivity";
-    private static final String MODEL_NAME = "depth_anything_v2_vits.onnx";
     private static final int PICK_IMAGE_REQUEST = 1001;
 
     private OrtEnvironment env;
-    private OrtSession session;
+    // The model pinned in the model selection screen, otherwise the heaviest one bundled.
+    private String modelName;
+    private ModelRegistry.Handle<OrtSession> modelHandle;
+    private final TensorPacker tensorPacker = new TensorPacker(518, 518, TensorPacker.Layout.NCHW);
+    private final ResizeNormalizeKernel resizeKernel = new ResizeNormalizeKernel(tensorPacker);
+    private final DepthRenderer depthRenderer = new DepthRenderer(DepthRenderer.Colormap.GRAYSCALE);
+    private OrtTensorArena tensorArena; // used and closed on the inference thread only
 
     private ImageView originalImageView;
     private ImageView depthImageView;
     private TextView inferenceTimeText;
     private TextView totalTimeText;
 
-    private Bitmap originalBitmap;
+    private InferenceRunner inferenceRunner;
+    private DepthResult lastResult;
+    private Uri imageUri;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -53,42 +54,54 @@ public class ONNXDepthAnythingActivity extends AppCompatActivity {
         totalTimeText = findViewById(R.id.txtTotalTime);
 
         btnSelectImage.setOnClickListener(v -> selectImageFromGallery());
-
-        new Thread(() -> {
-            try {
-                File modelFile = copyAssetToFile(MODEL_NAME);
-                env = OrtEnvironment.getEnvironment();
-                OrtSession.SessionOptions sessionOptions = new OrtSession.SessionOptions();
-                if (OrtEnvironment.getAvailableProviders().contains("NNAPI")) {
-                    sessionOptions.addNnapi();
-                    Log.d(TAG, "NNAPI enabled for ONNX Runtime.");
+        // Results are shown at display size; long-press to export them at the photo's full resolution.
+        depthImageView.setOnLongClickListener(v -> {
+            exportFullResolution();
+            return true;
+        });
+
+        env = OrtEnvironment.getEnvironment();
+        inferenceRunner = new InferenceRunner(ContextCompat.getMainExecutor(this));
+        modelName = ModelTiers.pick(this, ModelTiers.Task.DEPTH);
+        modelHandle = ModelRegistry.getInstance(this).acquire(modelName, ModelLoaders.onnxSession(modelName));
+        if (modelHandle.getNow() == null) {
+            modelHandle.ready().whenCompleteAsync((session, error) -> {
+                if (error != null) {
+                    Toast.makeText(this, "ONNX Model load failed", Toast.LENGTH_SHORT).show();
                 } else {
-                    Log.d(TAG, "NNAPI not available.");
+                    // Cold vs. warm (pre-optimised) session creation time.
+                    String load = OrtSessionFactory.describeLastLoad(modelName);
+                    Log.d(TAG, "ONNX Model loaded successfully! (" + load + ")");
+                    Toast.makeText(this, "ONNX Model loaded (" + load + ")", Toast.LENGTH_SHORT).show();
                 }
-                session = env.createSession(modelFile.getAbsolutePath(), sessionOptions);
+            }, ContextCompat.getMainExecutor(this));
+        }
+    }
 
-                Log.d(TAG, "ONNX Model loaded successfully!");
-                runOnUiThread(() -> Toast.makeText(this, "ONNX Model loaded", Toast.LENGTH_SHORT).show());
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to load ONNX model: " + e.getMessage(), e);
-                runOnUiThread(() -> Toast.makeText(this, "ONNX Model load failed", Toast.LENGTH_SHORT).show());
-            }
-        }).start();
+    @Override
+    protected void onDestroy() {
+        inferenceRunner.close(this::closeTensorArena);
+        modelHandle.close();
+        super.onDestroy();
     }
 
-    private File copyAssetToFile(String assetName) throws Exception {
-        File file = new File(getCacheDir(), assetName);
-        if (!file.exists()) {
-            try (InputStream is = getAssets().open(assetName);
-                 FileOutputStream fos = new FileOutputStream(file)) {
-                byte[] buffer = new byte[4096];
-                int length;
-                while ((length = is.read(buffer)) > 0) {
-                    fos.write(buffer, 0, length);
-                }
+    private void exportFullResolution() {
+        if (imageUri == null || lastResult == null) return;
+        Uri uri = imageUri;
+        Bitmap depth = lastResult.depth;
+        Toast.makeText(this, "Exporting full resolution...", Toast.LENGTH_SHORT).show();
+        new Thread(() -> {
+            try {
+                int[] size = BitmapIO.readUprightSize(getContentResolver(), uri);
+                Bitmap full = Bitmap.createScaledBitmap(depth, size[0], size[1], true);
+                File file = BitmapIO.saveExport(this, full, "onnx_depth");
+                if (full != depth) full.recycle(); // same bitmap when no scaling was needed
+                runOnUiThread(() -> Toast.makeText(this, "Saved " + file.getAbsolutePath(), Toast.LENGTH_LONG).show());
+            } catch (IOException e) {
+                Log.e(TAG, "Full resolution export failed", e);
+                runOnUiThread(() -> Toast.makeText(this, "Export failed", Toast.LENGTH_SHORT).show());
             }
-        }
-        return file;
+        }).start();
     }
 
     private void selectImageFromGallery() {
@@ -97,127 +110,87 @@ public class ONNXDepthAnythingActivity extends AppCompatActivity {
         startActivityForResult(intent, PICK_IMAGE_REQUEST);
     }
 
-    private Bitmap loadBitmapWithCorrectOrientation(Uri uri) throws IOException {
-        InputStream inputStream = getContentResolver().openInputStream(uri);
-        Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-        inputStream.close();
-
-        InputStream exifStream = getContentResolver().openInputStream(uri);
-        ExifInterface exif = new ExifInterface(exifStream);
-        int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
-        exifStream.close();
-
-        Matrix matrix = new Matrix();
-        switch (orientation) {
-            case ExifInterface.ORIENTATION_ROTATE_90:
-                matrix.postRotate(90);
-                break;
-            case ExifInterface.ORIENTATION_ROTATE_180:
-                matrix.postRotate(180);
-                break;
-            case ExifInterface.ORIENTATION_ROTATE_270:
-                matrix.postRotate(270);
-                break;
-            default:
-                return bitmap;
-        }
-
-        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
-    }
-
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
 
         if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null) {
-            Uri imageUri = data.getData();
-            try {
-                long totalStart = System.currentTimeMillis();
-                Log.d(TAG, "1");
-                originalBitmap = loadBitmapWithCorrectOrientation(imageUri);
-                Log.d(TAG, "2");
-                originalImageView.setImageBitmap(originalBitmap);
-                Log.d(TAG, "3");
-                runDepthInference(originalBitmap);
-                Log.d(TAG, "4");
-                long totalEnd = System.currentTimeMillis();
-                float seconds = (totalEnd - totalStart) / 1000f;
-                totalTimeText.setText(String.format("Total time: %.2f seconds", seconds));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            long totalStart = System.nanoTime();
+            Uri uri = data.getData();
+            int[] box = BitmapIO.displayBox(depthImageView);
+            // Replaces (and cancels) the request for any previously picked image.
+            inferenceRunner.submit(request -> runDepthInference(request, uri, box),
+                    new InferenceRunner.Callback<DepthResult>() {
+                        @Override
+                        public void onStage(InferenceRequest.Stage stage) {
+                            inferenceTimeText.setText(stage.label);
+                        }
+
+                        @Override
+                        public void onResult(DepthResult result) {
+                            imageUri = uri;
+                            lastResult = result;
+                            originalImageView.setImageBitmap(result.original);
+                            depthImageView.setImageBitmap(result.depth);
+                            inferenceTimeText.setText(String.format("Inference time: %.2f seconds", result.inferenceMillis / 1000f));
+                            float seconds = (System.nanoTime() - totalStart) / 1e9f;
+                            totalTimeText.setText(String.format("Total time: %.2f seconds", seconds));
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            Log.e(TAG, "Depth estimation failed", e);
+                            inferenceTimeText.setText("Depth estimation failed");
+                        }
+                    });
         }
     }
 
-    private void runDepthInference(Bitmap bitmap) {
-        if (session == null) {
-            Toast.makeText(this, "Model not ready yet", Toast.LENGTH_SHORT).show();
-            return;
+    /** Runs on the inference thread. */
+    private DepthResult runDepthInference(InferenceRequest<DepthResult> request, Uri uri, int[] box) throws Exception {
+        request.enterStage(InferenceRequest.Stage.DECODING);
+        Bitmap bitmap = BitmapIO.decodeForDisplay(getContentResolver(), uri, box[0], box[1]);
+        if (modelHandle.getNow() == null) {
+            request.enterStage(InferenceRequest.Stage.WAITING_FOR_MODEL);
         }
-
-        Bitmap resized = Bitmap.createScaledBitmap(bitmap, 518, 518, true);
-        float[] input = preprocess(resized);
-
-        try {
-            long start = System.currentTimeMillis();
-            OnnxTensor inputTensor = OnnxTensor.createTensor(env, FloatBuffer.wrap(input), new long[]{1, 3, 518, 518});
-            OrtSession.Result output = session.run(Collections.singletonMap("l_x_", inputTensor));
-            long end = System.currentTimeMillis();
-
-            float[][][] rawOutput = (float[][][]) output.get(0).getValue();
-            float[][] depth = rawOutput[0];
-            Bitmap depthBitmap = toGrayscaleBitmap(depth);
-
-            Bitmap scaledDepth = Bitmap.createScaledBitmap(depthBitmap, originalBitmap.getWidth(), originalBitmap.getHeight(), true);
-            depthImageView.setImageBitmap(scaledDepth);
-
-            float seconds = (end - start) / 1000f;
-            inferenceTimeText.setText(String.format("Inference time: %.2f seconds", seconds));
-
-        } catch (Exception e) {
-            e.printStackTrace();
+        OrtSession session = modelHandle.ready().get();
+        // Labelled by the session actually in use; the autotuner may have picked another since.
+        request.recordLatencyAs(modelName, String.valueOf(OrtSessionFactory.configOf(session)));
+
+        request.enterStage(InferenceRequest.Stage.PREPROCESSING);
+        resizeKernel.run(PixelSource.of(bitmap), 0);
+
+        request.enterStage(InferenceRequest.Stage.INFERENCE);
+        OrtTensorArena arena = tensorArena(session);
+        long start = System.nanoTime();
+        try (OrtTensorArena.Outputs output = arena.run(request, "l_x_",
+                tensorPacker.getFloatBuffer(), tensorPacker.getShape())) {
+            long end = System.nanoTime();
+
+            request.enterStage(InferenceRequest.Stage.RENDERING);
+            long[] shape = output.getShape(0); // [1, H, W]
+            Bitmap depthBitmap = depthRenderer.render(output.getFloats(0), (int) shape[2], (int) shape[1]);
+            // The result must own its pixels: the renderer reuses depthBitmap for the next image, and
+            // createScaledBitmap hands back that same bitmap when the sizes already match.
+            Bitmap scaledDepth = Bitmap.createScaledBitmap(depthBitmap, bitmap.getWidth(), bitmap.getHeight(), true);
+            if (scaledDepth == depthBitmap) scaledDepth = depthBitmap.copy(depthBitmap.getConfig(), false);
+            return new DepthResult(bitmap, scaledDepth, (end - start) / 1_000_000);
         }
     }
 
-    private float[] preprocess(Bitmap bmp) {
-        int width = bmp.getWidth(), height = bmp.getHeight();
-        float[] data = new float[3 * width * height];
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int px = bmp.getPixel(x, y);
-                float r = ((px >> 16) & 0xFF) / 255.0f;
-                float g = ((px >> 8) & 0xFF) / 255.0f;
-                float b = (px & 0xFF) / 255.0f;
-                int idx = y * width + x;
-                data[idx] = r;
-                data[width * height + idx] = g;
-                data[2 * width * height + idx] = b;
-            }
+    /** Runs on the inference thread; the arena's tensors are tied to the current session. */
+    private OrtTensorArena tensorArena(OrtSession session) throws OrtException {
+        if (tensorArena == null || !tensorArena.isFor(session)) {
+            closeTensorArena();
+            tensorArena = new OrtTensorArena(env, session);
         }
-        return data;
+        return tensorArena;
     }
 
-    private Bitmap toGrayscaleBitmap(float[][] depth) {
-        int width = depth[0].length;
-        int height = depth.length;
-        Bitmap bmp = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-
-        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
-        for (float[] row : depth) for (float v : row) {
-            if (v < min) min = v;
-            if (v > max) max = v;
+    private void closeTensorArena() {
+        if (tensorArena != null) {
+            tensorArena.close();
+            tensorArena = null;
         }
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                float norm = (depth[y][x] - min) / (max - min + 1e-6f);
-                int gray = (int) (norm * 255);
-                int color = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
-                bmp.setPixel(x, y, color);
-            }
-        }
-
-        return bmp;
     }
 }
@@ -1,5 +1,401 @@
 package com.example.adaptivevisualaid;
 
-public class ONNXRealtimeActivity {
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.PowerManager;
+import android.util.Log;
+import android.util.Size;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.RequiresApi;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import ai.onnxruntime.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ONNXRealtimeActivity extends AppCompatActivity {
     private static final String TAG = "ONNXRealtimeActivity";
+    private static final int CAMERA_PERMISSION_REQUEST = 1;
+    // Inference time per frame the input resolution is adapted to hold.
+    private static final long TARGET_INFERENCE_NANOS = 150_000_000L;
+
+    private enum Mode {
+        SEGMENTATION("Mode: Segmentation", ModelTiers.Task.SEGMENTATION),
+        DEPTH("Mode: Depth", ModelTiers.Task.DEPTH),
+        /** Both models on every frame, run concurrently. */
+        SCENE("Mode: Scene (segmentation + depth)", ModelTiers.Task.SEGMENTATION, ModelTiers.Task.DEPTH);
+
+        final String label;
+        final ModelTiers.Task[] tasks;
+
+        Mode(String label, ModelTiers.Task... tasks) {
+            this.label = label;
+            this.tasks = tasks;
+        }
+
+        Mode next() {
+            return values()[(ordinal() + 1) % values().length];
+        }
+    }
+
+    /** What one frame shows: the main image, plus the depth image in scene mode. */
+    private static final class Rendered {
+        final Bitmap main;
+        final Bitmap depth;
+        final String details;
+
+        Rendered(Bitmap main, Bitmap depth, String details) {
+            this.main = main;
+            this.depth = depth;
+            this.details = details;
+        }
+    }
+
+    private OrtEnvironment env;
+    private Mode mode = Mode.SEGMENTATION;
+    // One per task of the mode; each picks its model variant to fit TARGET_INFERENCE_NANOS.
+    private final List<TieredModel> models = new ArrayList<>();
+    private RealtimePipeline<Rendered> pipeline;
+    // Used on the pipeline's inference thread; replaced or closed only while the pipeline is stopped.
+    private OrtTensorArena tensorArena;
+    private SceneAnalyzer sceneAnalyzer;
+
+    private final AdaptiveInput segformerInput =
+            new AdaptiveInput("pixel_values", ResolutionController.SEGFORMER_SIZES, TARGET_INFERENCE_NANOS);
+    private SegformerPostProcessor postProcessor;
+    // The argmax writes navigation group ids, so rendering and fusion only see a dozen ids.
+    private final ClassGroups groups = ClassGroups.navigation();
+    private final SegmentationRenderer segmentationRenderer = new SegmentationRenderer(groups.getPalette(), 0.75f);
+
+    private final AdaptiveInput depthInput =
+            new AdaptiveInput("l_x_", ResolutionController.DEPTH_ANYTHING_SIZES, TARGET_INFERENCE_NANOS);
+    private final DepthRenderer depthRenderer = new DepthRenderer(DepthRenderer.Colormap.TURBO);
+    private final SceneFusion sceneFusion = SceneFusion.threeByThree(groups.getGroupCount());
+
+    // Skips inference on frames that barely differ from the last one that ran the models.
+    private final FrameChangeGate changeGate = new FrameChangeGate(32, 24);
+    private Rendered lastRendered;
+    private byte[] lastClassMap;
+    private SceneFrame lastScene;
+    private String lastSceneDetails;
+    private SensorManager sensorManager;
+    private final SensorEventListener gyroListener = new SensorEventListener() {
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            float x = event.values[0], y = event.values[1], z = event.values[2];
+            changeGate.setMotion((float) Math.sqrt(x * x + y * y + z * z));
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+    };
+    private PowerManager powerManager;
+    private ModelTierPolicy.Thermal thermal = ModelTierPolicy.Thermal.NORMAL;
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+
+    private Button btnMode;
+    private ImageView resultImageView;
+    private ImageView depthImageView;
+    private TextView statsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_onnx_realtime);
+
+        btnMode = findViewById(R.id.btnMode);
+        resultImageView = findViewById(R.id.imageResult);
+        depthImageView = findViewById(R.id.imageDepth);
+        statsText = findViewById(R.id.txtStats);
+        sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
+        powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+
+        env = OrtEnvironment.getEnvironment();
+        acquireModels(mode);
+        pipeline = new RealtimePipeline<>(new CameraXFrameSource(this, this, new Size(640, 480)),
+                this::processFrame, ContextCompat.getMainExecutor(this), this::showResult);
+
+        btnMode.setOnClickListener(v -> switchMode(mode.next()));
+
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.CAMERA}, CAMERA_PERMISSION_REQUEST);
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        Sensor gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        if (gyroscope != null) {
+            sensorManager.registerListener(gyroListener, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            thermalListener = this::onThermalStatusChanged;
+            powerManager.addThermalStatusListener(ContextCompat.getMainExecutor(this), thermalListener);
+        }
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
+                == PackageManager.PERMISSION_GRANTED) {
+            pipeline.start();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        sensorManager.unregisterListener(gyroListener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && thermalListener != null) {
+            powerManager.removeThermalStatusListener(thermalListener);
+            thermalListener = null;
+        }
+        changeGate.setMotion(0f);
+        pipeline.stop();
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        pipeline.stop();
+        closeTensorArena();
+        closeSceneAnalyzer();
+        releaseModels();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == CAMERA_PERMISSION_REQUEST) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                pipeline.start();
+            } else {
+                Toast.makeText(this, "Camera Permission Denied", Toast.LENGTH_SHORT).show();
+                statsText.setText("Camera permission is required");
+            }
+        }
+    }
+
+    private void acquireModels(Mode mode) {
+        for (ModelTiers.Task task : mode.tasks) {
+            // SceneAnalyzer's inputs share these inputs' names and ladders, so the warm-up serves them too.
+            AdaptiveInput input = task == ModelTiers.Task.SEGMENTATION ? segformerInput : depthInput;
+            TieredModel model = new TieredModel(this, task, TARGET_INFERENCE_NANOS, session -> input.warmUp(env, session));
+            model.setThermal(thermal);
+            reportLoading(model.getActiveModel(), model.getActiveHandle());
+            models.add(model);
+        }
+    }
+
+    private void releaseModels() {
+        for (TieredModel model : models) model.close();
+        models.clear();
+    }
+
+    private void reportLoading(String modelName, ModelRegistry.Handle<OrtSession> handle) {
+        if (handle.getNow() == null) {
+            statsText.setText("Loading " + modelName + "...");
+            handle.ready().whenCompleteAsync((session, error) -> {
+                if (error != null) {
+                    Toast.makeText(this, modelName + " load failed", Toast.LENGTH_SHORT).show();
+                } else {
+                    Log.d(TAG, modelName + " loaded successfully! (" + OrtSessionFactory.describeLastLoad(modelName) + ")");
+                }
+            }, ContextCompat.getMainExecutor(this));
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void onThermalStatusChanged(int status) {
+        if (status >= PowerManager.THERMAL_STATUS_SEVERE) {
+            thermal = ModelTierPolicy.Thermal.HOT;
+        } else if (status >= PowerManager.THERMAL_STATUS_MODERATE) {
+            thermal = ModelTierPolicy.Thermal.WARM;
+        } else {
+            thermal = ModelTierPolicy.Thermal.NORMAL;
+        }
+        for (TieredModel model : models) model.setThermal(thermal);
+    }
+
+    /**
+     * The input size adapts first; the model tier hears about a frame only at the ends of the
+     * size ladder, where resizing alone cannot hold the budget or there is headroom to spare.
+     */
+    private static void recordTier(TieredModel model, AdaptiveInput input) {
+        if (input.isAtLadderEnd()) model.record(input.getLastNanos());
+    }
+
+    private void switchMode(Mode newMode) {
+        // Stop first so the inference thread is not using the session being released.
+        boolean running = pipeline.isRunning();
+        pipeline.stop();
+        closeTensorArena();
+        closeSceneAnalyzer();
+        List<TieredModel> oldModels = new ArrayList<>(models);
+        models.clear();
+        mode = newMode;
+        acquireModels(newMode); // before releasing, so a model both modes use stays loaded
+        for (TieredModel model : oldModels) model.close();
+        btnMode.setText(newMode.label);
+        depthImageView.setVisibility(newMode == Mode.SCENE ? View.VISIBLE : View.GONE);
+        pipeline.getStats().reset();
+        forgetLastResult();
+        if (running) pipeline.start();
+    }
+
+    /** Runs on the pipeline's inference thread; the model runs abort when {@code request} is cancelled. */
+    private Rendered processFrame(Frame frame, InferenceRequest<?> request) throws Exception {
+        OrtSession session = models.get(0).session();
+        if (session == null) return null; // still loading
+        OrtSession depthSession = mode == Mode.SCENE ? models.get(1).session() : null;
+        if (mode == Mode.SCENE && depthSession == null) return null;
+
+        if (lastRendered == null) changeGate.forceFull(); // nothing to reuse, e.g. the last run failed
+        // A single model has no cheaper half, so a partial change runs it in full.
+        FrameChangeGate.Decision decision = changeGate.decide(PixelSource.of(frame.bitmap), frame.captureTimeNanos,
+                mode == Mode.SCENE);
+        Rendered rendered;
+        if (decision == FrameChangeGate.Decision.REUSE) {
+            rendered = reuseLastResult(frame.bitmap);
+        } else if (mode == Mode.SCENE) {
+            rendered = analyzeScene(session, depthSession, frame, request, decision == FrameChangeGate.Decision.PARTIAL);
+            if (lastScene.segmentationNanos > 0) recordTier(models.get(0), sceneAnalyzer.segmentationInput());
+            if (lastScene.depthNanos > 0) recordTier(models.get(1), sceneAnalyzer.depthInput());
+        } else {
+            AdaptiveInput input = mode == Mode.SEGMENTATION ? segformerInput : depthInput;
+            if (tensorArena == null || !tensorArena.isFor(session)) {
+                closeTensorArena();
+                tensorArena = new OrtTensorArena(env, session);
+                input.prepare(session, tensorArena, request);
+            }
+            int size = input.getSize();
+            Bitmap result = mode == Mode.SEGMENTATION ? segment(frame.bitmap, request) : estimateDepth(frame.bitmap, request);
+            recordTier(models.get(0), input);
+            rendered = new Rendered(result, null, "input " + size + " px");
+        }
+        lastRendered = rendered;
+        StringBuilder status = new StringBuilder();
+        for (TieredModel model : models) status.append(model.describe()).append(" | ");
+        status.append(String.format("gate %s | changed %.0f%% | skipped %.0f%%", decision,
+                changeGate.getLastChange() * 100, changeGate.getSkipRatio() * 100));
+        return new Rendered(rendered.main, rendered.depth,
+                rendered.details != null ? rendered.details + "\n" + status : status.toString());
+    }
+
+    /** The last result shown over the new camera image; no model runs. */
+    private Rendered reuseLastResult(Bitmap bitmap) {
+        switch (mode) {
+            case SEGMENTATION:
+                return new Rendered(segmentationRenderer.render(bitmap, lastClassMap,
+                        postProcessor.getWidth(), postProcessor.getHeight()), null, null);
+            case SCENE:
+                Bitmap overlay = segmentationRenderer.render(bitmap, lastScene.classMap,
+                        lastScene.mapWidth, lastScene.mapHeight);
+                return new Rendered(overlay, lastRendered.depth, lastSceneDetails);
+            default:
+                return lastRendered; // the depth image does not show the camera image
+        }
+    }
+
+    /** Called while the pipeline is stopped. */
+    private void forgetLastResult() {
+        changeGate.reset();
+        lastRendered = null;
+        lastClassMap = null;
+        lastScene = null;
+        lastSceneDetails = null;
+    }
+
+    private Rendered analyzeScene(OrtSession segmentationSession, OrtSession depthSession, Frame frame,
+                                  InferenceRequest<?> request, boolean cheaperOnly) throws Exception {
+        if (sceneAnalyzer == null) sceneAnalyzer = new SceneAnalyzer(env, groups, TARGET_INFERENCE_NANOS);
+        SceneFrame scene = cheaperOnly
+                ? sceneAnalyzer.analyzeCheaper(segmentationSession, depthSession, frame, request)
+                : sceneAnalyzer.analyze(segmentationSession, depthSession, frame, request);
+        Bitmap overlay = segmentationRenderer.render(frame.bitmap, scene.classMap, scene.mapWidth, scene.mapHeight);
+        // Rendered again only if this frame re-ran the depth model.
+        Bitmap depth = scene.depthNanos > 0 || lastRendered == null || lastRendered.depth == null
+                ? depthRenderer.render(scene.depth, scene.depthWidth, scene.depthHeight)
+                : lastRendered.depth;
+        SceneFusion.Summary sectors = sceneFusion.fuse(scene.classMap, scene.mapWidth, scene.mapHeight,
+                scene.depth, scene.depthWidth, scene.depthHeight);
+        String details = String.format("seg %d ms | depth %d ms | both %d ms%n%s",
+                scene.segmentationNanos / 1_000_000, scene.depthNanos / 1_000_000, scene.totalNanos / 1_000_000,
+                describeNear(sectors));
+        lastScene = scene;
+        lastSceneDetails = details;
+        return new Rendered(overlay, depth, details);
+    }
+
+    /** The nearest band of each column, e.g. "Near: left wall 12% | center - | right person 4%". */
+    private String describeNear(SceneFusion.Summary sectors) {
+        String[] columns = {"left", "center", "right"};
+        StringBuilder text = new StringBuilder("Near:");
+        for (int column = 0; column < sectors.columns; column++) {
+            int sector = sectors.index(column, 0);
+            int classId = sectors.dominantClass[sector];
+            text.append(column == 0 ? " " : " | ").append(columns[column]).append(' ');
+            if (classId < 0) {
+                text.append('-');
+            } else {
+                text.append(groups.getLabel(classId)).append(String.format(" %.0f%%", sectors.dominantArea[sector] * 100));
+            }
+        }
+        return text.toString();
+    }
+
+    private Bitmap segment(Bitmap bitmap, InferenceRequest<?> request) throws OrtException {
+        try (OrtTensorArena.Outputs output = segformerInput.run(tensorArena, PixelSource.of(bitmap), request)) {
+            long[] shape = output.getShape(0); // [1, 150, H, W], H and W follow the input size
+            if (postProcessor == null || postProcessor.getWidth() != shape[3] || postProcessor.getHeight() != shape[2]) {
+                postProcessor = new SegformerPostProcessor((int) shape[1], (int) shape[3], (int) shape[2]);
+                postProcessor.setClassGroups(groups);
+            }
+            byte[] classMap = postProcessor.process(output.getFloats(0));
+            lastClassMap = classMap;
+            return segmentationRenderer.render(bitmap, classMap, postProcessor.getWidth(), postProcessor.getHeight());
+        }
+    }
+
+    private Bitmap estimateDepth(Bitmap bitmap, InferenceRequest<?> request) throws OrtException {
+        try (OrtTensorArena.Outputs output = depthInput.run(tensorArena, PixelSource.of(bitmap), request)) {
+            long[] shape = output.getShape(0); // [1, H, W]
+            return depthRenderer.render(output.getFloats(0), (int) shape[2], (int) shape[1]);
+        }
+    }
+
+    private void closeTensorArena() {
+        if (tensorArena != null) {
+            tensorArena.close();
+            tensorArena = null;
+        }
+    }
+
+    private void closeSceneAnalyzer() {
+        if (sceneAnalyzer != null) {
+            sceneAnalyzer.close();
+            sceneAnalyzer = null;
+        }
+    }
+
+    private void showResult(Rendered result) {
+        resultImageView.setImageBitmap(result.main);
+        if (result.depth != null) depthImageView.setImageBitmap(result.depth);
+        String stats = pipeline.getStats().toString();
+        statsText.setText(result.details != null ? stats + "\n" + result.details : stats);
+    }
 }
@@ -1,51 +1,65 @@
 package com.example.adaptivevisualaid;
 
+import android.content.ClipData;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Color;
-import android.graphics.Matrix;
-import android.media.ExifInterface;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.Spinner;
+import android.widget.Switch;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 
 import ai.onnxruntime.*;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.io.IOException;
 import java.nio.FloatBuffer;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ONNXSegformerActivity extends AppCompatActivity {
 
     private static final String TAG = "ONNXSegformerActivity";
-    private static final String MODEL_NAME = "segformer-b2-finetuned-ade-512-512.onnx";
     private static final int PICK_IMAGE_REQUEST = 1001;
+    private static final int PICK_IMAGES_REQUEST = 1002;
+    private static final Integer[] BATCH_SIZES = {1, 2, 4};
 
     private OrtEnvironment env;
-    private OrtSession session;
+    // The model pinned in the model selection screen, otherwise the heaviest one bundled.
+    private String modelName;
+    private ModelRegistry.Handle<OrtSession> modelHandle;
+    private final TensorPacker tensorPacker = new TensorPacker(512, 512, TensorPacker.Layout.NCHW);
+    private final ResizeNormalizeKernel resizeKernel = new ResizeNormalizeKernel(tensorPacker);
+    private SegformerPostProcessor postProcessor;
+    private OrtTensorArena tensorArena; // used and closed on the inference thread only
+    private BatchPacker batchPacker; // likewise
+    private final SegmentationRenderer segmentationRenderer = new SegmentationRenderer(Ade20k.palette(), 0.75f);  // 75% mask transparency
+    private static final ClassGroups ALL_CLASSES = ClassGroups.ade20k();
+    private static final ClassGroups NAVIGATION_GROUPS = ClassGroups.navigation();
 
     private ImageView originalImageView;
     private ImageView segImageView;
+    private Switch switchGroups;
+    private Spinner spinnerBatchSize;
+    private LinearLayout batchResultsLayout;
     private TextView inferenceTimeText;
     private TextView totalTimeText;
 
-    private Bitmap originalBitmap;
+    private InferenceRunner inferenceRunner;
+    private SegmentationResult lastResult;
+    private Uri imageUri;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -53,48 +67,74 @@ public class ONNXSegformerActivity extends AppCompatActivity {
         setContentView(R.layout.activity_onnx_segformer);
 
         Button btnSelectImage = findViewById(R.id.btnSelectImage);
+        Button btnSelectImages = findViewById(R.id.btnSelectImages);
+        spinnerBatchSize = findViewById(R.id.spinnerBatchSize);
+        batchResultsLayout = findViewById(R.id.batchResultsLayout);
+        switchGroups = findViewById(R.id.switchGroups);
         originalImageView = findViewById(R.id.imageOriginal);
         segImageView = findViewById(R.id.imageDepth); // reuse this ID
         inferenceTimeText = findViewById(R.id.txtInferenceTime);
         totalTimeText = findViewById(R.id.txtTotalTime);
 
         btnSelectImage.setOnClickListener(v -> selectImageFromGallery());
-
-        new Thread(() -> {
-            try {
-                File modelFile = copyAssetToFile(MODEL_NAME);
-                env = OrtEnvironment.getEnvironment();
-                OrtSession.SessionOptions sessionOptions = new OrtSession.SessionOptions();
-                if (OrtEnvironment.getAvailableProviders().contains("NNAPI")) {
-                    sessionOptions.addNnapi();
-                    Log.d(TAG, "NNAPI enabled for ONNX Runtime.");
+        btnSelectImages.setOnClickListener(v -> selectImagesFromGallery());
+        ArrayAdapter<Integer> batchSizes = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, BATCH_SIZES);
+        batchSizes.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerBatchSize.setAdapter(batchSizes);
+        // Results are shown at display size; long-press to export them at the photo's full resolution.
+        segImageView.setOnLongClickListener(v -> {
+            exportFullResolution();
+            return true;
+        });
+
+        env = OrtEnvironment.getEnvironment();
+        inferenceRunner = new InferenceRunner(ContextCompat.getMainExecutor(this));
+        modelName = ModelTiers.pick(this, ModelTiers.Task.SEGMENTATION);
+        modelHandle = ModelRegistry.getInstance(this).acquire(modelName, ModelLoaders.onnxSession(modelName));
+        if (modelHandle.getNow() == null) {
+            modelHandle.ready().whenCompleteAsync((session, error) -> {
+                if (error != null) {
+                    Toast.makeText(this, modelName + " load failed", Toast.LENGTH_SHORT).show();
                 } else {
-                    Log.d(TAG, "NNAPI not available.");
+                    // Cold vs. warm (pre-optimised) session creation time.
+                    String load = OrtSessionFactory.describeLastLoad(modelName);
+                    Log.d(TAG, modelName + " loaded successfully! (" + load + ")");
+                    Toast.makeText(this, modelName + " loaded successfully! (" + load + ")", Toast.LENGTH_SHORT).show();
                 }
-                session = env.createSession(modelFile.getAbsolutePath(), sessionOptions);
+            }, ContextCompat.getMainExecutor(this));
+        }
+    }
 
-                Log.d(TAG, MODEL_NAME + " loaded successfully!");
-                runOnUiThread(() -> Toast.makeText(this, MODEL_NAME + " loaded successfully!", Toast.LENGTH_SHORT).show());
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to load " + MODEL_NAME, e);
-                runOnUiThread(() -> Toast.makeText(this, MODEL_NAME + " load failed", Toast.LENGTH_SHORT).show());
-            }
-        }).start();
+    @Override
+    protected void onDestroy() {
+        inferenceRunner.close(() -> {
+            closeTensorArena();
+            closeBatchPacker();
+        });
+        modelHandle.close();
+        super.onDestroy();
     }
 
-    private File copyAssetToFile(String assetName) throws Exception {
-        File file = new File(getCacheDir(), assetName);
-        if (!file.exists()) {
-            try (InputStream is = getAssets().open(assetName);
-                 FileOutputStream fos = new FileOutputStream(file)) {
-                byte[] buffer = new byte[4096];
-                int length;
-                while ((length = is.read(buffer)) > 0) {
-                    fos.write(buffer, 0, length);
-                }
+    private void exportFullResolution() {
+        if (imageUri == null || lastResult == null) return;
+        Uri uri = imageUri;
+        byte[] classMap = lastResult.getClassMap();
+        int[] palette = lastResult.groups.getPalette();
+        int mapWidth = lastResult.mapWidth;
+        int mapHeight = lastResult.mapHeight;
+        Toast.makeText(this, "Exporting full resolution...", Toast.LENGTH_SHORT).show();
+        new Thread(() -> {
+            try {
+                Bitmap full = BitmapIO.decodeFullResolution(getContentResolver(), uri);
+                new SegmentationRenderer(palette, 0.75f).renderInto(full, full, classMap, mapWidth, mapHeight);
+                File file = BitmapIO.saveExport(this, full, "segformer");
+                full.recycle();
+                runOnUiThread(() -> Toast.makeText(this, "Saved " + file.getAbsolutePath(), Toast.LENGTH_LONG).show());
+            } catch (IOException e) {
+                Log.e(TAG, "Full resolution export failed", e);
+                runOnUiThread(() -> Toast.makeText(this, "Export failed", Toast.LENGTH_SHORT).show());
             }
-        }
-        return file;
+        }).start();
     }
 
     private void selectImageFromGallery() {
@@ -103,263 +143,294 @@ public class ONNXSegformerActivity extends AppCompatActivity {
         startActivityForResult(intent, PICK_IMAGE_REQUEST);
     }
 
-    private Bitmap loadBitmapWithCorrectOrientation(Uri uri) throws IOException {
-        InputStream inputStream = getContentResolver().openInputStream(uri);
-        Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-        inputStream.close();
-
-        InputStream exifStream = getContentResolver().openInputStream(uri);
-        ExifInterface exif = new ExifInterface(exifStream);
-        int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
-        exifStream.close();
-
-        Matrix matrix = new Matrix();
-        switch (orientation) {
-            case ExifInterface.ORIENTATION_ROTATE_90:
-                matrix.postRotate(90); break;
-            case ExifInterface.ORIENTATION_ROTATE_180:
-                matrix.postRotate(180); break;
-            case ExifInterface.ORIENTATION_ROTATE_270:
-                matrix.postRotate(270); break;
-            default:
-                return bitmap;
-        }
-
-        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    /** Throughput mode: several images, segmented in batches of the selected size. */
+    private void selectImagesFromGallery() {
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("image/*");
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+        startActivityForResult(Intent.createChooser(intent, "Select images"), PICK_IMAGES_REQUEST);
     }
 
-    private Bitmap blendBitmaps(Bitmap base, Bitmap mask, float alpha) {
-        Bitmap result = Bitmap.createBitmap(base.getWidth(), base.getHeight(), Bitmap.Config.ARGB_8888);
-
-        for (int y = 0; y < base.getHeight(); y++) {
-            for (int x = 0; x < base.getWidth(); x++) {
-                int basePixel = base.getPixel(x, y);
-                int maskPixel = mask.getPixel(x, y);
-
-                int r1 = (basePixel >> 16) & 0xFF;
-                int g1 = (basePixel >> 8) & 0xFF;
-                int b1 = basePixel & 0xFF;
-
-                int r2 = (maskPixel >> 16) & 0xFF;
-                int g2 = (maskPixel >> 8) & 0xFF;
-                int b2 = maskPixel & 0xFF;
-
-                int r = (int) (r1 * (1 - alpha) + r2 * alpha);
-                int g = (int) (g1 * (1 - alpha) + g2 * alpha);
-                int b = (int) (b1 * (1 - alpha) + b2 * alpha);
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
 
-                int blended = 0xFF000000 | (r << 16) | (g << 8) | b;
-                result.setPixel(x, y, blended);
+        if (requestCode == PICK_IMAGES_REQUEST && resultCode == RESULT_OK && data != null) {
+            List<Uri> uris = new ArrayList<>();
+            ClipData clip = data.getClipData();
+            if (clip != null) {
+                for (int i = 0; i < clip.getItemCount(); i++) uris.add(clip.getItemAt(i).getUri());
+            } else if (data.getData() != null) {
+                uris.add(data.getData());
             }
+            if (!uris.isEmpty()) segmentImages(uris);
+            return;
         }
 
-        return result;
+        if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null) {
+            long totalStart = System.nanoTime();
+            Uri uri = data.getData();
+            int[] box = BitmapIO.displayBox(segImageView);
+            ClassGroups groups = switchGroups.isChecked() ? NAVIGATION_GROUPS : ALL_CLASSES;
+            // Replaces (and cancels) the request for any previously picked image.
+            inferenceRunner.submit(request -> runSegmentationInference(request, uri, box, groups),
+                    new InferenceRunner.Callback<SegmentationResult>() {
+                        @Override
+                        public void onStage(InferenceRequest.Stage stage) {
+                            inferenceTimeText.setText(stage.label);
+                        }
+
+                        @Override
+                        public void onResult(SegmentationResult result) {
+                            imageUri = uri;
+                            showResult(result);
+                            float seconds = (System.nanoTime() - totalStart) / 1e9f;
+                            totalTimeText.setText(String.format("Total time: %.2f seconds", seconds));
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            Log.e(TAG, "Segmentation failed", e);
+                            inferenceTimeText.setText("Segmentation failed");
+                        }
+                    });
+        }
     }
 
-    @Override
-    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
-
-        if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null) {
-            Uri imageUri = data.getData();
-            try {
-                long totalStart = System.currentTimeMillis();
-                originalBitmap = loadBitmapWithCorrectOrientation(imageUri);
-                originalImageView.setImageBitmap(originalBitmap);
-                runSegmentationInference(originalBitmap);
-                long totalEnd = System.currentTimeMillis();
-                float seconds = (totalEnd - totalStart) / 1000f;
-                totalTimeText.setText(String.format("Total time: %.2f seconds", seconds));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    /** Runs on the inference thread. */
+    private SegmentationResult runSegmentationInference(InferenceRequest<SegmentationResult> request,
+                                                        Uri uri, int[] box, ClassGroups groups) throws Exception {
+        request.enterStage(InferenceRequest.Stage.DECODING);
+        Bitmap bitmap = BitmapIO.decodeForDisplay(getContentResolver(), uri, box[0], box[1]);
+        if (modelHandle.getNow() == null) {
+            request.enterStage(InferenceRequest.Stage.WAITING_FOR_MODEL);
+        }
+        OrtSession session = modelHandle.ready().get();
+        // Labelled by the session actually in use; the autotuner may have picked another since.
+        request.recordLatencyAs(modelName, String.valueOf(OrtSessionFactory.configOf(session)));
+
+        request.enterStage(InferenceRequest.Stage.PREPROCESSING);
+        resizeKernel.run(PixelSource.of(bitmap), 0);
+
+        request.enterStage(InferenceRequest.Stage.INFERENCE);
+        OrtTensorArena arena = tensorArena(session);
+        long start = System.nanoTime();
+        try (OrtTensorArena.Outputs output = arena.run(request, "pixel_values",
+                tensorPacker.getFloatBuffer(), tensorPacker.getShape())) {
+            long end = System.nanoTime();
+            return segment(request, bitmap, output.getFloats(0), output.getShape(0), groups, (end - start) / 1_000_000);
         }
     }
 
-    private void runSegmentationInference(Bitmap bitmap) {
-        if (session == null) {
-            Toast.makeText(this, "Model not ready yet", Toast.LENGTH_SHORT).show();
-            return;
+    /**
+     * Runs on the inference thread: the class map, overlay and legend of one image from its
+     * {@code [C, H, W]} logits, read from the buffer's position on.
+     */
+    private SegmentationResult segment(InferenceRequest<?> request, Bitmap bitmap, FloatBuffer logits, long[] shape,
+                                       ClassGroups groups, long inferenceMillis) {
+        request.enterStage(InferenceRequest.Stage.POSTPROCESSING);
+        if (postProcessor == null) { // shape is [N, 150, H, W]
+            postProcessor = new SegformerPostProcessor((int) shape[1], (int) shape[3], (int) shape[2]);
         }
+        // Grouping happens inside the argmax, so the map, histogram and legend only hold group ids.
+        postProcessor.setClassGroups(groups);
+        byte[] classMap = postProcessor.process(logits.slice());
 
-        Bitmap resized = Bitmap.createScaledBitmap(bitmap, 512, 512, true);
-        float[] input = preprocess(resized);
+        request.enterStage(InferenceRequest.Stage.RENDERING);
+        // A fresh bitmap rather than the renderer's reused ones: the result outlives this request.
+        Bitmap overlay = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), Bitmap.Config.ARGB_8888);
+        segmentationRenderer.setPalette(groups.getPalette());
+        segmentationRenderer.renderInto(bitmap, overlay, classMap, postProcessor.getWidth(), postProcessor.getHeight());
 
-        try {
-            long start = System.currentTimeMillis();
-            OnnxTensor inputTensor = OnnxTensor.createTensor(env, FloatBuffer.wrap(input), new long[]{1, 3, 512, 512});
-            OrtSession.Result output = session.run(Collections.singletonMap("pixel_values", inputTensor));
-            long end = System.currentTimeMillis();
+        // Gather used class IDs from the render histogram, largest area first
+        int[] classesByArea = segmentationRenderer.getClassesByArea(groups.getGroupCount());
 
-            float[][][][] logits = (float[][][][]) output.get(0).getValue(); // [1, 150, H, W]
-            int[][] segMap = argmax2D(logits[0]);
+        return new SegmentationResult(bitmap, overlay, classMap, postProcessor.getWidth(), postProcessor.getHeight(),
+                classesByArea, groups, inferenceMillis);
+    }
 
-            Bitmap segBitmap = decodeSegmentationMap(segMap);
-            Bitmap scaledSeg = Bitmap.createScaledBitmap(segBitmap, originalBitmap.getWidth(), originalBitmap.getHeight(), true);
-            Bitmap overlay = blendBitmaps(originalBitmap, scaledSeg, 0.75f);  // 75% mask transparency
-            segImageView.setImageBitmap(overlay);
+    private void segmentImages(List<Uri> uris) {
+        long totalStart = System.nanoTime();
+        int batchSize = (Integer) spinnerBatchSize.getSelectedItem();
+        ClassGroups groups = switchGroups.isChecked() ? NAVIGATION_GROUPS : ALL_CLASSES;
+        batchResultsLayout.removeAllViews();
+        // Replaces (and cancels) any previous request, single or batched.
+        inferenceRunner.submit(request -> runBatchInference(request, uris, groups, batchSize, totalStart),
+                new InferenceRunner.Callback<Integer>() {
+                    @Override
+                    public void onStage(InferenceRequest.Stage stage) {
+                        inferenceTimeText.setText(stage.label);
+                    }
 
-            // ⬇️ Build filtered legend
-            LinearLayout legendLayout = findViewById(R.id.legendLayout);
-            legendLayout.removeAllViews();
+                    @Override
+                    public void onResult(Integer images) {
+                        float seconds = (System.nanoTime() - totalStart) / 1e9f;
+                        totalTimeText.setText(String.format("%d images in %.2f seconds, batch %d: %.2f images/s",
+                                images, seconds, batchSize, images / seconds));
+                    }
 
-            int[][] colors = getADE20KColors();
-            String[] labels = getADE20KLabels();
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e(TAG, "Batch segmentation failed", e);
+                        inferenceTimeText.setText("Segmentation failed");
+                    }
+                });
+    }
 
-            // Step 1: Gather used class IDs
-            Set<Integer> usedClasses = new HashSet<>();
-            for (int y = 0; y < segMap.length; y++) {
-                for (int x = 0; x < segMap[0].length; x++) {
-                    usedClasses.add(segMap[y][x]);
+    /**
+     * Runs on the inference thread. Each batch is decoded and preprocessed in parallel, then run as
+     * one {@code [N, 3, H, W]} tensor if the model has a dynamic batch dimension, or image by image
+     * otherwise; every image's result is shown as soon as it is ready. Images are decoded just
+     * large enough for the model, as all results are kept for the strip of thumbnails. Latency is
+     * recorded per batch, under the provider and the batch's size, not for the request as a whole.
+     */
+    private Integer runBatchInference(InferenceRequest<Integer> request, List<Uri> uris, ClassGroups groups,
+                                      int batchSize, long totalStart) throws Exception {
+        if (modelHandle.getNow() == null) {
+            request.enterStage(InferenceRequest.Stage.WAITING_FOR_MODEL);
+        }
+        OrtSession session = modelHandle.ready().get();
+        SessionConfig config = OrtSessionFactory.configOf(session);
+        LatencyMetrics metrics = LatencyMetrics.getInstance();
+        long[] inputShape = ((TensorInfo) session.getInputInfo().get("pixel_values").getInfo()).getShape();
+        boolean dynamicBatch = inputShape[0] < 0;
+        OrtTensorArena arena = tensorArena(session);
+        BatchPacker packer = batchPacker(batchSize);
+        int[] box = BitmapIO.modelBox();
+        Bitmap[] bitmaps = new Bitmap[batchSize];
+
+        for (int first = 0; first < uris.size(); first += batchSize) {
+            int count = Math.min(batchSize, uris.size() - first);
+            int offset = first;
+            long batchStart = System.nanoTime();
+            request.enterStage(InferenceRequest.Stage.DECODING);
+            // Read after pack() returned.
+            packer.pack(count, (slot, kernel) -> bitmaps[slot] =
+                    BitmapIO.decodeForDisplay(getContentResolver(), uris.get(offset + slot), box[0], box[1]));
+            long decoded = System.nanoTime();
+            request.enterStage(InferenceRequest.Stage.PREPROCESSING);
+            packer.pack(count, (slot, kernel) -> kernel.run(PixelSource.of(bitmaps[slot]), 0));
+            long preprocessed = System.nanoTime();
+
+            long inferenceNanos = 0;
+            int step = dynamicBatch ? count : 1;
+            for (int run = 0; run < count; run += step) {
+                request.enterStage(InferenceRequest.Stage.INFERENCE);
+                FloatBuffer input = dynamicBatch ? packer.getBatch(count) : packer.getImage(run);
+                long start = System.nanoTime();
+                try (OrtTensorArena.Outputs output = arena.run(request, "pixel_values", input, packer.getShape(step))) {
+                    long runNanos = System.nanoTime() - start;
+                    inferenceNanos += runNanos;
+                    long millisPerImage = runNanos / 1_000_000 / step;
+                    FloatBuffer logits = output.getFloats(0);
+                    long[] shape = output.getShape(0);
+                    int perImage = logits.capacity() / step;
+                    for (int i = 0; i < step; i++) {
+                        logits.position(i * perImage);
+                        SegmentationResult result = segment(request, bitmaps[run + i], logits, shape, groups, millisPerImage);
+                        Uri uri = uris.get(offset + run + i);
+                        int done = offset + run + i + 1;
+                        request.post(() -> addBatchResult(uri, result, done, uris.size(), totalStart));
+                    }
                 }
             }
+            long batchEnd = System.nanoTime();
+            String provider = config + "/batch" + count;
+            metrics.histogram(modelName, provider, "decoding").record(decoded - batchStart);
+            metrics.histogram(modelName, provider, "preprocessing").record(preprocessed - decoded);
+            metrics.histogram(modelName, provider, "inference").record(inferenceNanos);
+            // Postprocessing and rendering of every image, interleaved with the runs.
+            metrics.histogram(modelName, provider, "postprocessing").record(batchEnd - preprocessed - inferenceNanos);
+            metrics.histogram(modelName, provider, "total").record(batchEnd - batchStart);
+        }
+        return uris.size();
+    }
 
-            // Step 2: Add legend entries for only used classes
-            for (int classId : usedClasses) {
-                if (classId >= labels.length || classId >= colors.length) continue;
-
-                LinearLayout itemLayout = new LinearLayout(this);
-                itemLayout.setOrientation(LinearLayout.VERTICAL);
-                itemLayout.setPadding(10, 0, 10, 0);
-                itemLayout.setGravity(Gravity.CENTER_HORIZONTAL);
-
-                View colorBox = new View(this);
-                int size = (int) (getResources().getDisplayMetrics().density * 40); // 24dp
-                LinearLayout.LayoutParams boxParams = new LinearLayout.LayoutParams(size, size);
-                colorBox.setLayoutParams(boxParams);
-                colorBox.setBackgroundColor(Color.rgb(colors[classId][0], colors[classId][1], colors[classId][2]));
-
-                TextView label = new TextView(this);
-                label.setText(labels[classId]);
-                label.setTextSize(10f);
-                label.setGravity(Gravity.CENTER);
-                label.setMaxLines(1);
-
-                itemLayout.addView(colorBox);
-                itemLayout.addView(label);
-                legendLayout.addView(itemLayout);
-            }
+    /** Shows a finished image of a batch and adds it to the strip, where tapping brings it back. */
+    private void addBatchResult(Uri uri, SegmentationResult result, int done, int total, long totalStart) {
+        imageUri = uri;
+        showResult(result);
+        float seconds = (System.nanoTime() - totalStart) / 1e9f;
+        totalTimeText.setText(String.format("%d of %d images, %.2f images/s", done, total, done / seconds));
+
+        ImageView thumbnail = new ImageView(this);
+        int size = (int) (getResources().getDisplayMetrics().density * 64);
+        thumbnail.setLayoutParams(new LinearLayout.LayoutParams(size, size));
+        thumbnail.setPadding(4, 0, 4, 0);
+        thumbnail.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        thumbnail.setImageBitmap(result.overlay);
+        thumbnail.setOnClickListener(v -> {
+            imageUri = uri;
+            showResult(result);
+        });
+        batchResultsLayout.addView(thumbnail);
+    }
 
-            float seconds = (end - start) / 1000f;
-            inferenceTimeText.setText(String.format("Inference time: %.2f seconds", seconds));
-        } catch (Exception e) {
-            e.printStackTrace();
+    /** Runs on the inference thread; the arena's tensors are tied to the current session. */
+    private OrtTensorArena tensorArena(OrtSession session) throws OrtException {
+        if (tensorArena == null || !tensorArena.isFor(session)) {
+            closeTensorArena();
+            tensorArena = new OrtTensorArena(env, session);
         }
+        return tensorArena;
     }
 
-    private float[] preprocess(Bitmap bmp) {
-        int width = bmp.getWidth(), height = bmp.getHeight();
-        float[] data = new float[3 * width * height];
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int px = bmp.getPixel(x, y);
-                float r = ((px >> 16) & 0xFF) / 255.0f;
-                float g = ((px >> 8) & 0xFF) / 255.0f;
-                float b = (px & 0xFF) / 255.0f;
-                int idx = y * width + x;
-                data[idx] = r;
-                data[width * height + idx] = g;
-                data[2 * width * height + idx] = b;
-            }
+    private void closeTensorArena() {
+        if (tensorArena != null) {
+            tensorArena.close();
+            tensorArena = null;
         }
-        return data;
     }
 
-    private int[][] argmax2D(float[][][] logits) {
-        int channels = logits.length;
-        int height = logits[0].length;
-        int width = logits[0][0].length;
-        int[][] classMap = new int[height][width];
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                float maxVal = logits[0][y][x];
-                int maxIdx = 0;
-                for (int c = 1; c < channels; c++) {
-                    if (logits[c][y][x] > maxVal) {
-                        maxVal = logits[c][y][x];
-                        maxIdx = c;
-                    }
-                }
-                classMap[y][x] = maxIdx;
-            }
+    /** Runs on the inference thread; kept while the batch size stays the same. */
+    private BatchPacker batchPacker(int batchSize) {
+        if (batchPacker == null || batchPacker.getMaxBatch() != batchSize) {
+            closeBatchPacker();
+            batchPacker = new BatchPacker(512, 512, batchSize, TensorPacker.NO_MEAN, TensorPacker.NO_STD);
         }
-
-        return classMap;
+        return batchPacker;
     }
 
-    private Bitmap decodeSegmentationMap(int[][] segMap) {
-        int height = segMap.length;
-        int width = segMap[0].length;
-        Bitmap bmp = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-
-        int[][] COLORS = getADE20KColors();
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int classId = segMap[y][x];
-                int[] color = classId < COLORS.length ? COLORS[classId] : new int[]{0, 0, 0};
-                int rgb = 0xFF000000 | (color[0] << 16) | (color[1] << 8) | color[2];
-                bmp.setPixel(x, y, rgb);
-            }
+    private void closeBatchPacker() {
+        if (batchPacker != null) {
+            batchPacker.close();
+            batchPacker = null;
         }
-
-        return bmp;
     }
 
-    private String[] getADE20KLabels() {
-        return new String[] {
-                "wall", "building", "sky", "floor", "tree", "ceiling", "road", "bed", "windowpane", "grass",
-                "cabinet", "sidewalk", "person", "earth", "door", "table", "mountain", "plant", "curtain", "chair",
-                "car", "water", "painting", "sofa", "shelf", "house", "sea", "mirror", "rug", "field",
-                "armchair", "seat", "fence", "desk", "rock", "wardrobe", "lamp", "bathtub", "railing", "cushion",
-                "base", "box", "column", "signboard", "chest of drawers", "counter", "sand", "sink", "skyscraper", "fireplace",
-                "refrigerator", "grandstand", "path", "stairs", "runway", "case", "pool table", "pillow", "screen door", "stairway",
-                "river", "bridge", "bookcase", "blind", "coffee table", "toilet", "flower", "book", "hill", "bench",
-                "countertop", "stove", "palm", "kitchen island", "computer", "swivel chair", "boat", "bar", "arcade machine", "hovel",
-                "bus", "towel", "light", "truck", "tower", "chandelier", "awning", "streetlight", "booth", "television receiver",
-                "airplane", "dirt track", "apparel", "pole", "land", "bannister", "escalator", "ottoman", "bottle", "buffet",
-                "poster", "stage", "van", "ship", "fountain", "conveyer belt", "canopy", "washer", "plaything", "swimming pool",
-                "stool", "barrel", "basket", "waterfall", "tent", "bag", "minibike", "cradle", "oven", "ball",
-                "food", "step", "tank", "trade name", "microwave", "pot", "animal", "bicycle", "lake", "dishwasher",
-                "screen", "blanket", "sculpture", "hood", "sconce", "vase", "traffic light", "tray", "ashcan", "fan",
-                "pier", "crt screen", "plate", "monitor", "bulletin board", "shower", "radiator", "glass", "clock", "flag"
-        };
-    }
+    private void showResult(SegmentationResult result) {
+        lastResult = result;
+        originalImageView.setImageBitmap(result.original);
+        segImageView.setImageBitmap(result.overlay);
+
+        // ⬇️ Build filtered legend
+        LinearLayout legendLayout = findViewById(R.id.legendLayout);
+        legendLayout.removeAllViews();
+
+        // Add legend entries for only used classes
+        for (int classId : result.getClassesByArea()) {
+            LinearLayout itemLayout = new LinearLayout(this);
+            itemLayout.setOrientation(LinearLayout.VERTICAL);
+            itemLayout.setPadding(10, 0, 10, 0);
+            itemLayout.setGravity(Gravity.CENTER_HORIZONTAL);
+
+            View colorBox = new View(this);
+            int size = (int) (getResources().getDisplayMetrics().density * 40); // 24dp
+            LinearLayout.LayoutParams boxParams = new LinearLayout.LayoutParams(size, size);
+            colorBox.setLayoutParams(boxParams);
+            colorBox.setBackgroundColor(result.groups.getColor(classId));
+
+            TextView label = new TextView(this);
+            label.setText(result.groups.getLabel(classId));
+            label.setTextSize(10f);
+            label.setGravity(Gravity.CENTER);
+            label.setMaxLines(1);
+
+            itemLayout.addView(colorBox);
+            itemLayout.addView(label);
+            legendLayout.addView(itemLayout);
+        }
 
-    private int[][] getADE20KColors() {
-        return new int[][] {
-                {120, 120, 120}, {180, 120, 120}, {6, 230, 230}, {80, 50, 50}, {4, 200, 3},
-                {120, 120, 80}, {140, 140, 140}, {204, 5, 255}, {230, 230, 230}, {4, 250, 7},
-                {224, 5, 255}, {235, 255, 7}, {150, 5, 61}, {120, 120, 70}, {8, 255, 51},
-                {255, 6, 82}, {143, 255, 140}, {204, 255, 4}, {255, 51, 7}, {204, 70, 3},
-                {0, 102, 200}, {61, 230, 250}, {255, 6, 51}, {11, 102, 255}, {255, 7, 71},
-                {255, 9, 224}, {9, 7, 230}, {220, 220, 220}, {255, 9, 92}, {112, 9, 255},
-                {8, 255, 214}, {7, 255, 224}, {255, 184, 6}, {10, 255, 71}, {255, 41, 10},
-                {7, 255, 255}, {224, 255, 8}, {102, 8, 255}, {255, 61, 6}, {255, 194, 7},
-                {255, 122, 8}, {0, 255, 20}, {255, 8, 41}, {255, 5, 153}, {6, 51, 255},
-                {235, 12, 255}, {160, 150, 20}, {0, 163, 255}, {140, 140, 140}, {250, 10, 15},
-                {20, 255, 0}, {31, 255, 0}, {255, 31, 0}, {255, 224, 0}, {153, 255, 0},
-                {0, 0, 255}, {255, 71, 0}, {0, 235, 255}, {0, 173, 255}, {31, 0, 255},
-                {11, 200, 200}, {255, 82, 0}, {0, 255, 245}, {0, 61, 255}, {0, 255, 112},
-                {0, 255, 133}, {255, 0, 0}, {255, 163, 0}, {255, 102, 0}, {194, 255, 0},
-                {0, 143, 255}, {51, 255, 0}, {0, 82, 255}, {0, 255, 41}, {0, 255, 173},
-                {10, 0, 255}, {173, 255, 0}, {0, 255, 153}, {255, 92, 0}, {255, 0, 255},
-                {255, 0, 245}, {255, 0, 102}, {255, 173, 0}, {255, 0, 20}, {255, 184, 184},
-                {0, 31, 255}, {0, 255, 61}, {0, 71, 255}, {255, 0, 204}, {0, 255, 194},
-                {0, 255, 82}, {0, 10, 255}, {0, 112, 255}, {51, 0, 255}, {0, 194, 255},
-                {0, 122, 255}, {0, 255, 163}, {255, 153, 0}, {0, 255, 10}, {255, 112, 0},
-                {143, 255, 0}, {82, 0, 255}, {163, 255, 0}, {255, 235, 0}, {8, 184, 170},
-                {133, 0, 255}, {0, 255, 92}, {184, 0, 255}, {255, 0, 31}, {0, 184, 255},
-                {0, 214, 255}, {255, 0, 112}, {92, 255, 0}, {0, 224, 255}, {112, 224, 255},
-                {70, 184, 160}, {163, 0, 255}, {153, 0, 255}, {71, 255, 0}, {255, 0, 163},
-                {255, 204, 0}, {255, 0, 143}, {0, 255, 235}, {133, 255, 0}, {255, 0, 235},
-                {245, 0, 255}, {255, 0, 122}, {255, 245, 0}, {10, 190, 212}, {214, 255, 0},
-                {0, 204, 255}, {20, 0, 255}, {255, 255, 0}, {0, 153, 255}, {0, 41, 255},
-                {0, 255, 204}, {41, 0, 255}, {41, 255, 0}, {173, 0, 255}, {0, 245, 255},
-                {71, 0, 255}, {122, 0, 255}, {0, 255, 184}, {0, 92, 255}, {184, 255, 0},
-                {0, 133, 255}, {255, 214, 0}, {25, 194, 194}, {102, 255, 0}, {92, 0, 255}
-        };
+        inferenceTimeText.setText(String.format("Inference time: %.2f seconds", result.inferenceMillis / 1000f));
     }
 }
@@ -0,0 +1,199 @@
+package com.example.adaptivevisualaid;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * Creates ORT sessions from pre-optimised models. The first load of a model runs ONNX Runtime's
+ * graph optimisations once and saves the result in ORT format under a name made of the model's
+ * SHA-256, the ORT version and the execution provider; later loads open that artifact with
+ * optimisation switched off. A changed model, ORT upgrade or different provider simply yields a
+ * different name, and the stale artifact is deleted.
+ */
+final class OrtSessionFactory {
+
+    private static final String TAG = "OrtSessionFactory";
+    private static final String PREFS_NAME = "OrtModelCache";
+    private static final String ARTIFACT_DIR = "ort_optimized";
+
+    private static final Map<String, String> loadReports = new ConcurrentHashMap<>();
+    // Sessions are not kept alive by this; the autotuner's short-lived ones simply drop out.
+    private static final Map<OrtSession, SessionConfig> sessionConfigs = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private OrtSessionFactory() {}
+
+    /** How the last session for {@code assetName} was created, e.g. "warm, 412 ms". */
+    static String describeLastLoad(String assetName) {
+        String report = loadReports.get(assetName);
+        return report != null ? report : "not loaded";
+    }
+
+    /** The configuration {@code session} was created with, or null if it did not come from here. */
+    static SessionConfig configOf(OrtSession session) {
+        return sessionConfigs.get(session);
+    }
+
+    static OrtSession create(Context context, String assetName, SessionConfig config) throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        File artifact = artifactFile(context, assetName, config.provider);
+        boolean warm = artifact.isFile();
+        OrtSession session = null;
+        try {
+            if (!warm) optimize(context, env, assetName, config.provider, artifact);
+            session = openArtifact(env, artifact, config);
+        } catch (OrtException | IOException e) {
+            // A corrupt artifact, or a provider whose graph cannot be saved: load the plain model.
+            Log.w(TAG, "Optimised " + assetName + " unusable, loading the original", e);
+            artifact.delete();
+        }
+        String mode = session == null ? "unoptimised" : warm ? "warm" : "cold";
+        if (session == null) {
+            try (OrtSession.SessionOptions options = config.newSessionOptions()) {
+                session = openSource(context, env, assetName, options);
+            }
+        }
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        String report = mode + ", " + elapsed + " ms, " + config;
+        loadReports.put(assetName, report);
+        sessionConfigs.put(session, config);
+        Log.i(TAG, "Session for " + assetName + " created: " + report);
+        return session;
+    }
+
+    private static OrtSession openArtifact(OrtEnvironment env, File artifact, SessionConfig config) throws OrtException {
+        try (OrtSession.SessionOptions options = config.newSessionOptions()) {
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.NO_OPT); // done offline
+            return env.createSession(artifact.getAbsolutePath(), options);
+        }
+    }
+
+    private static OrtSession openSource(Context context, OrtEnvironment env, String assetName,
+                                         OrtSession.SessionOptions options) throws Exception {
+        ByteBuffer model = ModelLoaders.mapAsset(context, assetName);
+        if (model != null) {
+            return env.createSession(model, options);
+        }
+        return env.createSession(ModelLoaders.copyAssetToFile(context, assetName).getAbsolutePath(), options);
+    }
+
+    /**
+     * Runs the optimisations for {@code provider} on a CPU-only session and saves the graph. Compiling
+     * providers such as NNAPI are attached only when the artifact is loaded, since ORT cannot save
+     * compiled nodes; they also get only the basic (provider-independent) fusions.
+     */
+    private static void optimize(Context context, OrtEnvironment env, String assetName,
+                                 SessionConfig.Provider provider, File artifact) throws Exception {
+        File temp = new File(artifact.getPath() + ".tmp");
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(provider == SessionConfig.Provider.CPU
+                    ? OrtSession.SessionOptions.OptLevel.ALL_OPT
+                    : OrtSession.SessionOptions.OptLevel.BASIC_OPT);
+            options.addConfigEntry("session.save_model_format", "ORT");
+            options.setOptimizedModelFilePath(temp.getAbsolutePath());
+            openSource(context, env, assetName, options).close();
+        }
+        if (temp.length() == 0 || !temp.renameTo(artifact)) {
+            temp.delete();
+            throw new IOException("Saving optimised " + assetName + " failed");
+        }
+        deleteStaleArtifacts(context, assetName, artifact);
+    }
+
+    /**
+     * Deletes artifacts of {@code assetName} built from another model hash or ORT version. Ones for
+     * other providers of the current model stay: the autotuner measures them all.
+     */
+    private static void deleteStaleArtifacts(Context context, String assetName, File current) throws IOException {
+        File dir = current.getParentFile();
+        String currentPrefix = artifactPrefix(context, assetName);
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(assetName + "-") && !name.startsWith(currentPrefix) && file.delete()) {
+                Log.d(TAG, "Deleted stale " + name);
+            }
+        }
+    }
+
+    /** Deletes the optimised models of {@code assetName} for every provider but {@code keep} (null for all). */
+    static void deleteArtifactsExcept(Context context, String assetName, SessionConfig.Provider keep) {
+        try {
+            File kept = keep != null ? artifactFile(context, assetName, keep) : null;
+            deleteArtifacts(kept != null ? kept.getParentFile() : artifactDir(context), assetName + "-", kept);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot clean up optimised " + assetName, e);
+        }
+    }
+
+    private static File artifactDir(Context context) throws IOException {
+        File dir = new File(context.getNoBackupFilesDir(), ARTIFACT_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        return dir;
+    }
+
+    /** {@code <asset>-<model hash>-ort<version>-<provider>.ort} */
+    private static File artifactFile(Context context, String assetName, SessionConfig.Provider provider) throws IOException {
+        return new File(artifactDir(context), artifactPrefix(context, assetName) + provider.name().toLowerCase(Locale.ROOT) + ".ort");
+    }
+
+    private static String artifactPrefix(Context context, String assetName) throws IOException {
+        return assetName + "-" + modelHash(context, assetName).substring(0, 16)
+                + "-ort" + OrtEnvironment.getEnvironment().getVersion() + "-";
+    }
+
+    /** Deletes the files in {@code dir} whose name starts with {@code prefix}, except {@code keep}. */
+    private static void deleteArtifacts(File dir, String prefix, File keep) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && !file.equals(keep) && file.delete()) {
+                Log.d(TAG, "Deleted " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * SHA-256 of the bundled model. Hashing a large model takes a while, so the hash is remembered
+     * until the app is updated (the only way a bundled asset can change).
+     */
+    private static String modelHash(Context context, String assetName) throws IOException {
+        long installed;
+        try {
+            installed = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            throw new IOException(e);
+        }
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String stamp = installed + ":";
+        String stored = prefs.getString("sha256_" + assetName, null);
+        if (stored != null && stored.startsWith(stamp)) {
+            return stored.substring(stamp.length());
+        }
+        ByteBuffer model = ModelLoaders.mapAsset(context, assetName);
+        byte[] digest = model != null
+                ? ModelLoaders.sha256(model)
+                : ModelLoaders.hashFile(ModelLoaders.copyAssetToFile(context, assetName));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) hex.append(String.format("%02x", b));
+        prefs.edit().putString("sha256_" + assetName, stamp + hex).apply();
+        return hex.toString();
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.adaptivevisualaid;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxJavaType;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import ai.onnxruntime.ValueInfo;
+
+/**
+ * The native tensors one ORT session needs, created once and reused for every run. Input tensors
+ * wrap the caller's direct buffers (a {@link TensorPacker}'s), so a new frame only repacks the
+ * buffer; float outputs with a fixed shape are pre-allocated and bound to the session as pinned
+ * outputs, so ORT writes into them instead of allocating a result tensor per run.
+ * Not thread-safe: use and close it on the thread that runs the session.
+ */
+final class OrtTensorArena implements AutoCloseable {
+
+    /** Tracks the arena's tensors and results in debug builds. */
+    static final NativeLeakTracker LEAKS = new NativeLeakTracker(BuildConfig.DEBUG);
+
+    private final OrtEnvironment env;
+    private final OrtSession session;
+    private final List<String> outputNames;
+    private final Map<String, OnnxTensor> inputs = new HashMap<>();
+    private final Map<String, FloatBuffer> inputBuffers = new HashMap<>();
+    private final Map<String, NativeLeakTracker.Token> inputTokens = new HashMap<>();
+    private final Map<String, OnnxTensor> pinnedOutputs = new HashMap<>();
+    private final Map<String, FloatBuffer> pinnedBuffers = new HashMap<>();
+    private final Map<String, long[]> pinnedShapes = new HashMap<>();
+    private final List<NativeLeakTracker.Token> pinnedTokens = new ArrayList<>();
+    private final Set<String> allocatedOutputs = new LinkedHashSet<>();
+    private final OrtSession.RunOptions runOptions;
+    private final NativeLeakTracker.Token token;
+
+    OrtTensorArena(OrtEnvironment env, OrtSession session) throws OrtException {
+        this.env = env;
+        this.session = session;
+        this.outputNames = new ArrayList<>(session.getOutputNames());
+        this.token = LEAKS.track(this, "arena of " + outputNames);
+        try {
+            runOptions = new OrtSession.RunOptions();
+            for (Map.Entry<String, NodeInfo> output : session.getOutputInfo().entrySet()) {
+                String name = output.getKey();
+                long[] shape = fixedFloatShape(output.getValue().getInfo());
+                if (shape == null) {
+                    allocatedOutputs.add(name); // dynamic shape: ORT allocates it per run
+                    continue;
+                }
+                FloatBuffer buffer = ByteBuffer.allocateDirect(elementCount(shape) * 4)
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+                OnnxTensor tensor = OnnxTensor.createTensor(env, buffer, shape);
+                pinnedOutputs.put(name, tensor);
+                pinnedBuffers.put(name, buffer);
+                pinnedShapes.put(name, shape);
+                pinnedTokens.add(LEAKS.track(tensor, "pinned output " + name));
+            }
+        } catch (OrtException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** The outputs of one run. Close it before the next run; pinned outputs are overwritten then. */
+    final class Outputs implements AutoCloseable {
+        private final OrtSession.Result result;
+        private final NativeLeakTracker.Token token;
+
+        private Outputs(OrtSession.Result result) {
+            this.result = result;
+            this.token = LEAKS.track(this, "result of " + outputNames);
+        }
+
+        /**
+         * Output {@code index} in session order: the pinned buffer itself (rewound), or a copy of an
+         * output ORT allocated.
+         */
+        FloatBuffer getFloats(int index) throws OrtException {
+            String name = outputNames.get(index);
+            FloatBuffer pinned = pinnedBuffers.get(name);
+            if (pinned != null) {
+                pinned.rewind();
+                return pinned;
+            }
+            return allocated(name).getFloatBuffer();
+        }
+
+        long[] getShape(int index) throws OrtException {
+            String name = outputNames.get(index);
+            long[] pinned = pinnedShapes.get(name);
+            return pinned != null ? pinned.clone() : allocated(name).getInfo().getShape();
+        }
+
+        private OnnxTensor allocated(String name) throws OrtException {
+            OnnxValue value = result.get(name).orElseThrow(() -> new OrtException("No output " + name));
+            return (OnnxTensor) value;
+        }
+
+        /** Frees the outputs ORT allocated; pinned ones belong to the arena. */
+        @Override
+        public void close() {
+            result.close();
+            token.close();
+        }
+    }
+
+    boolean isFor(OrtSession session) {
+        return this.session == session;
+    }
+
+    /**
+     * Runs the session on {@code data}, fed as input {@code inputName}. The input tensor wraps
+     * {@code data} and is only recreated when the buffer or shape changes. With a non-null
+     * {@code request} the run aborts when the request is cancelled.
+     */
+    Outputs run(InferenceRequest<?> request, String inputName, FloatBuffer data, long[] shape) throws OrtException {
+        bindInput(inputName, data, shape);
+        OrtSession.Result result = request != null
+                ? CancellableRuns.run(request, session, inputs, allocatedOutputs, pinnedOutputs, runOptions)
+                : session.run(inputs, allocatedOutputs, pinnedOutputs, runOptions);
+        return new Outputs(result);
+    }
+
+    private void bindInput(String name, FloatBuffer data, long[] shape) throws OrtException {
+        OnnxTensor current = inputs.get(name);
+        if (current != null && inputBuffers.get(name) == data && Arrays.equals(current.getInfo().getShape(), shape)) {
+            return;
+        }
+        closeInput(name);
+        data.rewind();
+        OnnxTensor tensor = OnnxTensor.createTensor(env, data, shape);
+        inputs.put(name, tensor);
+        inputBuffers.put(name, data);
+        inputTokens.put(name, LEAKS.track(tensor, "input " + name));
+    }
+
+    private void closeInput(String name) {
+        OnnxTensor tensor = inputs.remove(name);
+        if (tensor != null) {
+            tensor.close();
+            inputBuffers.remove(name);
+            inputTokens.remove(name).close();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (String name : new ArrayList<>(inputs.keySet())) closeInput(name);
+        for (OnnxTensor tensor : pinnedOutputs.values()) tensor.close();
+        for (NativeLeakTracker.Token pinned : pinnedTokens) pinned.close();
+        pinnedOutputs.clear();
+        pinnedTokens.clear();
+        if (runOptions != null) runOptions.close();
+        token.close();
+        LEAKS.checkLeaks();
+    }
+
+    /** The shape of a float tensor whose dimensions are all known, otherwise null. */
+    private static long[] fixedFloatShape(ValueInfo info) {
+        if (!(info instanceof TensorInfo)) return null;
+        TensorInfo tensorInfo = (TensorInfo) info;
+        if (tensorInfo.type != OnnxJavaType.FLOAT) return null;
+        long[] shape = tensorInfo.getShape();
+        for (long dim : shape) {
+            if (dim <= 0) return null;
+        }
+        return shape;
+    }
+
+    private static int elementCount(long[] shape) {
+        long count = 1;
+        for (long dim : shape) count *= dim;
+        return Math.toIntExact(count);
+    }
+}
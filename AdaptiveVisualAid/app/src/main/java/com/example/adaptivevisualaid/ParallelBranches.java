@@ -0,0 +1,151 @@
+package com.example.adaptivevisualaid;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs two independent computations on the same input at once, each on its own dedicated thread,
+ * and joins their results. A branch always runs on the same thread, so it can keep thread-confined
+ * state (packers, ORT tensor arenas) without locking.
+ */
+public final class ParallelBranches<I, A, B> implements AutoCloseable {
+
+    public interface Branch<I, T> {
+        /** Runs on the branch's thread. */
+        T run(I input) throws Exception;
+
+        /** Runs on the branch's thread after its last {@link #run}, when the branches are closed. */
+        default void close() {}
+    }
+
+    /** Both results of one {@link #run}, with how long each branch took. */
+    public static final class Joined<A, B> {
+        public final A first;
+        public final B second;
+        public final long firstNanos;
+        public final long secondNanos;
+
+        Joined(A first, B second, long firstNanos, long secondNanos) {
+            this.first = first;
+            this.second = second;
+            this.firstNanos = firstNanos;
+            this.secondNanos = secondNanos;
+        }
+    }
+
+    private static final class Timed<T> {
+        final T value;
+        final long nanos;
+
+        Timed(T value, long nanos) {
+            this.value = value;
+            this.nanos = nanos;
+        }
+    }
+
+    private final Branch<I, A> first;
+    private final Branch<I, B> second;
+    private final ExecutorService firstExecutor;
+    private final ExecutorService secondExecutor;
+
+    public ParallelBranches(String firstName, Branch<I, A> first, String secondName, Branch<I, B> second) {
+        this.first = first;
+        this.second = second;
+        this.firstExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, firstName));
+        this.secondExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, secondName));
+    }
+
+    /**
+     * Runs both branches on {@code input} and waits for both. If a branch fails its exception is
+     * rethrown, after the other branch has finished too. If the caller is interrupted this still
+     * waits for the branches (a model run cannot be abandoned halfway), then throws
+     * {@link InterruptedException}: when it returns, neither branch is running.
+     */
+    public Joined<A, B> run(I input) throws Exception {
+        Future<Timed<A>> firstResult = firstExecutor.submit(() -> timed(first, input));
+        Future<Timed<B>> secondResult = secondExecutor.submit(() -> timed(second, input));
+        Timed<A> a = null;
+        Timed<B> b = null;
+        boolean interrupted = false;
+        while (b == null) {
+            try {
+                if (a == null) a = getOrThrow(firstResult, secondResult);
+                b = getOrThrow(secondResult, firstResult);
+            } catch (InterruptedException e) {
+                interrupted = true; // keep waiting, then report it
+            }
+        }
+        if (interrupted) throw new InterruptedException();
+        return new Joined<>(a.value, b.value, a.nanos, b.nanos);
+    }
+
+    /** Runs only the first branch, on its thread, waiting as {@link #run} does. */
+    public A runFirst(I input) throws Exception {
+        return awaitBranch(firstExecutor.submit(() -> first.run(input)));
+    }
+
+    /** Runs only the second branch, on its thread, waiting as {@link #run} does. */
+    public B runSecond(I input) throws Exception {
+        return awaitBranch(secondExecutor.submit(() -> second.run(input)));
+    }
+
+    /** Stops both threads once idle, after calling each branch's {@link Branch#close()} on its thread. */
+    @Override
+    public void close() {
+        firstExecutor.execute(first::close);
+        secondExecutor.execute(second::close);
+        firstExecutor.shutdown();
+        secondExecutor.shutdown();
+    }
+
+    private static <I, T> Timed<T> timed(Branch<I, T> branch, I input) throws Exception {
+        long start = System.nanoTime();
+        T value = branch.run(input);
+        return new Timed<>(value, System.nanoTime() - start);
+    }
+
+    /** {@code future.get()}, but on failure waits for {@code other} before rethrowing the cause. */
+    private static <T> T getOrThrow(Future<T> future, Future<?> other) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            awaitQuietly(other);
+            Throwable cause = e.getCause();
+            // An interrupted branch must not look like an interrupted caller, which would retry.
+            if (cause instanceof Exception && !(cause instanceof InterruptedException)) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    /** Waits for a single branch even if interrupted, then reports its failure or the interrupt. */
+    private static <T> T awaitBranch(Future<T> future) throws Exception {
+        awaitQuietly(future); // restores the interrupt flag if the wait was interrupted
+        boolean interrupted = Thread.interrupted();
+        T value;
+        try {
+            value = getOrThrow(future, future);
+        } catch (Exception e) {
+            if (interrupted) Thread.currentThread().interrupt();
+            throw e;
+        }
+        if (interrupted) throw new InterruptedException();
+        return value;
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.adaptivevisualaid;
+
+/**
+ * Counters for {@link RealtimePipeline}: frames displayed per second, frames dropped because a
+ * newer one replaced them, and capture-to-display latency. FPS and latency are averaged over
+ * one-second windows so the numbers on screen are steady enough to read.
+ */
+public final class PipelineStats {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private long droppedFrames;
+    private long displayedFrames;
+
+    private long windowStartNanos = -1;
+    private int windowFrames;
+    private long windowLatencyNanos;
+
+    private float fps;
+    private float latencyMillis;
+    private float lastLatencyMillis;
+
+    public synchronized void recordDropped() {
+        droppedFrames++;
+    }
+
+    /** Records a frame captured at {@code captureNanos} that reached the screen at {@code displayNanos}. */
+    public synchronized void recordDisplayed(long captureNanos, long displayNanos) {
+        displayedFrames++;
+        long latency = displayNanos - captureNanos;
+        lastLatencyMillis = latency / 1e6f;
+        if (windowStartNanos < 0) windowStartNanos = displayNanos;
+        windowFrames++;
+        windowLatencyNanos += latency;
+
+        long elapsed = displayNanos - windowStartNanos;
+        if (elapsed >= WINDOW_NANOS) {
+            fps = windowFrames * 1e9f / elapsed;
+            latencyMillis = windowLatencyNanos / 1e6f / windowFrames;
+            windowStartNanos = displayNanos;
+            windowFrames = 0;
+            windowLatencyNanos = 0;
+        }
+    }
+
+    /** Frames displayed per second over the last complete window. */
+    public synchronized float getFps() {
+        return fps;
+    }
+
+    /** Mean capture-to-display latency over the last complete window. */
+    public synchronized float getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public synchronized float getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public synchronized long getDisplayedFrames() {
+        return displayedFrames;
+    }
+
+    public synchronized void reset() {
+        droppedFrames = 0;
+        displayedFrames = 0;
+        windowStartNanos = -1;
+        windowFrames = 0;
+        windowLatencyNanos = 0;
+        fps = 0;
+        latencyMillis = 0;
+        lastLatencyMillis = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%.1f FPS, %d dropped, latency %.0f ms", fps, droppedFrames, latencyMillis);
+    }
+}
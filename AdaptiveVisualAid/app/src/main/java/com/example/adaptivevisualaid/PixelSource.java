@@ -0,0 +1,67 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+/** Row/column access to an ARGB image, so kernels can stream pixels without copying the whole image. */
+public interface PixelSource {
+
+    int getWidth();
+
+    int getHeight();
+
+    /** Copies row {@code y} ({@code getWidth()} pixels) into {@code dst}. */
+    void readRow(int y, int[] dst);
+
+    /** Copies column {@code x} ({@code getHeight()} pixels) into {@code dst}. */
+    void readColumn(int x, int[] dst);
+
+    static PixelSource of(Bitmap bitmap) {
+        return new PixelSource() {
+            @Override
+            public int getWidth() {
+                return bitmap.getWidth();
+            }
+
+            @Override
+            public int getHeight() {
+                return bitmap.getHeight();
+            }
+
+            @Override
+            public void readRow(int y, int[] dst) {
+                bitmap.getPixels(dst, 0, bitmap.getWidth(), 0, y, bitmap.getWidth(), 1);
+            }
+
+            @Override
+            public void readColumn(int x, int[] dst) {
+                bitmap.getPixels(dst, 0, 1, x, 0, 1, bitmap.getHeight());
+            }
+        };
+    }
+
+    static PixelSource of(int[] argb, int width, int height) {
+        return new PixelSource() {
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public void readRow(int y, int[] dst) {
+                System.arraycopy(argb, y * width, dst, 0, width);
+            }
+
+            @Override
+            public void readColumn(int x, int[] dst) {
+                for (int y = 0, i = x; y < height; y++, i += width) {
+                    dst[y] = argb[i];
+                }
+            }
+        };
+    }
+}
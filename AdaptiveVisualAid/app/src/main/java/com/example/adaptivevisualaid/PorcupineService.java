@@ -40,10 +40,12 @@ import ai.picovoice.porcupine.PorcupineManagerCallback;
 public class PorcupineService extends Service {
     private static final String CHANNEL_ID = "PorcupineServiceChannel";
     private static final String ACCESS_KEY = "XXX";
+    private static final int TRACE_WAKE_WORD = Tracing.section("wake word detected");
 
     private PorcupineManager porcupineManager;
     private int numUtterances;
     private final PorcupineManagerCallback porcupineManagerCallback = (keywordIndex) -> {
+        Tracing.instant(TRACE_WAKE_WORD);
         numUtterances++;
 
         final String contentText = numUtterances == 1 ? " time!" : " times!";
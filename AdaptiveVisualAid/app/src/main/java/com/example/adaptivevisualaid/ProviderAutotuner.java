@@ -0,0 +1,150 @@
+package com.example.adaptivevisualaid;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * Picks the execution provider and intra-op thread count per model and device. Every candidate
+ * configuration is loaded, warmed up and timed on a dummy input; the fastest by median latency is
+ * persisted and used by {@link ModelLoaders#onnxSession(String)} from then on. Results are tied to
+ * the device build and ORT version, since a driver or runtime update can change the winner.
+ */
+public final class ProviderAutotuner {
+
+    private static final String TAG = "ProviderAutotuner";
+    private static final String PREFS_NAME = "ProviderAutotune";
+    private static final int WARMUP_RUNS = 2;
+    private static final int TIMED_RUNS = 7;
+    private static final int[] THREAD_COUNTS = {1, 2, 4};
+
+    /** An ONNX model to tune, with the input it is fed. */
+    public static final class Target {
+        public final String assetName;
+        final String inputName;
+        final long[] inputShape;
+
+        Target(String assetName, String inputName, long[] inputShape) {
+            this.assetName = assetName;
+            this.inputName = inputName;
+            this.inputShape = inputShape;
+        }
+    }
+
+    public static final List<Target> BUNDLED_MODELS = Collections.unmodifiableList(Arrays.asList(
+            new Target("segformer-b2-finetuned-ade-512-512.onnx", "pixel_values", new long[]{1, 3, 512, 512}),
+            new Target("depth_anything_v2_vits.onnx", "l_x_", new long[]{1, 3, 518, 518})));
+
+    public interface Progress {
+        /** Called on the tuning thread before each configuration is measured. */
+        void onMeasuring(Target target, SessionConfig config);
+    }
+
+    private ProviderAutotuner() {}
+
+    /** The persisted winner for {@code assetName}, or {@link SessionConfig#defaultConfig()}. */
+    public static SessionConfig bestConfig(Context context, String assetName) {
+        String best = prefs(context).getString(recordKey("best_", assetName), null);
+        if (best != null) {
+            try {
+                SessionConfig config = SessionConfig.parse(best);
+                if (config.provider.isAvailable()) return config;
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Ignoring unreadable tuning result " + best, e);
+            }
+        }
+        return SessionConfig.defaultConfig();
+    }
+
+    /** The last measured table for {@code assetName} on this device, or null. */
+    public static TuningTable loadTable(Context context, String assetName) {
+        String table = prefs(context).getString(recordKey("table_", assetName), null);
+        return table != null ? TuningTable.parse(table) : null;
+    }
+
+    /** Candidate configurations available on this device. */
+    static List<SessionConfig> candidates() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<SessionConfig> configs = new ArrayList<>();
+        for (SessionConfig.Provider provider : SessionConfig.Provider.values()) {
+            if (!provider.isAvailable()) continue;
+            if (provider == SessionConfig.Provider.NNAPI || provider == SessionConfig.Provider.NNAPI_FP16) {
+                // Threads only matter for the nodes NNAPI leaves on the CPU; one count is enough.
+                configs.add(new SessionConfig(provider, Math.min(4, cores)));
+                continue;
+            }
+            for (int threads : THREAD_COUNTS) {
+                if (threads <= cores) configs.add(new SessionConfig(provider, threads));
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Measures every candidate for {@code target} and persists the table and the winner. Slow (each
+     * configuration loads the model), so call it off the main thread. Cached sessions nobody holds
+     * are evicted first so two copies of a model are not resident at once.
+     */
+    public static TuningTable tune(Context context, Target target, Progress progress) {
+        ModelRegistry.getInstance(context).evictIdle();
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        TuningTable table = new TuningTable();
+
+        int elements = 1;
+        for (long dim : target.inputShape) elements *= (int) dim;
+        FloatBuffer input = ByteBuffer.allocateDirect(elements * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+        for (SessionConfig config : candidates()) {
+            if (progress != null) progress.onMeasuring(target, config);
+            try (OrtSession session = OrtSessionFactory.create(context, target.assetName, config);
+                 OnnxTensor tensor = OnnxTensor.createTensor(env, input, target.inputShape)) {
+                double[] latencies = new double[TIMED_RUNS];
+                for (int i = 0; i < WARMUP_RUNS + TIMED_RUNS; i++) {
+                    long start = System.nanoTime();
+                    session.run(Collections.singletonMap(target.inputName, tensor)).close();
+                    if (i >= WARMUP_RUNS) latencies[i - WARMUP_RUNS] = (System.nanoTime() - start) / 1e6;
+                }
+                table.add(config.toString(), latencies);
+            } catch (Exception e) {
+                Log.w(TAG, target.assetName + " failed with " + config, e);
+                table.addFailure(config.toString(), String.valueOf(e.getMessage()));
+            }
+        }
+
+        TuningTable.Row best = table.best();
+        SharedPreferences.Editor editor = prefs(context).edit()
+                .putString(recordKey("table_", target.assetName), table.serialize());
+        if (best != null) {
+            editor.putString(recordKey("best_", target.assetName), best.config);
+            Log.i(TAG, target.assetName + ": best " + best.config + ", median " + best.medianMillis + " ms");
+        }
+        editor.apply();
+        // Keep only the winner's optimised model; the next acquire loads it.
+        OrtSessionFactory.deleteArtifactsExcept(context, target.assetName,
+                best != null ? SessionConfig.parse(best.config).provider : null);
+        ModelRegistry.getInstance(context).evictIdle();
+        return table;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Results are only valid for this OS build and ORT version. */
+    private static String recordKey(String prefix, String assetName) {
+        return prefix + assetName + "@" + Build.FINGERPRINT + "@" + OrtEnvironment.getEnvironment().getVersion();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.adaptivevisualaid;
+
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Capture -> inference -> display for live frames. The source hands frames to a
+ * {@link LatestFrameSlot}, so when inference falls behind stale frames are dropped rather than
+ * queued. A dedicated thread runs the {@link Processor} on the newest frame and posts the result to
+ * the display executor (the main thread in the app).
+ *
+ * <p>Processing of frame N+1 only starts once result N is on screen. Processors may therefore
+ * draw into double-buffered bitmaps (see {@link SegmentationRenderer}) without ever touching the
+ * one being displayed.
+ *
+ * <p>Each frame is processed under its own {@link InferenceRequest}, which {@link #stop} cancels,
+ * so model runs given that request terminate in native code instead of making stop wait for them.
+ */
+public final class RealtimePipeline<R> {
+
+    private static final String TAG = "RealtimePipeline";
+    private static final int TRACE_FRAME = Tracing.section("realtime frame");
+    private static final int TRACE_DISPLAY = Tracing.section("realtime display");
+
+    public interface Processor<R> {
+        /**
+         * Runs on the inference thread. Returning null skips the frame. Pass {@code request} to
+         * the model runs, so they abort when the pipeline stops.
+         */
+        R process(Frame frame, InferenceRequest<?> request) throws Exception;
+    }
+
+    public interface Display<R> {
+        /** Runs on the display executor. */
+        void show(R result);
+    }
+
+    private final FrameSource source;
+    private final Processor<R> processor;
+    private final Executor displayExecutor;
+    private final Display<R> display;
+    private final PipelineStats stats = new PipelineStats();
+    private final Semaphore displayPermit = new Semaphore(1);
+    // Not the pipeline's lock: stop() holds that while it waits for the inference thread.
+    private final Object requestLock = new Object();
+    private InferenceRequest<?> currentRequest;
+    private boolean stopping;
+
+    private LatestFrameSlot<Frame> slot;
+    private Thread inferenceThread;
+
+    public RealtimePipeline(FrameSource source, Processor<R> processor, Executor displayExecutor, Display<R> display) {
+        this.source = source;
+        this.processor = processor;
+        this.displayExecutor = displayExecutor;
+        this.display = display;
+    }
+
+    public PipelineStats getStats() {
+        return stats;
+    }
+
+    public synchronized boolean isRunning() {
+        return inferenceThread != null;
+    }
+
+    public synchronized void start() {
+        if (inferenceThread != null) return;
+        LatestFrameSlot<Frame> slot = new LatestFrameSlot<>();
+        this.slot = slot;
+        synchronized (requestLock) {
+            stopping = false;
+        }
+        inferenceThread = new Thread(() -> runLoop(slot), "RealtimeInference");
+        inferenceThread.start();
+        source.start(frame -> {
+            Frame displaced = slot.offer(frame);
+            if (displaced == null) return;
+            if (displaced != frame) stats.recordDropped(); // otherwise the slot was already closed
+            source.release(displaced);
+        });
+    }
+
+    /**
+     * Stops the source, cancels the request of the frame being processed, if any, and waits for
+     * that frame to wind up.
+     */
+    public synchronized void stop() {
+        if (inferenceThread == null) return;
+        source.stop();
+        Frame pending = slot.close();
+        if (pending != null) source.release(pending);
+        synchronized (requestLock) {
+            stopping = true;
+            if (currentRequest != null) currentRequest.cancel();
+        }
+        inferenceThread.interrupt();
+        try {
+            inferenceThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        inferenceThread = null;
+        slot = null;
+    }
+
+    private void runLoop(LatestFrameSlot<Frame> slot) {
+        try {
+            Frame frame;
+            while ((frame = slot.take()) != null) {
+                displayPermit.acquire();
+                long captureNanos = frame.captureTimeNanos;
+                R result = null;
+                InferenceRequest<R> request = new InferenceRequest<>(Runnable::run, ignored -> {});
+                synchronized (requestLock) {
+                    if (stopping) request.cancel();
+                    currentRequest = request;
+                }
+                Tracing.begin(TRACE_FRAME);
+                try {
+                    result = processor.process(frame, request);
+                } catch (Exception e) {
+                    // Runs terminated by stop() fail too; that is not an error.
+                    if (!request.isCancelled()) Log.e(TAG, "Frame processing failed", e);
+                } finally {
+                    synchronized (requestLock) {
+                        currentRequest = null;
+                    }
+                    source.release(frame);
+                    Tracing.end(TRACE_FRAME);
+                }
+                if (result == null) {
+                    displayPermit.release();
+                    continue;
+                }
+                R shown = result;
+                displayExecutor.execute(() -> {
+                    Tracing.begin(TRACE_DISPLAY);
+                    try {
+                        display.show(shown);
+                        stats.recordDisplayed(captureNanos, System.nanoTime());
+                    } finally {
+                        Tracing.end(TRACE_DISPLAY);
+                        displayPermit.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            // stop() was called while waiting for the display
+        }
+    }
+}
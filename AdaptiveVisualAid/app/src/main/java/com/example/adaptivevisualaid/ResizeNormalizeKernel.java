@@ -0,0 +1,277 @@
+package com.example.adaptivevisualaid;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Resamples a source image straight into a {@link TensorPacker}'s input tensor, replacing the
+ * createScaledBitmap + preprocess round trip. The source is streamed line by line, optionally
+ * rotated by its EXIF orientation and center-cropped or letterboxed on the way; only the two
+ * source lines being interpolated are held in memory. Scratch buffers grow to the largest
+ * source seen and are reused afterwards.
+ */
+public class ResizeNormalizeKernel {
+
+    public enum Filter {
+        BILINEAR,
+        /** Box average over the covered source area; falls back to bilinear when enlarging. */
+        AREA
+    }
+
+    public enum Fit { STRETCH, CENTER_CROP, LETTERBOX }
+
+    private final TensorPacker packer;
+    private final int dstWidth;
+    private final int dstHeight;
+
+    private Filter filter = Filter.BILINEAR;
+    private Fit fit = Fit.STRETCH;
+    private int padColor = 0xFF000000;
+
+    // Bilinear sampling table, one entry per output column.
+    private final int[] xIndex0;
+    private final int[] xIndex1;
+    private final float[] xFrac;
+    // One output row of interleaved RGB values in [0, 255].
+    private final float[] rowRgb;
+
+    // Source lines in display orientation, grown on demand.
+    private int[] lineA = new int[0];
+    private int[] lineB = new int[0];
+    private int lineAIndex;
+    private int lineBIndex;
+    private float[] areaAccum = new float[0];
+
+    // Geometry of the current run, in display-oriented source coordinates.
+    private PixelSource source;
+    private int rotation;
+    private int orientedWidth;
+    private int orientedHeight;
+    private float cropX, cropY, cropW, cropH;
+    private int destX, destY, destW, destH;
+
+    public ResizeNormalizeKernel(TensorPacker packer) {
+        this.packer = packer;
+        this.dstWidth = packer.getWidth();
+        this.dstHeight = packer.getHeight();
+        xIndex0 = new int[dstWidth];
+        xIndex1 = new int[dstWidth];
+        xFrac = new float[dstWidth];
+        rowRgb = new float[3 * dstWidth];
+    }
+
+    public TensorPacker getPacker() {
+        return packer;
+    }
+
+    public void setFilter(Filter filter) {
+        this.filter = filter;
+    }
+
+    public void setFit(Fit fit) {
+        this.fit = fit;
+    }
+
+    /** Color used for the letterbox bars. */
+    public void setPadColor(int argb) {
+        this.padColor = argb;
+    }
+
+    /**
+     * Fills the packer's tensor from {@code src}, first rotating it clockwise by
+     * {@code rotationDegrees} (0, 90, 180 or 270, as read from EXIF).
+     */
+    public FloatBuffer run(PixelSource src, int rotationDegrees) {
+        int rot = ((rotationDegrees % 360) + 360) % 360;
+        if (rot % 90 != 0) {
+            throw new IllegalArgumentException("Unsupported rotation " + rotationDegrees);
+        }
+        source = src;
+        rotation = rot;
+        boolean transposed = rot == 90 || rot == 270;
+        orientedWidth = transposed ? src.getHeight() : src.getWidth();
+        orientedHeight = transposed ? src.getWidth() : src.getHeight();
+        layout();
+
+        if (lineA.length < orientedWidth) {
+            lineA = new int[orientedWidth];
+            lineB = new int[orientedWidth];
+            areaAccum = new float[3 * orientedWidth];
+        }
+        lineAIndex = -1;
+        lineBIndex = -1;
+
+        boolean area = filter == Filter.AREA && cropW >= destW && cropH >= destH;
+        if (!area) buildBilinearTable();
+
+        for (int y = 0; y < dstHeight; y++) {
+            if (y < destY || y >= destY + destH) {
+                fillPad(0, dstWidth);
+            } else {
+                fillPad(0, destX);
+                fillPad(destX + destW, dstWidth);
+                if (area) {
+                    areaRow(y);
+                } else {
+                    bilinearRow(y);
+                }
+            }
+            packer.packRow(y, rowRgb);
+        }
+        source = null;
+        return packer.rewind();
+    }
+
+    private void layout() {
+        cropX = 0;
+        cropY = 0;
+        cropW = orientedWidth;
+        cropH = orientedHeight;
+        destX = 0;
+        destY = 0;
+        destW = dstWidth;
+        destH = dstHeight;
+        float sx = (float) dstWidth / orientedWidth;
+        float sy = (float) dstHeight / orientedHeight;
+        if (fit == Fit.CENTER_CROP) {
+            float scale = Math.max(sx, sy);
+            cropW = dstWidth / scale;
+            cropH = dstHeight / scale;
+            cropX = (orientedWidth - cropW) / 2f;
+            cropY = (orientedHeight - cropH) / 2f;
+        } else if (fit == Fit.LETTERBOX) {
+            float scale = Math.min(sx, sy);
+            destW = Math.max(1, Math.min(dstWidth, Math.round(orientedWidth * scale)));
+            destH = Math.max(1, Math.min(dstHeight, Math.round(orientedHeight * scale)));
+            destX = (dstWidth - destW) / 2;
+            destY = (dstHeight - destH) / 2;
+        }
+    }
+
+    private void fillPad(int from, int to) {
+        float r = (padColor >> 16) & 0xFF, g = (padColor >> 8) & 0xFF, b = padColor & 0xFF;
+        for (int x = from, i = 3 * from; x < to; x++, i += 3) {
+            rowRgb[i] = r;
+            rowRgb[i + 1] = g;
+            rowRgb[i + 2] = b;
+        }
+    }
+
+    private void buildBilinearTable() {
+        float step = cropW / destW;
+        for (int x = destX; x < destX + destW; x++) {
+            float u = cropX + (x - destX + 0.5f) * step - 0.5f;
+            if (u < 0) u = 0;
+            if (u > orientedWidth - 1) u = orientedWidth - 1;
+            int u0 = (int) u;
+            xIndex0[x] = u0;
+            xIndex1[x] = Math.min(u0 + 1, orientedWidth - 1);
+            xFrac[x] = u - u0;
+        }
+    }
+
+    private void bilinearRow(int y) {
+        float v = cropY + (y - destY + 0.5f) * cropH / destH - 0.5f;
+        if (v < 0) v = 0;
+        if (v > orientedHeight - 1) v = orientedHeight - 1;
+        int v0 = (int) v;
+        int v1 = Math.min(v0 + 1, orientedHeight - 1);
+        float fy = v - v0;
+        int[] top = line(v0, -1);
+        int[] bottom = line(v1, v0);
+
+        for (int x = destX, i = 3 * destX; x < destX + destW; x++, i += 3) {
+            int p00 = top[xIndex0[x]], p01 = top[xIndex1[x]];
+            int p10 = bottom[xIndex0[x]], p11 = bottom[xIndex1[x]];
+            float fx = xFrac[x];
+            for (int c = 0, shift = 16; c < 3; c++, shift -= 8) {
+                float a = (p00 >> shift) & 0xFF, b = (p01 >> shift) & 0xFF;
+                float d = (p10 >> shift) & 0xFF, e = (p11 >> shift) & 0xFF;
+                float t = a + (b - a) * fx;
+                float s = d + (e - d) * fx;
+                rowRgb[i + c] = t + (s - t) * fy;
+            }
+        }
+    }
+
+    private void areaRow(int y) {
+        float stepY = cropH / destH;
+        float v0 = cropY + (y - destY) * stepY;
+        float v1 = v0 + stepY;
+        int uFrom = (int) cropX;
+        int uTo = Math.min(orientedWidth, (int) Math.ceil(cropX + cropW));
+        for (int i = 3 * uFrom; i < 3 * uTo; i++) areaAccum[i] = 0f;
+
+        int vTo = Math.min(orientedHeight, (int) Math.ceil(v1));
+        for (int v = (int) v0; v < vTo; v++) {
+            float w = Math.min(v + 1, v1) - Math.max(v, v0);
+            if (w <= 0f) continue;
+            int[] src = line(v, -1);
+            for (int u = uFrom, i = 3 * uFrom; u < uTo; u++, i += 3) {
+                int px = src[u];
+                areaAccum[i] += w * ((px >> 16) & 0xFF);
+                areaAccum[i + 1] += w * ((px >> 8) & 0xFF);
+                areaAccum[i + 2] += w * (px & 0xFF);
+            }
+        }
+
+        float stepX = cropW / destW;
+        float norm = 1f / (stepX * stepY);
+        for (int x = destX, i = 3 * destX; x < destX + destW; x++, i += 3) {
+            float u0 = cropX + (x - destX) * stepX;
+            float u1 = u0 + stepX;
+            int uEnd = Math.min(uTo, (int) Math.ceil(u1));
+            float r = 0f, g = 0f, b = 0f;
+            for (int u = (int) u0; u < uEnd; u++) {
+                float w = Math.min(u + 1, u1) - Math.max(u, u0);
+                if (w <= 0f) continue;
+                r += w * areaAccum[3 * u];
+                g += w * areaAccum[3 * u + 1];
+                b += w * areaAccum[3 * u + 2];
+            }
+            rowRgb[i] = r * norm;
+            rowRgb[i + 1] = g * norm;
+            rowRgb[i + 2] = b * norm;
+        }
+    }
+
+    /** Returns oriented line {@code v}, loading it into the cache slot not holding {@code keep}. */
+    private int[] line(int v, int keep) {
+        if (lineAIndex == v) return lineA;
+        if (lineBIndex == v) return lineB;
+        if (lineAIndex == keep) {
+            readOrientedLine(v, lineB);
+            lineBIndex = v;
+            return lineB;
+        }
+        readOrientedLine(v, lineA);
+        lineAIndex = v;
+        return lineA;
+    }
+
+    private void readOrientedLine(int v, int[] dst) {
+        switch (rotation) {
+            case 90:
+                source.readColumn(v, dst);
+                reverse(dst, orientedWidth);
+                break;
+            case 180:
+                source.readRow(orientedHeight - 1 - v, dst);
+                reverse(dst, orientedWidth);
+                break;
+            case 270:
+                source.readColumn(orientedHeight - 1 - v, dst);
+                break;
+            default:
+                source.readRow(v, dst);
+                break;
+        }
+    }
+
+    private static void reverse(int[] a, int n) {
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+}
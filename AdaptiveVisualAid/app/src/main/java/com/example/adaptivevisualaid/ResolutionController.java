@@ -0,0 +1,124 @@
+package com.example.adaptivevisualaid;
+
+/**
+ * Picks a model input size from a ladder of supported sizes so that inference holds a target frame
+ * time. Latency is smoothed over frames; the controller steps down a rung when the smoothed
+ * latency runs over the target, and steps up only when the next rung, scaled by its pixel count,
+ * is predicted to fit well under it. The gap between the two thresholds and a settling period
+ * after every switch keep it from oscillating between two sizes.
+ * Not thread-safe.
+ */
+public class ResolutionController {
+
+    /** Segformer input sizes; it has no fixed input size, so any multiple of 32 works. */
+    public static final int[] SEGFORMER_SIZES = {256, 384, 512};
+    /** Depth-Anything input sizes; its ViT patches are 14 pixels, so sides are multiples of 14. */
+    public static final int[] DEPTH_ANYTHING_SIZES = {266, 364, 518};
+
+    private final int[] sizes;
+    private final long targetNanos;
+    private float smoothing = 0.25f;
+    private float downThreshold = 1.10f;
+    private float upThreshold = 0.80f;
+    private int settleFrames = 8;
+
+    private int index;
+    private double averageNanos;
+    private int framesAtSize;
+    private int switches;
+
+    /**
+     * @param sizes       supported input sides, ascending
+     * @param targetNanos inference time per frame to hold
+     */
+    public ResolutionController(int[] sizes, long targetNanos) {
+        if (sizes.length == 0) throw new IllegalArgumentException("Need at least one size");
+        for (int i = 1; i < sizes.length; i++) {
+            if (sizes[i] <= sizes[i - 1]) throw new IllegalArgumentException("Sizes must ascend");
+        }
+        this.sizes = sizes.clone();
+        this.targetNanos = targetNanos;
+        this.index = sizes.length - 1; // start at full quality
+    }
+
+    /**
+     * Step down when the smoothed latency exceeds {@code down} x target; step up when the next
+     * size's predicted latency is below {@code up} x target. {@code up} must be below {@code down}.
+     */
+    public void setThresholds(float down, float up) {
+        if (up >= down) throw new IllegalArgumentException("The up threshold must be below the down threshold");
+        this.downThreshold = down;
+        this.upThreshold = up;
+    }
+
+    /** Frames measured at a new size before it may be left again. */
+    public void setSettleFrames(int settleFrames) {
+        this.settleFrames = settleFrames;
+    }
+
+    /** Weight of the newest frame in the smoothed latency, 0 to 1. */
+    public void setSmoothing(float smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public int getSize() {
+        return sizes[index];
+    }
+
+    /** Position of {@link #getSize()} on the ladder, 0 for the smallest size. */
+    public int getIndex() {
+        return index;
+    }
+
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    public long getTargetNanos() {
+        return targetNanos;
+    }
+
+    /** Smoothed latency at the current size, or 0 before the first frame at it. */
+    public long getAverageNanos() {
+        return (long) averageNanos;
+    }
+
+    /** Size changes since construction or {@link #reset}. */
+    public int getSwitches() {
+        return switches;
+    }
+
+    /** Records one frame's inference time at {@link #getSize()}; returns true if the size changed. */
+    public boolean record(long nanos) {
+        averageNanos = framesAtSize == 0 ? nanos : averageNanos + smoothing * (nanos - averageNanos);
+        framesAtSize++;
+        if (framesAtSize < settleFrames) return false;
+        if (averageNanos > targetNanos * (double) downThreshold && index > 0) {
+            moveTo(index - 1);
+            return true;
+        }
+        if (index < sizes.length - 1) {
+            double scale = (double) sizes[index + 1] * sizes[index + 1] / ((double) sizes[index] * sizes[index]);
+            if (averageNanos * scale < targetNanos * (double) upThreshold) {
+                moveTo(index + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Back to the largest size, forgetting all measurements. */
+    public void reset() {
+        index = sizes.length - 1;
+        averageNanos = 0;
+        framesAtSize = 0;
+        switches = 0;
+    }
+
+    private void moveTo(int newIndex) {
+        index = newIndex;
+        averageNanos = 0;
+        framesAtSize = 0;
+        switches++;
+    }
+}
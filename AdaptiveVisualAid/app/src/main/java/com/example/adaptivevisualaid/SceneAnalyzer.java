@@ -0,0 +1,190 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+import java.nio.FloatBuffer;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * Segments a frame and estimates its depth at the same time. The frame's pixels are read once into
+ * a shared buffer that both models' preprocessing reads from; Segformer and Depth-Anything then run
+ * concurrently on their own threads, each with its own tensor arena, and the two results are joined
+ * into one {@link SceneFrame}. Each model keeps the execution provider the autotuner picked for it,
+ * so the two can run on different providers. Both runs abort when the frame's request is
+ * cancelled. Use it from one thread.
+ */
+final class SceneAnalyzer implements AutoCloseable {
+
+    private static final class Segmentation implements ParallelBranches.Branch<PixelSource, byte[]> {
+        private final OrtEnvironment env;
+        private final ClassGroups groups;
+        private final AdaptiveInput input;
+        private OrtSession session;
+        private InferenceRequest<?> request;
+        private OrtTensorArena arena;
+        private SegformerPostProcessor postProcessor;
+
+        Segmentation(OrtEnvironment env, ClassGroups groups, long targetNanos) {
+            this.env = env;
+            this.groups = groups;
+            this.input = new AdaptiveInput("pixel_values", ResolutionController.SEGFORMER_SIZES, targetNanos);
+        }
+
+        @Override
+        public byte[] run(PixelSource source) throws OrtException {
+            if (arena == null || !arena.isFor(session)) {
+                close();
+                arena = new OrtTensorArena(env, session);
+                input.prepare(session, arena, request);
+            }
+            try (OrtTensorArena.Outputs output = input.run(arena, source, request)) {
+                long[] shape = output.getShape(0); // [1, 150, H, W], H and W follow the input size
+                if (postProcessor == null || postProcessor.getWidth() != shape[3] || postProcessor.getHeight() != shape[2]) {
+                    postProcessor = new SegformerPostProcessor((int) shape[1], (int) shape[3], (int) shape[2]);
+                    postProcessor.setClassGroups(groups);
+                }
+                return postProcessor.process(output.getFloats(0));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (arena != null) {
+                arena.close();
+                arena = null;
+            }
+        }
+    }
+
+    private static final class Depth implements ParallelBranches.Branch<PixelSource, FloatBuffer> {
+        private final OrtEnvironment env;
+        private final AdaptiveInput input;
+        private OrtSession session;
+        private InferenceRequest<?> request;
+        private OrtTensorArena arena;
+        private long[] shape;
+
+        Depth(OrtEnvironment env, long targetNanos) {
+            this.env = env;
+            this.input = new AdaptiveInput("l_x_", ResolutionController.DEPTH_ANYTHING_SIZES, targetNanos);
+        }
+
+        @Override
+        public FloatBuffer run(PixelSource source) throws OrtException {
+            if (arena == null || !arena.isFor(session)) {
+                close();
+                arena = new OrtTensorArena(env, session);
+                input.prepare(session, arena, request);
+            }
+            // A pinned output stays valid after the result is closed; an unpinned one is a copy.
+            try (OrtTensorArena.Outputs output = input.run(arena, source, request)) {
+                shape = output.getShape(0); // [1, H, W]
+                return output.getFloats(0);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (arena != null) {
+                arena.close();
+                arena = null;
+            }
+        }
+    }
+
+    private final Segmentation segmentation;
+    private final Depth depth;
+    private final ParallelBranches<PixelSource, byte[], FloatBuffer> branches;
+    private int[] pixels = new int[0];
+    // Latest output of each model, and how long it took to produce.
+    private byte[] lastClassMap;
+    private FloatBuffer lastDepth;
+    private long segmentationNanos;
+    private long depthNanos;
+
+    /**
+     * {@code groups} is applied in the argmax (null keeps ADE20K class ids). Each model adapts its
+     * input size to hold {@code targetNanos}; they run side by side, so each gets the whole budget.
+     */
+    SceneAnalyzer(OrtEnvironment env, ClassGroups groups, long targetNanos) {
+        segmentation = new Segmentation(env, groups, targetNanos);
+        depth = new Depth(env, targetNanos);
+        branches = new ParallelBranches<>("SceneSegmentation", segmentation, "SceneDepth", depth);
+    }
+
+    /** Segformer's input, to read on the calling thread between analyses. */
+    AdaptiveInput segmentationInput() {
+        return segmentation.input;
+    }
+
+    /** Depth-Anything's input, to read on the calling thread between analyses. */
+    AdaptiveInput depthInput() {
+        return depth.input;
+    }
+
+    SceneFrame analyze(OrtSession segmentationSession, OrtSession depthSession, Frame frame,
+                       InferenceRequest<?> request) throws Exception {
+        long start = System.nanoTime();
+        PixelSource source = readPixels(segmentationSession, depthSession, frame, request);
+        ParallelBranches.Joined<byte[], FloatBuffer> joined = branches.run(source);
+        lastClassMap = joined.first;
+        lastDepth = joined.second;
+        segmentationNanos = joined.firstNanos;
+        depthNanos = joined.secondNanos;
+        return frame(frame, joined.firstNanos, joined.secondNanos, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs only the model that was faster last time and pairs its output with the other model's
+     * previous one, for frames that changed only a little. Runs both if there is no previous result.
+     */
+    SceneFrame analyzeCheaper(OrtSession segmentationSession, OrtSession depthSession, Frame frame,
+                              InferenceRequest<?> request) throws Exception {
+        if (lastClassMap == null || lastDepth == null) return analyze(segmentationSession, depthSession, frame, request);
+        long start = System.nanoTime();
+        PixelSource source = readPixels(segmentationSession, depthSession, frame, request);
+        long runStart = System.nanoTime();
+        if (segmentationNanos <= depthNanos) {
+            lastClassMap = branches.runFirst(source);
+            segmentationNanos = System.nanoTime() - runStart;
+            return frame(frame, segmentationNanos, 0, System.nanoTime() - start);
+        }
+        lastDepth = branches.runSecond(source);
+        depthNanos = System.nanoTime() - runStart;
+        return frame(frame, 0, depthNanos, System.nanoTime() - start);
+    }
+
+    /** Reads the frame once into the shared pixel buffer both models' preprocessing reads from. */
+    private PixelSource readPixels(OrtSession segmentationSession, OrtSession depthSession, Frame frame,
+                                   InferenceRequest<?> request) {
+        Bitmap bitmap = frame.bitmap;
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (pixels.length != width * height) pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        // Handed to the branch threads through the executors' submit, which orders these writes.
+        segmentation.session = segmentationSession;
+        depth.session = depthSession;
+        segmentation.request = request;
+        depth.request = request;
+        return PixelSource.of(pixels, width, height);
+    }
+
+    private SceneFrame frame(Frame frame, long segmentationRunNanos, long depthRunNanos, long totalNanos) {
+        long[] depthShape = depth.shape;
+        return new SceneFrame(frame.captureTimeNanos,
+                lastClassMap, segmentation.postProcessor.getWidth(), segmentation.postProcessor.getHeight(),
+                lastDepth, (int) depthShape[depthShape.length - 1], (int) depthShape[depthShape.length - 2],
+                segmentationRunNanos, depthRunNanos, totalNanos);
+    }
+
+    /** Frees both arenas on their threads, after any analysis in progress. */
+    @Override
+    public void close() {
+        branches.close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.adaptivevisualaid;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Segmentation and depth of one camera frame, produced together by {@link SceneAnalyzer}. The map
+ * and depth buffers belong to the analyzer and are overwritten by its next call, so consume them
+ * before analysing the next frame.
+ */
+public final class SceneFrame {
+
+    public final long captureTimeNanos;
+    /** Class (or class group) id per pixel, row-major, {@code mapWidth * mapHeight}. */
+    public final byte[] classMap;
+    public final int mapWidth;
+    public final int mapHeight;
+    /** Relative inverse depth (larger is nearer), row-major, {@code depthWidth * depthHeight}. */
+    public final FloatBuffer depth;
+    public final int depthWidth;
+    public final int depthHeight;
+    /** Time the segmentation model ran for this frame; 0 when its previous output was reused. */
+    public final long segmentationNanos;
+    /** Time the depth model ran for this frame; 0 when its previous output was reused. */
+    public final long depthNanos;
+    /** Wall time of the whole analysis, including the shared preprocessing. */
+    public final long totalNanos;
+
+    public SceneFrame(long captureTimeNanos, byte[] classMap, int mapWidth, int mapHeight,
+                      FloatBuffer depth, int depthWidth, int depthHeight,
+                      long segmentationNanos, long depthNanos, long totalNanos) {
+        this.captureTimeNanos = captureTimeNanos;
+        this.classMap = classMap;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.depth = depth;
+        this.depthWidth = depthWidth;
+        this.depthHeight = depthHeight;
+        this.segmentationNanos = segmentationNanos;
+        this.depthNanos = depthNanos;
+        this.totalNanos = totalNanos;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.adaptivevisualaid;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Fuses a Segformer class map and a Depth-Anything map into per-sector obstacle summaries. Both
+ * maps are sampled onto a common coarse grid; the grid is split into vertical columns (left, center,
+ * right, ...) and each cell falls into a depth band (near, mid, far, ...) by its relative proximity
+ * in the frame. One pass over the grid then finds, per column x band sector, the most common class,
+ * the share of the frame it covers and how near its nearest cell is.
+ * All tables, including the returned {@link Summary}, are allocated once and reused for every frame.
+ */
+public class SceneFusion {
+
+    /** Results of the last {@link #fuse} call, indexed by {@link #index(int, int)}. */
+    public static final class Summary {
+        public final int columns;
+        public final int bands;
+        /** Most common class id in the sector, or -1 if no cell fell into it. */
+        public final int[] dominantClass;
+        /** Share of the whole grid covered by the dominant class in the sector, 0 to 1. */
+        public final float[] dominantArea;
+        /** Proximity of the dominant class's nearest cell: 1 is the nearest point of the frame, 0 the farthest. */
+        public final float[] dominantProximity;
+        /** Grid cells in the sector, of any class. */
+        public final int[] cellCount;
+
+        Summary(int columns, int bands) {
+            this.columns = columns;
+            this.bands = bands;
+            int sectors = columns * bands;
+            dominantClass = new int[sectors];
+            dominantArea = new float[sectors];
+            dominantProximity = new float[sectors];
+            cellCount = new int[sectors];
+        }
+
+        /** Sector of {@code column} (0 is leftmost) and {@code band} (0 is nearest). */
+        public int index(int column, int band) {
+            return band * columns + column;
+        }
+    }
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int columns;
+    private final float[] bandEdges;
+    private final int numClasses;
+    private final Summary summary;
+
+    // Per-class accumulators of every sector: sector * numClasses + class.
+    private final int[] classCells;
+    private final float[] classProximity;
+    private final float[] gridDepth;
+
+    // Grid cell -> source index lookups, rebuilt when a map size changes.
+    private int[] classLookup;
+    private int classMapWidth;
+    private int classMapHeight;
+    private int[] depthLookup;
+    private int depthMapWidth;
+    private int depthMapHeight;
+
+    /**
+     * @param columns   vertical strips, e.g. 3 for left / center / right
+     * @param bandEdges descending proximity thresholds between depth bands, e.g. {@code {2/3f, 1/3f}}
+     *                  for near (at least 2/3), mid and far (below 1/3)
+     */
+    public SceneFusion(int gridWidth, int gridHeight, int columns, float[] bandEdges, int numClasses) {
+        if (columns < 1 || columns > gridWidth) {
+            throw new IllegalArgumentException("Need 1.." + gridWidth + " columns, got " + columns);
+        }
+        for (int i = 1; i < bandEdges.length; i++) {
+            if (bandEdges[i] >= bandEdges[i - 1]) throw new IllegalArgumentException("Band edges must descend");
+        }
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.columns = columns;
+        this.bandEdges = bandEdges.clone();
+        this.numClasses = numClasses;
+        this.summary = new Summary(columns, bandEdges.length + 1);
+        int sectors = columns * summary.bands;
+        classCells = new int[sectors * numClasses];
+        classProximity = new float[sectors * numClasses];
+        gridDepth = new float[gridWidth * gridHeight];
+    }
+
+    /** Three columns by near / mid / far, on a 48 x 48 grid. */
+    public static SceneFusion threeByThree(int numClasses) {
+        return new SceneFusion(48, 48, 3, new float[]{2 / 3f, 1 / 3f}, numClasses);
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    /**
+     * Fuses a class map (unsigned byte ids, row-major) with a relative inverse depth map (larger is
+     * nearer, as Depth-Anything outputs) covering the same view. The maps may differ in size.
+     */
+    public Summary fuse(byte[] classMap, int mapWidth, int mapHeight,
+                        FloatBuffer depth, int depthWidth, int depthHeight) {
+        if (classLookup == null || mapWidth != classMapWidth || mapHeight != classMapHeight) {
+            classLookup = lookup(mapWidth, mapHeight);
+            classMapWidth = mapWidth;
+            classMapHeight = mapHeight;
+        }
+        if (depthLookup == null || depthWidth != depthMapWidth || depthHeight != depthMapHeight) {
+            depthLookup = lookup(depthWidth, depthHeight);
+            depthMapWidth = depthWidth;
+            depthMapHeight = depthHeight;
+        }
+
+        // Sample depth first: proximity is relative to this frame's range.
+        int cells = gridWidth * gridHeight;
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        int base = depth.position();
+        for (int i = 0; i < cells; i++) {
+            float d = depth.get(base + depthLookup[i]);
+            gridDepth[i] = d;
+            if (d < min) min = d;
+            if (d > max) max = d;
+        }
+        float scale = max > min ? 1f / (max - min) : 0f;
+
+        Arrays.fill(classCells, 0);
+        Arrays.fill(classProximity, 0f);
+        Arrays.fill(summary.cellCount, 0);
+        int bandCount = summary.bands;
+        for (int y = 0, i = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++, i++) {
+                float proximity = (gridDepth[i] - min) * scale;
+                int band = 0;
+                while (band < bandEdges.length && proximity < bandEdges[band]) band++;
+                int sector = band * columns + x * columns / gridWidth;
+                int classId = classMap[classLookup[i]] & 0xFF;
+                if (classId >= numClasses) continue;
+                int slot = sector * numClasses + classId;
+                classCells[slot]++;
+                if (proximity > classProximity[slot]) classProximity[slot] = proximity;
+                summary.cellCount[sector]++;
+            }
+        }
+
+        for (int sector = 0; sector < columns * bandCount; sector++) {
+            int offset = sector * numClasses;
+            int best = -1;
+            int bestCells = 0;
+            for (int c = 0; c < numClasses; c++) {
+                if (classCells[offset + c] > bestCells) {
+                    bestCells = classCells[offset + c];
+                    best = c;
+                }
+            }
+            summary.dominantClass[sector] = best;
+            summary.dominantArea[sector] = (float) bestCells / cells;
+            summary.dominantProximity[sector] = best >= 0 ? classProximity[offset + best] : 0f;
+        }
+        return summary;
+    }
+
+    /** Index of the source pixel under each grid cell's center, for a {@code width x height} map. */
+    private int[] lookup(int width, int height) {
+        int[] table = new int[gridWidth * gridHeight];
+        for (int y = 0, i = 0; y < gridHeight; y++) {
+            int sy = Math.min(height - 1, (int) ((y + 0.5f) * height / gridHeight));
+            for (int x = 0; x < gridWidth; x++, i++) {
+                int sx = Math.min(width - 1, (int) ((x + 0.5f) * width / gridWidth));
+                table[i] = sy * width + sx;
+            }
+        }
+        return table;
+    }
+}
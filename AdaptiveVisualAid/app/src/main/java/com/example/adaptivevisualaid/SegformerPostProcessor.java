@@ -0,0 +1,123 @@
+package com.example.adaptivevisualaid;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Turns Segformer logits ({@code [1, C, H, W]}, read as a flat buffer) into a per-pixel class map.
+ * The argmax walks the logits one channel plane at a time, keeping a running max plane, so every
+ * read is sequential. Class ids are stored as unsigned bytes; read them with {@link #classAt}.
+ * With {@link #setClassGroups} the argmax writes each winner's group id instead, at no extra cost.
+ * All buffers are allocated once and reused for every frame.
+ */
+public class SegformerPostProcessor {
+
+    private final int numClasses;
+    private final int width;
+    private final int height;
+
+    private final byte[] classMap;
+    private final float[] maxPlane;
+    private final float[] channelPlane;
+    private float[] confidence;
+    private final byte[] ids;
+    private boolean computeConfidence;
+
+    public SegformerPostProcessor(int numClasses, int width, int height) {
+        if (numClasses > 256) {
+            throw new IllegalArgumentException("At most 256 classes fit a byte class map, got " + numClasses);
+        }
+        this.numClasses = numClasses;
+        this.width = width;
+        this.height = height;
+        int plane = width * height;
+        classMap = new byte[plane];
+        maxPlane = new float[plane];
+        channelPlane = new float[plane];
+        ids = new byte[numClasses];
+        for (int c = 0; c < numClasses; c++) ids[c] = (byte) c;
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Writes the group id of each pixel's winning class instead of the class id (null restores
+     * class ids). The groups must cover this model's classes.
+     */
+    public void setClassGroups(ClassGroups groups) {
+        if (groups != null && groups.getClassCount() != numClasses) {
+            throw new IllegalArgumentException("Groups cover " + groups.getClassCount() + " classes, model has " + numClasses);
+        }
+        for (int c = 0; c < numClasses; c++) ids[c] = (byte) (groups != null ? groups.groupOf(c) : c);
+    }
+
+    /** Also compute the softmax probability of the winning class for every pixel. */
+    public void setComputeConfidence(boolean computeConfidence) {
+        this.computeConfidence = computeConfidence;
+        if (computeConfidence && confidence == null) {
+            confidence = new float[width * height];
+        }
+    }
+
+    /** Returns the class (or group) map, row-major {@code width * height}, for the given logits. */
+    public byte[] process(FloatBuffer logits) {
+        int plane = width * height;
+        if (logits.capacity() < numClasses * plane) {
+            throw new IllegalArgumentException("Expected " + numClasses * plane + " logits, got " + logits.capacity());
+        }
+        logits.position(0);
+        logits.get(maxPlane, 0, plane);
+        Arrays.fill(classMap, ids[0]);
+        for (int c = 1; c < numClasses; c++) {
+            logits.get(channelPlane, 0, plane);
+            byte id = ids[c];
+            for (int i = 0; i < plane; i++) {
+                float v = channelPlane[i];
+                if (v > maxPlane[i]) {
+                    maxPlane[i] = v;
+                    classMap[i] = id;
+                }
+            }
+        }
+
+        if (computeConfidence) {
+            // Second sweep: sum of exp(logit - max) per pixel; the winner's probability is 1 / sum.
+            Arrays.fill(confidence, 0f);
+            logits.position(0);
+            for (int c = 0; c < numClasses; c++) {
+                logits.get(channelPlane, 0, plane);
+                for (int i = 0; i < plane; i++) {
+                    confidence[i] += (float) Math.exp(channelPlane[i] - maxPlane[i]);
+                }
+            }
+            for (int i = 0; i < plane; i++) {
+                confidence[i] = 1f / confidence[i];
+            }
+        }
+        logits.rewind();
+        return classMap;
+    }
+
+    public byte[] getClassMap() {
+        return classMap;
+    }
+
+    public int classAt(int index) {
+        return classMap[index] & 0xFF;
+    }
+
+    /** Per-pixel confidence of the last {@link #process} call, or null if not enabled. */
+    public float[] getConfidence() {
+        return computeConfidence ? confidence : null;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+import java.util.Arrays;
+
+/**
+ * Draws a segmentation class map over a base image in a single sweep: each output pixel is
+ * upsampled nearest-neighbour from the class map, colored through a packed palette, alpha-blended
+ * with the base pixel and counted in a per-class area histogram. Row buffers and the two output
+ * bitmaps it alternates between are reused across frames.
+ */
+public class SegmentationRenderer {
+
+    private final int[] palette = new int[256];
+    private final int[] histogram = new int[256];
+    private int alpha256;
+
+    private int[] xMap = new int[0];
+    private int[] baseRow = new int[0];
+    private int[] outRow = new int[0];
+    private int xMapWidth = -1;
+    private int xMapSourceWidth = -1;
+
+    // Double-buffered so the bitmap on screen is never the one being drawn into.
+    private final Bitmap[] outputs = new Bitmap[2];
+    private int nextOutput;
+
+    /** {@code palette[i]} is the ARGB color of class {@code i}; classes past its end draw black. */
+    public SegmentationRenderer(int[] palette, float alpha) {
+        setPalette(palette);
+        setAlpha(alpha);
+    }
+
+    /** Replaces the class colors, e.g. when switching between classes and {@link ClassGroups}. */
+    public void setPalette(int[] palette) {
+        Arrays.fill(this.palette, 0xFF000000);
+        System.arraycopy(palette, 0, this.palette, 0, Math.min(palette.length, 256));
+    }
+
+    /** Opacity of the class colors over the base image, 0 to 1. */
+    public void setAlpha(float alpha) {
+        alpha256 = Math.round(Math.max(0f, Math.min(1f, alpha)) * 256);
+    }
+
+    /** Pixel count per class id in the last rendered output. */
+    public int[] getHistogram() {
+        return histogram;
+    }
+
+    /** Ids below {@code classCount} present in the last rendered output, largest area first. */
+    public int[] getClassesByArea(int classCount) {
+        int[] classes = new int[classCount];
+        int used = 0;
+        for (int classId = 0; classId < classCount; classId++) {
+            if (histogram[classId] == 0) continue;
+            // Insertion sort: only a handful of the classes show up in a frame.
+            int i = used++;
+            for (; i > 0 && histogram[classes[i - 1]] < histogram[classId]; i--) classes[i] = classes[i - 1];
+            classes[i] = classId;
+        }
+        return Arrays.copyOf(classes, used);
+    }
+
+    /** Renders {@code classMap} over {@code base} into a reused bitmap of the same size. */
+    public Bitmap render(Bitmap base, byte[] classMap, int mapWidth, int mapHeight) {
+        int width = base.getWidth();
+        int height = base.getHeight();
+        Bitmap output = outputs[nextOutput];
+        if (output == null || output.getWidth() != width || output.getHeight() != height) {
+            output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            outputs[nextOutput] = output;
+        }
+        nextOutput ^= 1;
+        renderInto(base, output, classMap, mapWidth, mapHeight);
+        return output;
+    }
+
+    /**
+     * Renders into a caller-provided mutable bitmap the size of {@code base}. {@code output} may be
+     * {@code base} itself, which lets the full-resolution export draw in place.
+     */
+    public void renderInto(Bitmap base, Bitmap output, byte[] classMap, int mapWidth, int mapHeight) {
+        int width = base.getWidth();
+        int height = base.getHeight();
+        prepare(width, mapWidth);
+        for (int y = 0; y < height; y++) {
+            base.getPixels(baseRow, 0, width, 0, y, width, 1);
+            renderRow(y, width, height, classMap, mapWidth, mapHeight, baseRow, 0, outRow, 0);
+            output.setPixels(outRow, 0, width, 0, y, width, 1);
+        }
+    }
+
+    /** Array form of {@link #render(Bitmap, byte[], int, int)}; {@code out} may alias {@code base}. */
+    public void render(int[] base, int width, int height, byte[] classMap, int mapWidth, int mapHeight, int[] out) {
+        prepare(width, mapWidth);
+        for (int y = 0; y < height; y++) {
+            renderRow(y, width, height, classMap, mapWidth, mapHeight, base, y * width, out, y * width);
+        }
+    }
+
+    private void prepare(int width, int mapWidth) {
+        Arrays.fill(histogram, 0);
+        if (baseRow.length < width) {
+            baseRow = new int[width];
+            outRow = new int[width];
+            xMap = new int[width];
+            xMapWidth = -1;
+        }
+        if (xMapWidth != width || xMapSourceWidth != mapWidth) {
+            for (int x = 0; x < width; x++) {
+                xMap[x] = (int) (((2L * x + 1) * mapWidth) / (2L * width));
+            }
+            xMapWidth = width;
+            xMapSourceWidth = mapWidth;
+        }
+    }
+
+    private void renderRow(int y, int width, int height, byte[] classMap, int mapWidth, int mapHeight,
+                           int[] base, int baseOffset, int[] out, int outOffset) {
+        int mapRow = (int) (((2L * y + 1) * mapHeight) / (2L * height)) * mapWidth;
+        int a = alpha256;
+        int inv = 256 - a;
+        for (int x = 0; x < width; x++) {
+            int classId = classMap[mapRow + xMap[x]] & 0xFF;
+            histogram[classId]++;
+            int mask = palette[classId];
+            int px = base[baseOffset + x];
+            // Blend red+blue and green in two multiplies using 8.8 fixed point.
+            int rb = (((px & 0xFF00FF) * inv + (mask & 0xFF00FF) * a) >>> 8) & 0xFF00FF;
+            int g = (((px & 0x00FF00) * inv + (mask & 0x00FF00) * a) >>> 8) & 0x00FF00;
+            out[outOffset + x] = 0xFF000000 | rb | g;
+        }
+    }
+}
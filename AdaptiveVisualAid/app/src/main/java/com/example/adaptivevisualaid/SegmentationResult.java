@@ -0,0 +1,39 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+/** Outcome of segmenting one picked image. Owns its bitmaps and class map; nothing is reused. */
+public final class SegmentationResult {
+
+    public final Bitmap original;
+    public final Bitmap overlay;
+    private final byte[] classMap;
+    public final int mapWidth;
+    public final int mapHeight;
+    private final int[] classesByArea;
+    /** What the ids in the class map stand for: ADE20K classes or navigation groups. */
+    public final ClassGroups groups;
+    public final long inferenceMillis;
+
+    public SegmentationResult(Bitmap original, Bitmap overlay, byte[] classMap, int mapWidth, int mapHeight,
+                              int[] classesByArea, ClassGroups groups, long inferenceMillis) {
+        this.original = original;
+        this.overlay = overlay;
+        this.classMap = classMap.clone();
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.classesByArea = classesByArea.clone();
+        this.groups = groups;
+        this.inferenceMillis = inferenceMillis;
+    }
+
+    /** Class (or group) id per model output pixel, row-major {@code mapWidth x mapHeight}. A copy. */
+    public byte[] getClassMap() {
+        return classMap.clone();
+    }
+
+    /** Ids of the classes present in the overlay, largest area first. A copy. */
+    public int[] getClassesByArea() {
+        return classesByArea.clone();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.adaptivevisualaid;
+
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtProvider;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.providers.NNAPIFlags;
+
+/** Execution provider and threading an ORT session is created with. */
+public final class SessionConfig {
+
+    private static final String TAG = "SessionConfig";
+
+    public enum Provider {
+        CPU,
+        XNNPACK,
+        NNAPI,
+        /** NNAPI allowed to relax float32 to float16. */
+        NNAPI_FP16;
+
+        boolean isAvailable() {
+            EnumSet<OrtProvider> available = OrtEnvironment.getAvailableProviders();
+            switch (this) {
+                case XNNPACK:
+                    return available.contains(OrtProvider.XNNPACK);
+                case NNAPI:
+                case NNAPI_FP16:
+                    return available.contains(OrtProvider.NNAPI);
+                default:
+                    return true;
+            }
+        }
+    }
+
+    public final Provider provider;
+    /** Intra-op thread count, or 0 for ONNX Runtime's default. */
+    public final int intraOpThreads;
+
+    public SessionConfig(Provider provider, int intraOpThreads) {
+        this.provider = provider;
+        this.intraOpThreads = intraOpThreads;
+    }
+
+    /** NNAPI when the device offers it, otherwise the CPU provider. Used until the autotuner has run. */
+    public static SessionConfig defaultConfig() {
+        if (Provider.NNAPI.isAvailable()) {
+            return new SessionConfig(Provider.NNAPI, 0);
+        }
+        Log.d(TAG, "NNAPI not available.");
+        return new SessionConfig(Provider.CPU, 0);
+    }
+
+    /** Inverse of {@link #toString()}. */
+    public static SessionConfig parse(String text) {
+        String[] parts = text.split("/");
+        Provider provider = Provider.valueOf(parts[0].toUpperCase(Locale.ROOT));
+        int threads = parts.length > 1 ? Integer.parseInt(parts[1].substring(0, parts[1].length() - 1)) : 0;
+        return new SessionConfig(provider, threads);
+    }
+
+    /** Session options with the provider attached; the caller sets the optimisation level. */
+    OrtSession.SessionOptions newSessionOptions() throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        switch (provider) {
+            case XNNPACK:
+                // XNNPACK runs its own thread pool; ORT's would only spin against it.
+                options.setIntraOpNumThreads(1);
+                options.addConfigEntry("session.intra_op.allow_spinning", "0");
+                options.addXnnpack(intraOpThreads > 0
+                        ? Collections.singletonMap("intra_op_num_threads", Integer.toString(intraOpThreads))
+                        : Collections.emptyMap());
+                return options;
+            case NNAPI:
+                options.addNnapi();
+                break;
+            case NNAPI_FP16:
+                options.addNnapi(EnumSet.of(NNAPIFlags.USE_FP16));
+                break;
+            default:
+                break;
+        }
+        if (intraOpThreads > 0) options.setIntraOpNumThreads(intraOpThreads);
+        return options;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SessionConfig)) return false;
+        SessionConfig other = (SessionConfig) o;
+        return provider == other.provider && intraOpThreads == other.intraOpThreads;
+    }
+
+    @Override
+    public int hashCode() {
+        return provider.hashCode() * 31 + intraOpThreads;
+    }
+
+    @Override
+    public String toString() {
+        return provider.name().toLowerCase(Locale.ROOT) + (intraOpThreads > 0 ? "/" + intraOpThreads + "t" : "");
+    }
+}
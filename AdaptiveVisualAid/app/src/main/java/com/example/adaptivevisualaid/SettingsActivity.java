@@ -3,18 +3,34 @@ package com.example.adaptivevisualaid;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.CompoundButton;
+import android.widget.SeekBar;
 import android.widget.Switch;
+import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
 public class SettingsActivity extends AppCompatActivity {
 
+    private static final String TAG = "SettingsActivity";
+
     private Switch switchHeyAva, switchTapGlass, switchCameraAudio, switchUsbCamera;
     private SharedPreferences sharedPreferences;
     private Button btnSaveAndRestart;
+    private Button btnAutotune;
+    private TextView txtAutotune;
+    private Switch switchTfliteXnnpack;
+    private SeekBar seekTfliteThreads;
+    private TextView txtTfliteThreads;
+    private TextView txtLatencyMetrics;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -51,6 +67,105 @@ public class SettingsActivity extends AppCompatActivity {
                 restartApp();
             }
         });
+
+        // Execution provider autotuning, with the measured latencies for diagnostics
+        btnAutotune = findViewById(R.id.btnAutotune);
+        txtAutotune = findViewById(R.id.txtAutotune);
+        showAutotuneResults();
+        btnAutotune.setOnClickListener(v -> runAutotune());
+
+        // Per-stage latency histograms of the gallery runs since the app started
+        txtLatencyMetrics = findViewById(R.id.txtLatencyMetrics);
+        Button btnLatencyMetrics = findViewById(R.id.btnLatencyMetrics);
+        btnLatencyMetrics.setOnClickListener(v ->
+                txtLatencyMetrics.setText("Milliseconds\n" + LatencyMetrics.getInstance().format()));
+        Button btnExportLatency = findViewById(R.id.btnExportLatency);
+        btnExportLatency.setOnClickListener(v -> exportLatencyMetrics());
+        Button btnExportTrace = findViewById(R.id.btnExportTrace);
+        btnExportTrace.setOnClickListener(v -> exportTrace());
+
+        // TFLite interpreter threads and XNNPACK delegate, applied when a TFLite model is next loaded
+        switchTfliteXnnpack = findViewById(R.id.switchTfliteXnnpack);
+        seekTfliteThreads = findViewById(R.id.seekTfliteThreads);
+        txtTfliteThreads = findViewById(R.id.txtTfliteThreads);
+        TfliteSettings tfliteSettings = TfliteSettings.load(this);
+        switchTfliteXnnpack.setChecked(tfliteSettings.useXnnpack);
+        seekTfliteThreads.setMax(TfliteSettings.MAX_THREADS - 1);
+        seekTfliteThreads.setProgress(tfliteSettings.numThreads - 1);
+        txtTfliteThreads.setText("TFLite threads: " + tfliteSettings.numThreads);
+        switchTfliteXnnpack.setOnCheckedChangeListener((buttonView, isChecked) -> saveTfliteSettings());
+        seekTfliteThreads.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                txtTfliteThreads.setText("TFLite threads: " + (progress + 1));
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                saveTfliteSettings();
+            }
+        });
+    }
+
+    private void saveTfliteSettings() {
+        new TfliteSettings(seekTfliteThreads.getProgress() + 1, switchTfliteXnnpack.isChecked()).save(this);
+    }
+
+    private void showAutotuneResults() {
+        StringBuilder text = new StringBuilder();
+        for (ProviderAutotuner.Target target : ProviderAutotuner.BUNDLED_MODELS) {
+            text.append(target.assetName).append('\n');
+            TuningTable table = ProviderAutotuner.loadTable(this, target.assetName);
+            if (table == null) {
+                text.append("  not tuned yet, using ").append(ProviderAutotuner.bestConfig(this, target.assetName)).append("\n\n");
+            } else {
+                text.append(table.format()).append('\n');
+            }
+        }
+        txtAutotune.setText(text);
+    }
+
+    private void runAutotune() {
+        btnAutotune.setEnabled(false);
+        Toast.makeText(this, "Autotuning, this takes a few minutes...", Toast.LENGTH_SHORT).show();
+        new Thread(() -> {
+            for (ProviderAutotuner.Target target : ProviderAutotuner.BUNDLED_MODELS) {
+                ProviderAutotuner.tune(getApplicationContext(), target, (t, config) -> runOnUiThread(() ->
+                        txtAutotune.setText("Measuring " + t.assetName + " with " + config + "...")));
+            }
+            runOnUiThread(() -> {
+                showAutotuneResults();
+                btnAutotune.setEnabled(true);
+            });
+        }, "Autotune").start();
+    }
+
+    /** Writes the CSV to the app's external files dir, where {@code adb pull} can reach it. */
+    private void exportLatencyMetrics() {
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), "latency-metrics.csv");
+        try (Writer out = new FileWriter(file)) {
+            LatencyMetrics.getInstance().writeCsv(out);
+            Toast.makeText(this, "Saved " + file, Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(TAG, "Latency export failed", e);
+            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /** Writes the recent trace events for Perfetto / chrome://tracing next to the latency CSV. */
+    private void exportTrace() {
+        File dir = getExternalFilesDir(null);
+        try {
+            File file = Tracing.dump(dir != null ? dir : getFilesDir());
+            Toast.makeText(this, "Saved " + file, Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(TAG, "Trace export failed", e);
+            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
     }
 
     private void saveSettings(CompoundButton buttonView, boolean isChecked) {
@@ -0,0 +1,85 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a fixed list of frames (generated, or decoded from a recording) at a steady frame
+ * interval, looping if asked. Stands in for the camera in tests and benchmarks. Frames are
+ * numbered in {@link Frame#sequence}, so tests that never read pixels may pass null bitmaps.
+ */
+public final class SyntheticFrameSource implements FrameSource {
+
+    private final List<Bitmap> frames;
+    private final long intervalNanos;
+    private final boolean loop;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile int emitted;
+
+    public SyntheticFrameSource(List<Bitmap> frames, long intervalMillis, boolean loop) {
+        this.frames = new ArrayList<>(frames);
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        this.loop = loop;
+    }
+
+    /** Number of frames handed to the sink so far. */
+    public int getEmittedCount() {
+        return emitted;
+    }
+
+    @Override
+    public synchronized void start(Sink sink) {
+        if (thread != null) return;
+        running = true;
+        thread = new Thread(() -> {
+            long next = System.nanoTime();
+            int index = 0;
+            while (running && (loop || index < frames.size())) {
+                // Frames are only read downstream, so the replayed bitmaps are shared, not copied.
+                sink.onFrame(new Frame(frames.get(index % frames.size()), System.nanoTime(), index));
+                emitted++;
+                index++;
+                next += intervalNanos;
+                long sleepNanos = next - System.nanoTime();
+                if (sleepNanos > 0) {
+                    try {
+                        Thread.sleep(sleepNanos / 1_000_000L, (int) (sleepNanos % 1_000_000L));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "SyntheticFrameSource");
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (thread == null) return;
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /** Waits until a non-looping source has replayed every frame. */
+    public void awaitEnd() throws InterruptedException {
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current != null) current.join();
+    }
+
+    @Override
+    public void release(Frame frame) {
+        // Nothing is pooled.
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Packs ARGB pixels into a float image tensor (NCHW or NHWC) backed by a reusable, native-order
+ * direct buffer that ONNX Runtime and TFLite can read without copying. Each channel is
+ * normalized as {@code (value / 255 - mean) / std}.
+ * Nothing is allocated after construction, so keep one packer per model input and reuse it.
+ */
+public class TensorPacker {
+
+    public enum Layout { NCHW, NHWC }
+
+    public static final float[] NO_MEAN = {0f, 0f, 0f};
+    public static final float[] NO_STD = {1f, 1f, 1f};
+    public static final float[] IMAGENET_MEAN = {0.485f, 0.456f, 0.406f};
+    public static final float[] IMAGENET_STD = {0.229f, 0.224f, 0.225f};
+
+    private final int width;
+    private final int height;
+    private final Layout layout;
+    private final long[] shape;
+    // Per-channel normalization folded into value * scale + bias.
+    private final float[] scale = new float[3];
+    private final float[] bias = new float[3];
+
+    private final ByteBuffer byteBuffer;
+    private final FloatBuffer floatBuffer;
+    private final int[] rowPixels;
+    private final float[] rowValues;
+
+    public TensorPacker(int width, int height, Layout layout) {
+        this(width, height, layout, NO_MEAN, NO_STD);
+    }
+
+    public TensorPacker(int width, int height, Layout layout, float[] mean, float[] std) {
+        this(width, height, layout, mean, std,
+                ByteBuffer.allocateDirect(3 * width * height * 4).order(ByteOrder.nativeOrder()));
+    }
+
+    /** Packs into {@code target}, e.g. one image's slice of a batch tensor; it must be native-order. */
+    TensorPacker(int width, int height, Layout layout, float[] mean, float[] std, ByteBuffer target) {
+        if (target.capacity() < 3 * width * height * 4 || target.order() != ByteOrder.nativeOrder()) {
+            throw new IllegalArgumentException("Need a native-order buffer of " + 3 * width * height * 4 + " bytes");
+        }
+        this.width = width;
+        this.height = height;
+        this.layout = layout;
+        this.shape = layout == Layout.NCHW
+                ? new long[]{1, 3, height, width}
+                : new long[]{1, height, width, 3};
+        for (int c = 0; c < 3; c++) {
+            scale[c] = 1f / (255f * std[c]);
+            bias[c] = -mean[c] / std[c];
+        }
+        byteBuffer = target;
+        floatBuffer = byteBuffer.asFloatBuffer();
+        rowPixels = new int[width];
+        rowValues = new float[3 * width];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /** Tensor shape with a batch of one. The returned array is shared; do not modify it. */
+    public long[] getShape() {
+        return shape;
+    }
+
+    public ByteBuffer getByteBuffer() {
+        return byteBuffer;
+    }
+
+    public FloatBuffer getFloatBuffer() {
+        return floatBuffer;
+    }
+
+    /** Packs a bitmap that is exactly {@code width x height}, reading it one row at a time. */
+    public FloatBuffer pack(Bitmap bitmap) {
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            throw new IllegalArgumentException("Expected " + width + "x" + height + " bitmap, got "
+                    + bitmap.getWidth() + "x" + bitmap.getHeight());
+        }
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(rowPixels, 0, width, 0, y, width, 1);
+            packRow(y, rowPixels, 0);
+        }
+        return rewind();
+    }
+
+    /** Packs {@code width x height} ARGB pixels starting at {@code offset}, rows {@code stride} apart. */
+    public FloatBuffer pack(int[] argb, int offset, int stride) {
+        for (int y = 0; y < height; y++) {
+            packRow(y, argb, offset + y * stride);
+        }
+        return rewind();
+    }
+
+    /** Writes one row of {@code width} ARGB pixels into tensor row {@code y}. */
+    public void packRow(int y, int[] argb, int offset) {
+        float sr = scale[0], sg = scale[1], sb = scale[2];
+        float br = bias[0], bg = bias[1], bb = bias[2];
+        if (layout == Layout.NCHW) {
+            for (int x = 0; x < width; x++) {
+                int px = argb[offset + x];
+                rowValues[x] = ((px >> 16) & 0xFF) * sr + br;
+                rowValues[width + x] = ((px >> 8) & 0xFF) * sg + bg;
+                rowValues[2 * width + x] = (px & 0xFF) * sb + bb;
+            }
+        } else {
+            for (int x = 0, i = 0; x < width; x++, i += 3) {
+                int px = argb[offset + x];
+                rowValues[i] = ((px >> 16) & 0xFF) * sr + br;
+                rowValues[i + 1] = ((px >> 8) & 0xFF) * sg + bg;
+                rowValues[i + 2] = (px & 0xFF) * sb + bb;
+            }
+        }
+        flushRow(y);
+    }
+
+    /** Writes one row of interleaved RGB values in [0, 255] into tensor row {@code y}. */
+    public void packRow(int y, float[] rgb) {
+        if (layout == Layout.NCHW) {
+            for (int x = 0, i = 0; x < width; x++, i += 3) {
+                rowValues[x] = rgb[i] * scale[0] + bias[0];
+                rowValues[width + x] = rgb[i + 1] * scale[1] + bias[1];
+                rowValues[2 * width + x] = rgb[i + 2] * scale[2] + bias[2];
+            }
+        } else {
+            for (int i = 0; i < 3 * width; i += 3) {
+                rowValues[i] = rgb[i] * scale[0] + bias[0];
+                rowValues[i + 1] = rgb[i + 1] * scale[1] + bias[1];
+                rowValues[i + 2] = rgb[i + 2] * scale[2] + bias[2];
+            }
+        }
+        flushRow(y);
+    }
+
+    private void flushRow(int y) {
+        if (layout == Layout.NCHW) {
+            int plane = width * height;
+            for (int c = 0; c < 3; c++) {
+                floatBuffer.position(c * plane + y * width);
+                floatBuffer.put(rowValues, c * width, width);
+            }
+        } else {
+            floatBuffer.position(y * width * 3);
+            floatBuffer.put(rowValues, 0, 3 * width);
+        }
+    }
+
+    /** Resets buffer positions after rows were written with {@link #packRow}. */
+    public FloatBuffer rewind() {
+        floatBuffer.rewind();
+        byteBuffer.rewind();
+        return floatBuffer;
+    }
+}
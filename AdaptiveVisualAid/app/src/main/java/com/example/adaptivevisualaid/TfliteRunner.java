@@ -0,0 +1,68 @@
+package com.example.adaptivevisualaid;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs an {@link Interpreter} through pre-allocated native-order direct output buffers, sized from
+ * the model's own output tensors, so nothing is allocated or copied per run and output shapes are
+ * whatever the model declares.
+ */
+final class TfliteRunner {
+
+    private final Interpreter interpreter;
+    private final ByteBuffer[] outputs;
+    private final FloatBuffer[] outputFloats;
+    private final Map<Integer, Object> outputMap = new HashMap<>();
+
+    TfliteRunner(Interpreter interpreter) {
+        this.interpreter = interpreter;
+        int count = interpreter.getOutputTensorCount();
+        outputs = new ByteBuffer[count];
+        outputFloats = new FloatBuffer[count];
+        for (int i = 0; i < count; i++) {
+            outputs[i] = ByteBuffer.allocateDirect(interpreter.getOutputTensor(i).numBytes()).order(ByteOrder.nativeOrder());
+            outputFloats[i] = outputs[i].asFloatBuffer();
+            outputMap.put(i, outputs[i]);
+        }
+    }
+
+    Interpreter getInterpreter() {
+        return interpreter;
+    }
+
+    int[] getInputShape(int index) {
+        return interpreter.getInputTensor(index).shape();
+    }
+
+    int[] getOutputShape(int index) {
+        return interpreter.getOutputTensor(index).shape();
+    }
+
+    /** Float view of output {@code index}, valid after {@link #run}. */
+    FloatBuffer getOutputFloats(int index) {
+        outputFloats[index].rewind();
+        return outputFloats[index];
+    }
+
+    /** Runs on {@code inputs} (direct buffers, e.g. {@link TensorPacker#getByteBuffer()}). */
+    void run(InferenceRequest<?> request, Object... inputs) {
+        for (ByteBuffer output : outputs) output.rewind();
+        CancellableRuns.run(request, interpreter, inputs, outputMap);
+    }
+
+    /**
+     * Height and width of a single-channel map whatever the layout: {@code [1, H, W]},
+     * {@code [1, 1, H, W]} or {@code [1, H, W, 1]}.
+     */
+    static int[] mapSize(int[] shape) {
+        int n = shape.length;
+        if (n >= 3 && shape[n - 1] == 1) return new int[]{shape[n - 3], shape[n - 2]};
+        return new int[]{shape[n - 2], shape[n - 1]};
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.adaptivevisualaid;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/** Thread count and XNNPACK delegate choice for TFLite interpreters, kept in the app settings. */
+public final class TfliteSettings {
+
+    static final String PREFS_NAME = "SettingsPrefs";
+    static final String KEY_THREADS = "tfliteThreads";
+    static final String KEY_XNNPACK = "tfliteXnnpack";
+    public static final int MAX_THREADS = 8;
+
+    public final int numThreads;
+    public final boolean useXnnpack;
+
+    public TfliteSettings(int numThreads, boolean useXnnpack) {
+        this.numThreads = numThreads;
+        this.useXnnpack = useXnnpack;
+    }
+
+    /** Defaults to XNNPACK on up to four threads. */
+    public static TfliteSettings load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int defaultThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+        return new TfliteSettings(prefs.getInt(KEY_THREADS, defaultThreads), prefs.getBoolean(KEY_XNNPACK, true));
+    }
+
+    public void save(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putInt(KEY_THREADS, numThreads)
+                .putBoolean(KEY_XNNPACK, useXnnpack)
+                .apply();
+    }
+
+    /** Suffix for {@link ModelRegistry} keys, so changed settings load a new interpreter. */
+    @Override
+    public String toString() {
+        return numThreads + "t" + (useXnnpack ? "+xnnpack" : "");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.adaptivevisualaid;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ai.onnxruntime.OrtSession;
+
+/**
+ * One task's model in a realtime loop: the variant a {@link ModelTierPolicy} picks among those
+ * bundled, or the one the user pinned in the model selection screen. When the policy moves to
+ * another tier, that variant loads and warms up in the background while the current one keeps
+ * running, and is swapped in once both are done, so the swap frame runs one inference as usual.
+ * Use it on the inference thread, except {@link #setThermal}; close it once that thread stopped.
+ */
+final class TieredModel implements AutoCloseable {
+
+    private static final String TAG = "TieredModel";
+
+    // Shared by every TieredModel; keeps warm-up runs off both the inference and the loader thread.
+    private static final ExecutorService WARM_UP = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TierWarmUp");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Context context;
+    private final ModelTiers.Task task;
+    private final List<String> models;
+    private final ModelTierPolicy policy;
+    private final WarmedLoad.WarmUp<OrtSession> warmUp;
+    private int activeTier;
+    private ModelRegistry.Handle<OrtSession> active;
+    private int pendingTier;
+    private ModelRegistry.Handle<OrtSession> pending;
+    private WarmedLoad<OrtSession> pendingLoad;
+
+    /** {@code warmUp} runs on a background thread, on each newly loaded tier before it is swapped in. */
+    TieredModel(Context context, ModelTiers.Task task, long budgetNanos, WarmedLoad.WarmUp<OrtSession> warmUp) {
+        this.context = context.getApplicationContext();
+        this.task = task;
+        this.models = ModelTiers.available(context, task);
+        this.policy = new ModelTierPolicy(models.size(), budgetNanos);
+        this.warmUp = warmUp;
+        String override = ModelTiers.getOverride(context, task);
+        if (override != null && models.contains(override)) policy.setOverride(models.indexOf(override));
+        activeTier = policy.getTier();
+        active = acquire(activeTier);
+    }
+
+    /** The handle of the first model, to report its loading. */
+    ModelRegistry.Handle<OrtSession> getActiveHandle() {
+        return active;
+    }
+
+    String getActiveModel() {
+        return models.get(activeTier);
+    }
+
+    /** The session to run, or null while the first model loads. Swaps in a newly loaded tier. */
+    OrtSession session() {
+        if (pending != null) {
+            if (pendingLoad.isFailed()) {
+                Log.w(TAG, models.get(pendingTier) + " failed to load or warm up, staying on " + getActiveModel());
+                pending.close();
+                pending = null;
+                policy.loadFailed(pendingTier, activeTier); // retried later, with backoff
+            } else if (pendingLoad.getNow() != null) {
+                Log.d(TAG, task + ": " + getActiveModel() + " -> " + models.get(pendingTier));
+                active.close();
+                active = pending;
+                activeTier = pendingTier;
+                pending = null;
+            }
+        }
+        return active.getNow();
+    }
+
+    /** Feeds one frame's inference time, in nanoseconds, to the policy. */
+    void record(long nanos) {
+        if (pending != null) return; // the time was measured on the tier being replaced
+        if (!policy.record(nanos) || policy.getTier() == activeTier) return;
+        pendingTier = policy.getTier();
+        pending = acquire(pendingTier);
+        pendingLoad = new WarmedLoad<>(pending.ready(), warmUp, WARM_UP);
+    }
+
+    void setThermal(ModelTierPolicy.Thermal thermal) {
+        policy.setThermal(thermal);
+    }
+
+    /** E.g. "Segformer b1 (auto)" or "Segformer b2 (pinned)". */
+    String describe() {
+        String mode = policy.getOverride() == ModelTierPolicy.AUTO ? "auto" : "pinned";
+        String label = ModelTiers.label(task, getActiveModel()) + " (" + mode + ")";
+        return pending != null ? label + " -> " + ModelTiers.label(task, models.get(pendingTier)) : label;
+    }
+
+    @Override
+    public void close() {
+        active.close();
+        if (pending != null) {
+            ModelRegistry.Handle<OrtSession> handle = pending;
+            pendingLoad.whenDone(handle::close); // not while the warm-up still runs the session
+        }
+        pending = null;
+    }
+
+    private ModelRegistry.Handle<OrtSession> acquire(int tier) {
+        String model = models.get(tier);
+        return ModelRegistry.getInstance(context).acquire(model, ModelLoaders.onnxSession(model));
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.adaptivevisualaid;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A ring buffer of trace events (section begin, section end, instant) that can be written out as a
+ * Chrome / Perfetto JSON trace. Section names are registered once up front and events store only
+ * their id, a timestamp and the thread, in pre-allocated arrays: recording takes no lock, builds no
+ * string and allocates nothing, so it can stay on in release builds. When full, the oldest events
+ * are overwritten. Events being recorded while the trace is written out may be left out of it.
+ */
+public final class TraceBuffer {
+
+    public static final byte BEGIN = 'B';
+    public static final byte END = 'E';
+    public static final byte INSTANT = 'i';
+
+    private static final int MAX_NAMES = 1024;
+
+    private final int mask;
+    private final long[] times;
+    private final long[] threads;
+    private final int[] names;
+    private final byte[] phases;
+    // Per slot: the sequence number of the event in it, or -1 while it is being written.
+    private final AtomicLongArray sequences;
+    private final AtomicLong next = new AtomicLong();
+
+    private final String[] nameTable = new String[MAX_NAMES];
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    // Written under the lock after the table entry, so a read of it publishes the entries below it.
+    private volatile int nameCount;
+
+    private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> threadKnown = new ThreadLocal<>();
+
+    /** @param capacity events kept, rounded up to a power of two */
+    public TraceBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        times = new long[size];
+        threads = new long[size];
+        names = new int[size];
+        phases = new byte[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, -1);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /** Id for {@code name}, the same for every call with an equal name. Register names once, not per event. */
+    public synchronized int register(String name) {
+        Integer known = nameIds.get(name);
+        if (known != null) return known;
+        int id = nameCount;
+        if (id == MAX_NAMES) throw new IllegalStateException("More than " + MAX_NAMES + " trace names");
+        nameTable[id] = name;
+        nameIds.put(name, id);
+        nameCount = id + 1;
+        return id;
+    }
+
+    public String getName(int id) {
+        if (id >= nameCount) throw new IllegalArgumentException("Unregistered trace name " + id);
+        return nameTable[id];
+    }
+
+    public void begin(int nameId) {
+        record(BEGIN, nameId);
+    }
+
+    public void end(int nameId) {
+        record(END, nameId);
+    }
+
+    public void instant(int nameId) {
+        record(INSTANT, nameId);
+    }
+
+    /** Events recorded since construction or {@link #clear}, including overwritten ones. */
+    public long getRecordedCount() {
+        return next.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i <= mask; i++) sequences.set(i, -1);
+        next.set(0);
+    }
+
+    private void record(byte phase, int nameId) {
+        Thread thread = Thread.currentThread();
+        if (threadKnown.get() == null) {
+            threadNames.put(thread.getId(), thread.getName());
+            threadKnown.set(Boolean.TRUE);
+        }
+        long sequence = next.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        sequences.set(slot, -1);
+        times[slot] = System.nanoTime();
+        threads[slot] = thread.getId();
+        names[slot] = nameId;
+        phases[slot] = phase;
+        sequences.set(slot, sequence);
+    }
+
+    /**
+     * Writes the retained events, oldest first, in the Chrome trace event format, with timestamps
+     * in microseconds of {@link System#nanoTime()}.
+     */
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":0,\"tid\":" + thread.getKey()
+                    + ",\"args\":{\"name\":\"" + escape(thread.getValue()) + "\"}}");
+        }
+        long end = next.get();
+        for (long sequence = Math.max(0, end - getCapacity()); sequence < end; sequence++) {
+            int slot = (int) (sequence & mask);
+            if (sequences.get(slot) != sequence) continue; // being written, or overwritten already
+            long time = times[slot];
+            long thread = threads[slot];
+            int name = names[slot];
+            byte phase = phases[slot];
+            if (sequences.get(slot) != sequence) continue;
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            out.write("{\"name\":\"" + escape(getName(name)) + "\",\"ph\":\"" + (char) phase
+                    + "\",\"ts\":" + time / 1000 + "." + String.format("%03d", time % 1000)
+                    + ",\"pid\":0,\"tid\":" + thread + (phase == INSTANT ? ",\"s\":\"t\"}" : "}"));
+        }
+        out.write("\n]}\n");
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.adaptivevisualaid;
+
+import android.os.Trace;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * App-wide tracing. Every section is marked with {@link Trace} for systrace / Perfetto captures
+ * and also kept in an in-app {@link TraceBuffer} of recent events, which {@link #dump} writes as a
+ * JSON trace that can be pulled from the device and opened in Perfetto or chrome://tracing.
+ * Register section names once, e.g. in a static field, and pass the id:
+ * <pre>
+ * private static final int TRACE_LOAD = Tracing.section("model load");
+ * Tracing.begin(TRACE_LOAD); try { ... } finally { Tracing.end(TRACE_LOAD); }
+ * </pre>
+ * Begin and end a section on the same thread, nested like blocks. Off Android, e.g. in JVM unit
+ * tests, where {@link Trace} is only a stub, sections are kept in the buffer alone.
+ */
+public final class Tracing {
+
+    private static final TraceBuffer BUFFER = new TraceBuffer(1 << 15);
+    private static final boolean PLATFORM_TRACE = "Dalvik".equals(System.getProperty("java.vm.name"));
+
+    private Tracing() {}
+
+    public static int section(String name) {
+        return BUFFER.register(name);
+    }
+
+    public static void begin(int section) {
+        if (PLATFORM_TRACE) Trace.beginSection(BUFFER.getName(section));
+        BUFFER.begin(section);
+    }
+
+    public static void end(int section) {
+        BUFFER.end(section);
+        if (PLATFORM_TRACE) Trace.endSection();
+    }
+
+    /** A point in time, e.g. a callback from another process; a zero-length section for systrace. */
+    public static void instant(int section) {
+        if (PLATFORM_TRACE) {
+            Trace.beginSection(BUFFER.getName(section));
+            Trace.endSection();
+        }
+        BUFFER.instant(section);
+    }
+
+    /** Writes the retained events to {@code dir}/trace-&lt;time&gt;.json and returns the file. */
+    public static File dump(File dir) throws IOException {
+        File file = new File(dir, "trace-" + System.currentTimeMillis() + ".json");
+        try (Writer out = new FileWriter(file)) {
+            BUFFER.writeJson(out);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.adaptivevisualaid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Latencies measured by {@link ProviderAutotuner} for one model: a row per session configuration
+ * (see {@link SessionConfig#toString()}), or the reason it failed. Serialises to a line-per-row
+ * string for SharedPreferences.
+ */
+public final class TuningTable {
+
+    public static final class Row {
+        public final String config;
+        public final double medianMillis;
+        public final double p95Millis;
+        /** Null when the configuration ran. */
+        public final String error;
+
+        Row(String config, double medianMillis, double p95Millis, String error) {
+            this.config = config;
+            this.medianMillis = medianMillis;
+            this.p95Millis = p95Millis;
+            this.error = error;
+        }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+
+    /** Records a configuration that ran, from its per-run latencies. */
+    public void add(String config, double[] latenciesMillis) {
+        double[] sorted = latenciesMillis.clone();
+        Arrays.sort(sorted);
+        rows.add(new Row(config, percentile(sorted, 0.5), percentile(sorted, 0.95), null));
+    }
+
+    public void addFailure(String config, String error) {
+        rows.add(new Row(config, Double.NaN, Double.NaN, error));
+    }
+
+    public List<Row> getRows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    /** The configuration with the lowest median latency (p95 breaks ties), or null if none ran. */
+    public Row best() {
+        Row best = null;
+        for (Row row : rows) {
+            if (row.error != null) continue;
+            if (best == null || row.medianMillis < best.medianMillis
+                    || (row.medianMillis == best.medianMillis && row.p95Millis < best.p95Millis)) {
+                best = row;
+            }
+        }
+        return best;
+    }
+
+    /** Linear-interpolated percentile of an ascending array, {@code p} in [0, 1]. */
+    static double percentile(double[] sorted, double p) {
+        if (sorted.length == 0) return Double.NaN;
+        double index = p * (sorted.length - 1);
+        int lower = (int) Math.floor(index);
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (index - lower);
+    }
+
+    public String serialize() {
+        StringBuilder out = new StringBuilder();
+        for (Row row : rows) {
+            out.append(row.config).append(';');
+            if (row.error != null) {
+                out.append("error;").append(row.error.replace('\n', ' ').replace(';', ','));
+            } else {
+                out.append(row.medianMillis).append(';').append(row.p95Millis);
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    public static TuningTable parse(String text) {
+        TuningTable table = new TuningTable();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty()) continue;
+            String[] fields = line.split(";", 3);
+            if (fields[1].equals("error")) {
+                table.rows.add(new Row(fields[0], Double.NaN, Double.NaN, fields.length > 2 ? fields[2] : ""));
+            } else {
+                table.rows.add(new Row(fields[0], Double.parseDouble(fields[1]), Double.parseDouble(fields[2]), null));
+            }
+        }
+        return table;
+    }
+
+    /** Fixed-width text table for the diagnostics screen, best configuration marked with '*'. */
+    public String format() {
+        Row best = best();
+        StringBuilder out = new StringBuilder(String.format("  %-14s %9s %9s%n", "config", "median", "p95"));
+        for (Row row : rows) {
+            String mark = row == best ? "*" : " ";
+            if (row.error != null) {
+                out.append(String.format("%s %-14s failed: %s%n", mark, row.config, row.error));
+            } else {
+                out.append(String.format("%s %-14s %6.1f ms %6.1f ms%n", mark, row.config, row.medianMillis, row.p95Millis));
+            }
+        }
+        return out.toString();
+    }
+}
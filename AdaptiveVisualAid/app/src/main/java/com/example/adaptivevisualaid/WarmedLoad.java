@@ -0,0 +1,45 @@
+package com.example.adaptivevisualaid;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * A model loading in the background that only counts as ready once it has also been warmed up, on
+ * another executor, so the thread that swaps it in pays for one inference and no setup runs.
+ * Thread-safe.
+ */
+final class WarmedLoad<M> {
+
+    /** Readies a freshly loaded model for its first real run, e.g. with dummy runs at its input sizes. */
+    interface WarmUp<M> {
+        void run(M model) throws Exception;
+    }
+
+    private final CompletableFuture<M> ready;
+
+    WarmedLoad(CompletableFuture<M> loaded, WarmUp<? super M> warmUp, Executor executor) {
+        ready = loaded.thenApplyAsync(model -> {
+            try {
+                warmUp.run(model);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            return model;
+        }, executor);
+    }
+
+    /** The loaded and warmed-up model, or null while either is in progress or if either failed. */
+    M getNow() {
+        return ready.isDone() && !ready.isCompletedExceptionally() ? ready.join() : null;
+    }
+
+    boolean isFailed() {
+        return ready.isCompletedExceptionally();
+    }
+
+    /** Runs {@code action} once loading and warm-up are over, however they ended. */
+    void whenDone(Runnable action) {
+        ready.whenComplete((model, error) -> action.run());
+    }
+}
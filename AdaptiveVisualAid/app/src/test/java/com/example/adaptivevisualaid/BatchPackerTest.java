@@ -0,0 +1,65 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BatchPackerTest {
+
+    private static int[] solid(int argb, int width, int height) {
+        int[] pixels = new int[width * height];
+        Arrays.fill(pixels, argb);
+        return pixels;
+    }
+
+    @Test
+    public void packsEachSlotIntoItsPartOfTheBatch() throws Exception {
+        int[] colors = {0xFFFF0000, 0xFF00FF00, 0xFF0000FF};
+        try (BatchPacker packer = new BatchPacker(4, 4, 4, TensorPacker.NO_MEAN, TensorPacker.NO_STD)) {
+            // Sources of different sizes, all resized to 4x4.
+            packer.pack(3, (slot, kernel) -> kernel.run(PixelSource.of(solid(colors[slot], 8 + slot, 6), 8 + slot, 6), 0));
+
+            assertArrayEquals(new long[]{3, 3, 4, 4}, packer.getShape(3));
+            FloatBuffer batch = packer.getBatch(3);
+            assertEquals(0, batch.position());
+            assertEquals(3 * 3 * 16, batch.remaining());
+            for (int slot = 0; slot < 3; slot++) {
+                for (int c = 0; c < 3; c++) {
+                    float expected = c == slot ? 1f : 0f;
+                    assertEquals(expected, batch.get((slot * 3 + c) * 16), 0f);
+                    assertEquals(expected, batch.get((slot * 3 + c) * 16 + 15), 0f);
+                    assertEquals(expected, packer.getImage(slot).get(c * 16 + 5), 0f);
+                }
+                assertEquals(3 * 16, packer.getImage(slot).remaining());
+            }
+        }
+    }
+
+    @Test
+    public void rethrowsTheFailureOfASlot() throws Exception {
+        try (BatchPacker packer = new BatchPacker(2, 2, 2, TensorPacker.NO_MEAN, TensorPacker.NO_STD)) {
+            try {
+                packer.pack(2, (slot, kernel) -> {
+                    if (slot == 1) throw new IllegalStateException("cannot decode");
+                    kernel.run(PixelSource.of(solid(0xFFFFFFFF, 2, 2), 2, 2), 0);
+                });
+                fail("expected the slot's failure");
+            } catch (IllegalStateException e) {
+                assertEquals("cannot decode", e.getMessage());
+            }
+            // The packer is still usable afterwards.
+            packer.pack(1, (slot, kernel) -> kernel.run(PixelSource.of(solid(0xFFFFFFFF, 2, 2), 2, 2), 0));
+            assertEquals(1f, packer.getBatch(1).get(0), 0f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBatchesLargerThanTheBuffer() throws Exception {
+        try (BatchPacker packer = new BatchPacker(2, 2, 2, TensorPacker.NO_MEAN, TensorPacker.NO_STD)) {
+            packer.pack(3, (slot, kernel) -> {});
+        }
+    }
+}
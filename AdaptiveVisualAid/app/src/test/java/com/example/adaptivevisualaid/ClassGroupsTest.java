@@ -0,0 +1,53 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClassGroupsTest {
+
+    private static int classId(String label) {
+        for (int c = 0; c < Ade20k.NUM_CLASSES; c++) {
+            if (Ade20k.label(c).equals(label)) return c;
+        }
+        throw new AssertionError(label);
+    }
+
+    @Test
+    public void navigationGroupsCoverEveryAde20kClass() {
+        ClassGroups groups = ClassGroups.navigation();
+        assertEquals(Ade20k.NUM_CLASSES, groups.getClassCount());
+        assertTrue(groups.getGroupCount() <= 16);
+        assertEquals(groups.getGroupCount(), groups.getPalette().length);
+        for (int c = 0; c < Ade20k.NUM_CLASSES; c++) {
+            assertTrue(groups.groupOf(c) < groups.getGroupCount());
+        }
+    }
+
+    @Test
+    public void relatedClassesShareAGroup() {
+        ClassGroups groups = ClassGroups.navigation();
+        int walkable = groups.groupOf(classId("floor"));
+        assertEquals("walkable", groups.getLabel(walkable));
+        assertEquals(walkable, groups.groupOf(classId("sidewalk")));
+        assertEquals(walkable, groups.groupOf(classId("road")));
+        assertEquals(groups.groupOf(classId("stairs")), groups.groupOf(classId("step")));
+        assertEquals(groups.groupOf(classId("car")), groups.groupOf(classId("bus")));
+        assertEquals("person", groups.getLabel(groups.groupOf(classId("person"))));
+        assertEquals("other", groups.getLabel(groups.groupOf(classId("painting"))));
+    }
+
+    @Test
+    public void ade20kKeepsEveryClassApart() {
+        ClassGroups groups = ClassGroups.ade20k();
+        assertEquals(Ade20k.NUM_CLASSES, groups.getGroupCount());
+        assertEquals(149, groups.groupOf(149));
+        assertEquals(Ade20k.label(12), groups.getLabel(12));
+        assertEquals(Ade20k.palette()[12], groups.getColor(12));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGroupIdsWithoutALabel() {
+        new ClassGroups(new String[]{"a"}, new int[]{0xFF000000}, new byte[]{0, 1});
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class DepthRendererTest {
+
+    private static int red(int argb) {
+        return (argb >> 16) & 0xFF;
+    }
+
+    private static int blue(int argb) {
+        return argb & 0xFF;
+    }
+
+    @Test
+    public void grayscaleStretchesMinToBlackAndMaxToWhite() {
+        // 4x2 plane with values in [2, 9].
+        float[] plane = {2f, 3f, 4f, 5f, 6f, 7f, 8f, 9f};
+        int[] out = new int[8];
+        DepthRenderer renderer = new DepthRenderer(DepthRenderer.Colormap.GRAYSCALE);
+        renderer.render(FloatBuffer.wrap(plane), 4, 2, out);
+
+        assertEquals(0xFF000000, out[0]);
+        assertEquals(0xFFFFFFFF, out[7]);
+        for (int i = 1; i < 8; i++) assertTrue(red(out[i]) > red(out[i - 1]));
+        assertEquals(2f, renderer.getRangeMin(), 0);
+        assertEquals(9f, renderer.getRangeMax(), 0);
+    }
+
+    @Test
+    public void constantPlaneMapsToFirstEntry() {
+        float[] plane = {3f, 3f, 3f, 3f};
+        int[] out = new int[4];
+        new DepthRenderer(DepthRenderer.Colormap.GRAYSCALE).render(FloatBuffer.wrap(plane), 2, 2, out);
+        assertArrayEquals(new int[]{0xFF000000, 0xFF000000, 0xFF000000, 0xFF000000}, out);
+    }
+
+    @Test
+    public void robustRangeIgnoresOutliers() {
+        float[] plane = new float[100 * 100];
+        for (int i = 0; i < plane.length; i++) plane[i] = (i % 100) / 100f;
+        plane[0] = 1000f;
+        plane[1] = -1000f;
+        int[] out = new int[plane.length];
+        DepthRenderer renderer = new DepthRenderer(DepthRenderer.Colormap.GRAYSCALE);
+
+        renderer.render(FloatBuffer.wrap(plane), 100, 100, out);
+        assertEquals(-1000f, renderer.getRangeMin(), 0);
+        assertEquals(1000f, renderer.getRangeMax(), 0);
+
+        renderer.setRobustRange(true);
+        renderer.render(FloatBuffer.wrap(plane), 100, 100, out);
+        assertTrue(renderer.getRangeMin() > -5f);
+        assertTrue(renderer.getRangeMax() < 5f);
+        assertEquals(0xFFFFFFFF, out[0]);
+        assertEquals(0xFF000000, out[1]);
+    }
+
+    @Test
+    public void colormapEndpoints() {
+        int[] hot = DepthRenderer.lut(DepthRenderer.Colormap.NEAR_IS_HOT);
+        assertEquals(0xFF000000, hot[0]);
+        assertEquals(0xFFFFFFFF, hot[255]);
+        assertEquals(0xFFFF0000, hot[85]); // a third of the way up is pure red
+
+        int[] turbo = DepthRenderer.lut(DepthRenderer.Colormap.TURBO);
+        assertTrue(blue(turbo[40]) > red(turbo[40]));   // cold end is blue
+        assertTrue(red(turbo[215]) > blue(turbo[215])); // hot end is red
+
+        int[] inferno = DepthRenderer.lut(DepthRenderer.Colormap.INFERNO);
+        assertTrue(red(inferno[0]) < 10 && blue(inferno[0]) < 30);
+        assertTrue(red(inferno[255]) > 240);
+    }
+
+    @Test
+    public void reusedRendererGivesSameResult() {
+        float[] plane = {0f, 0.25f, 0.5f, 1f};
+        int[] first = new int[4];
+        int[] second = new int[4];
+        DepthRenderer renderer = new DepthRenderer(DepthRenderer.Colormap.TURBO);
+        FloatBuffer buffer = FloatBuffer.wrap(plane);
+        renderer.render(buffer, 2, 2, first);
+        renderer.render(buffer, 2, 2, second);
+        assertArrayEquals(first, second);
+        assertEquals(0, buffer.position());
+    }
+}
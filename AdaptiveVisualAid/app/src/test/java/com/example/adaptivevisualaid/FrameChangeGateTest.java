@@ -0,0 +1,129 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FrameChangeGateTest {
+
+    private static final int W = 64;
+    private static final int H = 48;
+    private static final long FRAME = 33_000_000L; // ~30 FPS
+
+    private static int[] gray(int level) {
+        int[] argb = new int[W * H];
+        Arrays.fill(argb, 0xFF000000 | level << 16 | level << 8 | level);
+        return argb;
+    }
+
+    /** {@code base} with a bright square of {@code size} pixels in the top-left corner. */
+    private static int[] withSquare(int[] base, int size) {
+        int[] argb = base.clone();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) argb[y * W + x] = 0xFFFFFFFF;
+        }
+        return argb;
+    }
+
+    private static PixelSource source(int[] argb) {
+        return PixelSource.of(argb, W, H);
+    }
+
+    @Test
+    public void staticSceneIsReusedUntilTheFrameLimit() {
+        FrameChangeGate gate = new FrameChangeGate(16, 12);
+        gate.setMaxReuse(Long.MAX_VALUE, 5);
+        int[] frame = gray(100);
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(frame), 0));
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(FrameChangeGate.Decision.REUSE, gate.decide(source(frame), i * FRAME));
+        }
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(frame), 6 * FRAME));
+        assertEquals(5f / 7, gate.getSkipRatio(), 1e-6f);
+    }
+
+    @Test
+    public void staleResultIsRefreshedAfterTheTimeLimit() {
+        FrameChangeGate gate = new FrameChangeGate(16, 12);
+        gate.setMaxReuse(100_000_000L, Integer.MAX_VALUE);
+        int[] frame = gray(100);
+        gate.decide(source(frame), 0);
+        assertEquals(FrameChangeGate.Decision.REUSE, gate.decide(source(frame), 99_000_000L));
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(frame), 100_000_000L));
+    }
+
+    @Test
+    public void sensorNoiseIsIgnoredButChangesAreGraded() {
+        FrameChangeGate gate = new FrameChangeGate(16, 12);
+        int[] base = gray(100);
+        gate.decide(source(base), 0);
+        assertEquals(FrameChangeGate.Decision.REUSE, gate.decide(source(gray(108)), FRAME));
+        // An 8x8 square covers 2x2 of the 16x12 cells: about 2% of the thumbnail.
+        assertEquals(FrameChangeGate.Decision.PARTIAL, gate.decide(source(withSquare(base, 8)), 2 * FRAME));
+        assertEquals(4f / 192, gate.getLastChange(), 1e-6f);
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(withSquare(base, 24)), 3 * FRAME));
+        // The full run made the square the reference.
+        assertEquals(FrameChangeGate.Decision.REUSE, gate.decide(source(withSquare(base, 24)), 4 * FRAME));
+        assertEquals(1, gate.getCount(FrameChangeGate.Decision.PARTIAL));
+    }
+
+    @Test
+    public void fastRotationForcesFullRuns() {
+        FrameChangeGate gate = new FrameChangeGate(16, 12);
+        int[] frame = gray(100);
+        gate.decide(source(frame), 0);
+        gate.setMotion(2f);
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(frame), FRAME));
+        gate.setMotion(0f);
+        assertEquals(FrameChangeGate.Decision.REUSE, gate.decide(source(frame), 2 * FRAME));
+    }
+
+    @Test
+    public void resetStartsOverWithAFullRun() {
+        FrameChangeGate gate = new FrameChangeGate(16, 12);
+        int[] frame = gray(100);
+        gate.decide(source(frame), 0);
+        gate.decide(source(frame), FRAME);
+        gate.reset();
+        assertEquals(0f, gate.getSkipRatio(), 0f);
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(frame), 2 * FRAME));
+    }
+
+    @Test
+    public void forcedFullRunIsCountedAndBecomesTheReference() {
+        FrameChangeGate gate = new FrameChangeGate(16, 12);
+        int[] frame = gray(100);
+        gate.decide(source(frame), 0);
+        assertEquals(FrameChangeGate.Decision.REUSE, gate.decide(source(frame), FRAME));
+        gate.forceFull();
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(frame), 2 * FRAME));
+        assertEquals(FrameChangeGate.Decision.REUSE, gate.decide(source(frame), 3 * FRAME));
+        assertEquals(2, gate.getCount(FrameChangeGate.Decision.FULL));
+        assertEquals(0.5f, gate.getSkipRatio(), 1e-6);
+    }
+
+    @Test
+    public void withoutPartialRunsASmallChangeBecomesTheNewReference() {
+        FrameChangeGate gate = new FrameChangeGate(16, 12);
+        gate.setMaxReuse(Long.MAX_VALUE, 1000);
+        int[] before = gray(100);
+        int[] after = withSquare(before, 16); // a small change that then holds still
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(before), 0, false));
+        assertEquals(FrameChangeGate.Decision.FULL, gate.decide(source(after), FRAME, false));
+        for (int i = 2; i < 6; i++) {
+            assertEquals(FrameChangeGate.Decision.REUSE, gate.decide(source(after), i * FRAME, false));
+        }
+        assertEquals(0, gate.getCount(FrameChangeGate.Decision.PARTIAL));
+        assertEquals(2, gate.getCount(FrameChangeGate.Decision.FULL));
+
+        // With partial runs allowed the old reference stays, so the same change stays PARTIAL.
+        FrameChangeGate partial = new FrameChangeGate(16, 12);
+        partial.setMaxReuse(Long.MAX_VALUE, 1000);
+        partial.decide(source(before), 0);
+        for (int i = 1; i < 6; i++) {
+            assertEquals(FrameChangeGate.Decision.PARTIAL, partial.decide(source(after), i * FRAME));
+        }
+    }
+}
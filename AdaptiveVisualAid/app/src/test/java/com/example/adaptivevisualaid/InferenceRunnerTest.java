@@ -0,0 +1,177 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InferenceRunnerTest {
+
+    /** Records every callback in order, tagged with the request it belongs to. */
+    private static final class Recorder implements InferenceRunner.Callback<String> {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch finished = new CountDownLatch(1);
+        private final String tag;
+
+        Recorder(String tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public void onStage(InferenceRequest.Stage stage) {
+            events.add(tag + ":" + stage);
+        }
+
+        @Override
+        public void onResult(String result) {
+            events.add(tag + ":result=" + result);
+            finished.countDown();
+        }
+
+        @Override
+        public void onError(Exception e) {
+            events.add(tag + ":error=" + e.getMessage());
+            finished.countDown();
+        }
+    }
+
+    @Test
+    public void deliversStagesThenResult() throws Exception {
+        InferenceRunner runner = new InferenceRunner(Runnable::run);
+        Recorder recorder = new Recorder("a");
+        InferenceRequest<String> request = runner.submit(r -> {
+            r.enterStage(InferenceRequest.Stage.PREPROCESSING);
+            r.enterStage(InferenceRequest.Stage.INFERENCE);
+            return "done";
+        }, recorder);
+        assertTrue(recorder.finished.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("a:PREPROCESSING", "a:INFERENCE", "a:result=done"), recorder.events);
+        assertFalse(request.isCancelled());
+        runner.close();
+    }
+
+    @Test
+    public void newerSubmissionCancelsTheOlderOne() throws Exception {
+        InferenceRunner runner = new InferenceRunner(Runnable::run);
+        CountDownLatch started = new CountDownLatch(1);
+        boolean[] hookRan = new boolean[1];
+        Recorder first = new Recorder("first");
+        InferenceRequest<String> stale = runner.submit(r -> {
+            r.addCancelHook(() -> hookRan[0] = true);
+            started.countDown();
+            new CountDownLatch(1).await(); // a long run that only ends by interruption
+            return "stale";
+        }, first);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        Recorder second = new Recorder("second");
+        runner.submit(r -> "fresh", second);
+        assertTrue(second.finished.await(1, TimeUnit.SECONDS));
+
+        assertTrue(stale.isCancelled());
+        assertTrue(hookRan[0]);
+        assertTrue(first.events.isEmpty());
+        assertEquals(List.of("second:result=fresh"), second.events);
+        runner.close();
+    }
+
+    @Test
+    public void postedUpdatesArriveBeforeTheResult() throws Exception {
+        InferenceRunner runner = new InferenceRunner(Runnable::run);
+        Recorder recorder = new Recorder("a");
+        runner.submit(r -> {
+            r.post(() -> recorder.events.add("a:image 1"));
+            r.post(() -> recorder.events.add("a:image 2"));
+            return "done";
+        }, recorder);
+        assertTrue(recorder.finished.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("a:image 1", "a:image 2", "a:result=done"), recorder.events);
+        runner.close();
+    }
+
+    @Test
+    public void queuedRequestCancelledBeforeItStartsNeverRuns() throws Exception {
+        InferenceRunner runner = new InferenceRunner(Runnable::run);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        runner.submit(r -> {
+            started.countDown();
+            // Holds the worker until released, even once cancelled, so nothing queued starts early.
+            while (true) {
+                try {
+                    release.await();
+                    return "blocker";
+                } catch (InterruptedException ignored) {
+                    // cancelled by the next submission
+                }
+            }
+        }, new Recorder("blocker"));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        boolean[] ran = new boolean[1];
+        runner.submit(r -> {
+            ran[0] = true;
+            return "queued";
+        }, new Recorder("queued"));
+        Recorder last = new Recorder("last");
+        runner.submit(r -> "last", last);
+        release.countDown();
+        assertTrue(last.finished.await(1, TimeUnit.SECONDS));
+        assertFalse(ran[0]);
+        runner.close();
+    }
+
+    @Test
+    public void failuresAreReportedButCancellationsAreNot() throws Exception {
+        InferenceRunner runner = new InferenceRunner(Runnable::run);
+        Recorder failing = new Recorder("f");
+        runner.submit(r -> {
+            throw new IllegalStateException("boom");
+        }, failing);
+        assertTrue(failing.finished.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("f:error=boom"), failing.events);
+
+        Recorder cancelled = new Recorder("c");
+        InferenceRequest<String> request = runner.submit(r -> {
+            r.cancel();
+            r.enterStage(InferenceRequest.Stage.RENDERING); // throws CancellationException
+            return "unreachable";
+        }, cancelled);
+        runner.close();
+        while (!request.isDone()) Thread.sleep(1);
+        assertTrue(cancelled.events.isEmpty());
+    }
+
+    @Test
+    public void closeRunsCleanupOnTheWorkerAfterTheLastRequest() throws Exception {
+        InferenceRunner runner = new InferenceRunner(Runnable::run);
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Thread[] threads = new Thread[2];
+        InferenceRequest<String> request = runner.submit(r -> {
+            threads[0] = Thread.currentThread();
+            started.countDown();
+            try {
+                new CountDownLatch(1).await(); // ends when close() cancels it
+            } finally {
+                order.add("task");
+            }
+            return "done";
+        }, new Recorder("a"));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        CountDownLatch cleaned = new CountDownLatch(1);
+        runner.close(() -> {
+            threads[1] = Thread.currentThread();
+            order.add("cleanup");
+            cleaned.countDown();
+        });
+        assertTrue(cleaned.await(1, TimeUnit.SECONDS));
+        assertTrue(request.isCancelled());
+        assertSame(threads[0], threads[1]);
+        assertEquals(List.of("task", "cleanup"), order);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueWithinTheirResolution() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1_000, 999_999, 123_456_789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertTrue(value + " above its bucket " + upper, value <= upper);
+            assertTrue(value + " too far below " + upper, upper - value <= Math.max(0, value / 16));
+            if (bucket > 0) assertTrue(LatencyHistogram.upperBound(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void percentilesOfAUniformSpread() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 100; ms++) histogram.record(ms * 1_000_000L);
+        assertEquals(100, histogram.getCount());
+        assertEquals(100_000_000L, histogram.getMaxNanos());
+        assertEquals(50_500_000L, histogram.getMeanNanos());
+        assertWithin(50_000_000L, histogram.getPercentileNanos(50));
+        assertWithin(95_000_000L, histogram.getPercentileNanos(95));
+        assertWithin(99_000_000L, histogram.getPercentileNanos(99));
+        assertEquals(100_000_000L, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void emptyAndResetHistogramsReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(50));
+        histogram.record(5_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) histogram.record(1_000 + i * 4 + offset);
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(1_000 + 9_999 * 4 + 3, histogram.getMaxNanos());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+}
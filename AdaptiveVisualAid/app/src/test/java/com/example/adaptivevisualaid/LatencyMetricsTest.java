@@ -0,0 +1,60 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyMetricsTest {
+
+    @Test
+    public void seriesAreKeyedByModelProviderAndStage() {
+        LatencyMetrics metrics = new LatencyMetrics();
+        LatencyHistogram inference = metrics.histogram("segformer", "nnapi", "inference");
+        assertSame(inference, metrics.histogram("segformer", "nnapi", "inference"));
+        assertNotSame(inference, metrics.histogram("segformer", "cpu", "inference"));
+        assertNotSame(inference, metrics.histogram("segformer", "nnapi", "decoding"));
+        assertEquals(3, metrics.getSeries().size());
+        assertEquals("cpu", metrics.getSeries().get(0).provider);
+    }
+
+    @Test
+    public void csvHasOneRowPerSeries() throws Exception {
+        LatencyMetrics metrics = new LatencyMetrics();
+        metrics.histogram("depth", "cpu", "inference").record(2_000_000L);
+        metrics.histogram("depth", "cpu", "rendering").record(1_000_000L);
+        StringWriter out = new StringWriter();
+        metrics.writeCsv(out);
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1], lines[1].startsWith("depth,cpu,inference,1,2000000,"));
+        assertTrue(metrics.format().contains("depth on cpu"));
+    }
+
+    @Test
+    public void finishedRequestsRecordTheirStages() throws Exception {
+        // Results are delivered on the worker, so once the cleanup ran the request is recorded.
+        InferenceRunner runner = new InferenceRunner(Runnable::run);
+        CountDownLatch delivered = new CountDownLatch(1);
+        CountDownLatch idle = new CountDownLatch(1);
+        runner.submit(request -> {
+            request.recordLatencyAs("metrics-test-model", "cpu");
+            request.enterStage(InferenceRequest.Stage.INFERENCE);
+            Thread.sleep(5);
+            return "done";
+        }, result -> delivered.countDown());
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        runner.close(idle::countDown); // closing cancels, so only after the delivery
+        assertTrue(idle.await(1, TimeUnit.SECONDS));
+
+        LatencyMetrics metrics = LatencyMetrics.getInstance();
+        LatencyHistogram inference = metrics.histogram("metrics-test-model", "cpu", "inference");
+        assertEquals(1, inference.getCount());
+        assertTrue(inference.getMaxNanos() >= 5_000_000L);
+        assertEquals(1, metrics.histogram("metrics-test-model", "cpu", "total").getCount());
+        assertEquals(0, metrics.histogram("metrics-test-model", "cpu", "decoding").getCount());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatestFrameSlotTest {
+
+    @Test
+    public void newestItemWins() throws InterruptedException {
+        LatestFrameSlot<String> slot = new LatestFrameSlot<>();
+        assertNull(slot.offer("a"));
+        assertEquals("a", slot.offer("b"));
+        assertEquals("b", slot.offer("c"));
+        assertEquals("c", slot.take());
+        assertNull(slot.poll());
+    }
+
+    @Test
+    public void takeWaitsForAnOffer() throws Exception {
+        LatestFrameSlot<String> slot = new LatestFrameSlot<>();
+        String[] taken = new String[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                taken[0] = slot.take();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+        Thread.sleep(20);
+        slot.offer("frame");
+        consumer.join(1000);
+        assertEquals("frame", taken[0]);
+    }
+
+    @Test
+    public void closeWakesConsumerAndRejectsOffers() throws Exception {
+        LatestFrameSlot<String> slot = new LatestFrameSlot<>();
+        boolean[] returnedNull = new boolean[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                returnedNull[0] = slot.take() == null;
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+        Thread.sleep(20);
+        assertNull(slot.close());
+        consumer.join(1000);
+        assertTrue(returnedNull[0]);
+        assertEquals("late", slot.offer("late"));
+    }
+}
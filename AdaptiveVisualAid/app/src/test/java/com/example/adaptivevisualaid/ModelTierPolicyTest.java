@@ -0,0 +1,119 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ModelTierPolicyTest {
+
+    private static final long BUDGET = 100_000_000L;
+
+    /** Feeds {@code frames} frames whose latency at each tier is {@code nanosByTier[tier]}. */
+    private static void feed(ModelTierPolicy policy, long[] nanosByTier, int frames) {
+        for (int i = 0; i < frames; i++) policy.record(nanosByTier[policy.getTier()]);
+    }
+
+    @Test
+    public void startsAtTheHeaviestTierAndKeepsItWhenItFits() {
+        ModelTierPolicy policy = new ModelTierPolicy(3, BUDGET);
+        assertEquals(2, policy.getTier());
+        feed(policy, new long[]{20_000_000L, 40_000_000L, 90_000_000L}, 200);
+        assertEquals(2, policy.getTier());
+        assertEquals(0, policy.getDemotions());
+    }
+
+    @Test
+    public void demotesToTheHeaviestTierThatMeetsTheBudget() {
+        ModelTierPolicy policy = new ModelTierPolicy(3, BUDGET);
+        feed(policy, new long[]{30_000_000L, 80_000_000L, 400_000_000L}, 100);
+        assertEquals(1, policy.getTier());
+        assertEquals(1, policy.getDemotions());
+    }
+
+    @Test
+    public void singleSpikesDoNotDemote() {
+        ModelTierPolicy policy = new ModelTierPolicy(2, BUDGET);
+        for (int i = 0; i < 100; i++) policy.record(i % 4 == 0 ? 300_000_000L : 80_000_000L);
+        assertEquals(1, policy.getTier());
+    }
+
+    @Test
+    public void promotesWhenHeadroomReturnsAndBacksOffAfterAFailedPromotion() {
+        ModelTierPolicy policy = new ModelTierPolicy(2, BUDGET);
+        policy.setPromoteFrames(10, 1000);
+        feed(policy, new long[]{30_000_000L, 300_000_000L}, 20);
+        assertEquals(0, policy.getTier());
+        // Tier 0 leaves headroom, so the policy tries tier 1 again, which still overruns.
+        feed(policy, new long[]{30_000_000L, 300_000_000L}, 200);
+        int promotionsWithBackoff = policy.getPromotions();
+        assertTrue(promotionsWithBackoff >= 1);
+        // Without backoff it would retry every ~26 frames, about 8 times in 200 frames.
+        assertTrue("retried " + promotionsWithBackoff + " times", promotionsWithBackoff <= 4);
+
+        // Once the device is fast enough, tier 1 is reached and kept.
+        feed(policy, new long[]{10_000_000L, 40_000_000L}, 2000);
+        assertEquals(1, policy.getTier());
+    }
+
+    @Test
+    public void tierThatFailedToLoadIsRetriedWithBackoffWithoutPinning() {
+        ModelTierPolicy policy = new ModelTierPolicy(2, BUDGET);
+        policy.setPromoteFrames(10, 1000);
+        long[] fast = {10_000_000L, 10_000_000L};
+        feed(policy, new long[]{30_000_000L, 300_000_000L}, 20);
+        assertEquals(0, policy.getTier());
+
+        int gaps = 0;
+        int lastFailure = 0;
+        for (int frame = 1, failures = 0; failures < 4; frame++) {
+            if (policy.record(fast[policy.getTier()])) {
+                // Tier 1 never loads: the model reports it back at once.
+                assertEquals(1, policy.getTier());
+                policy.loadFailed(1, 0);
+                assertEquals(ModelTierPolicy.AUTO, policy.getOverride());
+                assertEquals(0, policy.getTier());
+                assertEquals(1, policy.getFailedTier());
+                int gap = frame - lastFailure;
+                assertTrue("retried after " + gap + " frames", gap > gaps);
+                gaps = gap;
+                lastFailure = frame;
+                failures++;
+            }
+        }
+    }
+
+    @Test
+    public void thermalThrottlingDemotesAndBlocksPromotion() {
+        ModelTierPolicy policy = new ModelTierPolicy(3, BUDGET);
+        long[] fast = {10_000_000L, 20_000_000L, 30_000_000L};
+        policy.setThermal(ModelTierPolicy.Thermal.HOT);
+        feed(policy, fast, 50);
+        assertEquals(0, policy.getTier());
+
+        policy.setThermal(ModelTierPolicy.Thermal.WARM);
+        feed(policy, fast, 500);
+        assertEquals(0, policy.getTier());
+
+        policy.setThermal(ModelTierPolicy.Thermal.NORMAL);
+        feed(policy, fast, 500);
+        assertEquals(2, policy.getTier());
+    }
+
+    @Test
+    public void overridePinsTheTierUntilAutoIsRestored() {
+        ModelTierPolicy policy = new ModelTierPolicy(3, BUDGET);
+        policy.setOverride(2);
+        feed(policy, new long[]{500_000_000L, 500_000_000L, 500_000_000L}, 100);
+        assertEquals(2, policy.getTier());
+        assertEquals(0, policy.getDemotions());
+
+        policy.setOverride(ModelTierPolicy.AUTO);
+        feed(policy, new long[]{50_000_000L, 500_000_000L, 500_000_000L}, 100);
+        assertEquals(0, policy.getTier());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnUnknownOverride() {
+        new ModelTierPolicy(2, BUDGET).setOverride(2);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NativeLeakTrackerTest {
+
+    @Test
+    public void closedResourcesAreNoLongerLive() {
+        NativeLeakTracker tracker = new NativeLeakTracker(true);
+        Object a = new Object();
+        Object b = new Object();
+        NativeLeakTracker.Token tokenA = tracker.track(a, "a");
+        NativeLeakTracker.Token tokenB = tracker.track(b, "b");
+        assertEquals(2, tracker.liveCount());
+
+        tokenA.close();
+        tokenA.close(); // closing twice is harmless
+        assertEquals(List.of("b"), tracker.report());
+        tokenB.close();
+        assertEquals(0, tracker.liveCount());
+        assertEquals(0, tracker.checkLeaks());
+    }
+
+    @Test
+    public void disabledTrackerTracksNothing() {
+        NativeLeakTracker tracker = new NativeLeakTracker(false);
+        NativeLeakTracker.Token token = tracker.track(new Object(), "x");
+        assertEquals(0, tracker.liveCount());
+        token.close();
+        assertTrue(tracker.report().isEmpty());
+    }
+
+    @Test
+    public void collectedWithoutCloseIsALeak() throws Exception {
+        List<String> reported = new ArrayList<>();
+        NativeLeakTracker tracker = new NativeLeakTracker(true, token -> reported.add(token.getLabel()));
+        NativeLeakTracker.Token kept = tracker.track(new Object(), "leaked");
+        for (int i = 0; i < 50 && tracker.checkLeaks() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, tracker.checkLeaks());
+        assertEquals(List.of("leaked"), reported);
+        assertEquals(0, tracker.liveCount());
+        kept.close(); // a late close of a reported leak changes nothing
+        assertEquals(1, tracker.checkLeaks());
+    }
+}
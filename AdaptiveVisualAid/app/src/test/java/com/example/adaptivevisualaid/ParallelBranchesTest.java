@@ -0,0 +1,107 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ParallelBranchesTest {
+
+    @Test
+    public void branchesRunAtTheSameTimeAndJoin() throws Exception {
+        // Each branch waits for the other to start, which only completes if they run concurrently.
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ParallelBranches.Branch<Integer, String> first = input -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(1, TimeUnit.SECONDS));
+            return "seg" + input;
+        };
+        ParallelBranches.Branch<Integer, Integer> second = input -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(1, TimeUnit.SECONDS));
+            return input * 2;
+        };
+        ParallelBranches<Integer, String, Integer> branches = new ParallelBranches<>("A", first, "B", second);
+        ParallelBranches.Joined<String, Integer> joined = branches.run(21);
+        assertEquals("seg21", joined.first);
+        assertEquals(42, (int) joined.second);
+        assertTrue(joined.firstNanos > 0 && joined.secondNanos > 0);
+        branches.close();
+    }
+
+    @Test
+    public void failureIsRethrownAfterTheOtherBranchFinishes() {
+        AtomicBoolean otherFinished = new AtomicBoolean();
+        ParallelBranches<String, String, String> branches = new ParallelBranches<>("A", input -> {
+            throw new IllegalStateException("boom");
+        }, "B", input -> {
+            Thread.sleep(50);
+            otherFinished.set(true);
+            return input;
+        });
+        try {
+            branches.run("x");
+            fail();
+        } catch (Exception e) {
+            assertEquals("boom", e.getMessage());
+            assertTrue(otherFinished.get());
+        }
+        branches.close();
+    }
+
+    @Test
+    public void interruptedCallerStillWaitsForBothBranches() throws Exception {
+        AtomicBoolean finished = new AtomicBoolean();
+        ParallelBranches<String, String, String> branches = new ParallelBranches<>("A", input -> input, "B", input -> {
+            Thread.sleep(100);
+            finished.set(true);
+            return input;
+        });
+        Thread caller = Thread.currentThread();
+        new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ignored) {
+            }
+            caller.interrupt();
+        }).start();
+        try {
+            branches.run("x");
+            fail();
+        } catch (InterruptedException e) {
+            assertTrue(finished.get());
+        }
+        branches.close();
+    }
+
+    @Test
+    public void closeRunsEachBranchCleanupOnItsOwnThread() throws Exception {
+        CountDownLatch closed = new CountDownLatch(2);
+        class Recording implements ParallelBranches.Branch<String, Thread> {
+            volatile Thread closedOn;
+
+            @Override
+            public Thread run(String input) {
+                return Thread.currentThread();
+            }
+
+            @Override
+            public void close() {
+                closedOn = Thread.currentThread();
+                closed.countDown();
+            }
+        }
+        Recording first = new Recording();
+        Recording second = new Recording();
+        ParallelBranches<String, Thread, Thread> branches = new ParallelBranches<>("A", first, "B", second);
+        ParallelBranches.Joined<Thread, Thread> joined = branches.run("x");
+        branches.close();
+        assertTrue(closed.await(1, TimeUnit.SECONDS));
+        assertSame(joined.first, first.closedOn);
+        assertSame(joined.second, second.closedOn);
+        assertNotSame(joined.first, joined.second);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.adaptivevisualaid;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RealtimePipelineTest {
+
+    /** The pipeline never reads pixels, so frames are told apart by their sequence number. */
+    private static List<Bitmap> frames(int count) {
+        return Collections.nCopies(count, (Bitmap) null);
+    }
+
+    @Test
+    public void slowInferenceDropsStaleFramesInsteadOfQueueing() throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(frames(40), 2, false);
+        List<Integer> shown = Collections.synchronizedList(new ArrayList<>());
+        RealtimePipeline<Integer> pipeline = new RealtimePipeline<>(source, (frame, request) -> {
+            Thread.sleep(15); // much slower than the 2 ms frame interval
+            return (int) frame.sequence;
+        }, Runnable::run, shown::add);
+
+        pipeline.start();
+        source.awaitEnd();
+        Thread.sleep(50);
+        pipeline.stop();
+
+        PipelineStats stats = pipeline.getStats();
+        assertTrue(stats.getDroppedFrames() > 0);
+        assertEquals(shown.size(), stats.getDisplayedFrames());
+        assertTrue(shown.size() + stats.getDroppedFrames() <= source.getEmittedCount());
+        for (int i = 1; i < shown.size(); i++) {
+            assertTrue(shown.get(i) > shown.get(i - 1)); // never goes back to an older frame
+        }
+        assertEquals(39, (int) shown.get(shown.size() - 1)); // the last frame is not lost
+    }
+
+    @Test
+    public void nullResultsAreNotDisplayed() throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(frames(5), 5, false);
+        List<Object> shown = new ArrayList<>();
+        RealtimePipeline<Object> pipeline = new RealtimePipeline<>(source, (frame, request) -> null, Runnable::run, shown::add);
+        pipeline.start();
+        source.awaitEnd();
+        pipeline.stop();
+        assertTrue(shown.isEmpty());
+        assertEquals(0, pipeline.getStats().getDisplayedFrames());
+    }
+
+    @Test
+    public void stopTerminatesTheRunInProgress() throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(frames(1), 5, true);
+        CountDownLatch started = new CountDownLatch(1);
+        RealtimePipeline<Object> pipeline = new RealtimePipeline<>(source, (frame, request) -> {
+            // Like a native model run: deaf to interrupts, ends only when terminated by its hook.
+            CountDownLatch terminated = new CountDownLatch(1);
+            request.addCancelHook(terminated::countDown);
+            started.countDown();
+            while (true) {
+                try {
+                    terminated.await();
+                    throw new IllegalStateException("terminated");
+                } catch (InterruptedException ignored) {
+                    // keep running, as native code would
+                }
+            }
+        }, Runnable::run, result -> fail("nothing is shown"));
+
+        pipeline.start();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        pipeline.stop();
+        assertFalse(pipeline.isRunning());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void statsAverageOverOneSecondWindows() {
+        PipelineStats stats = new PipelineStats();
+        long ms = 1_000_000L;
+        // 11 frames 100 ms apart, each shown 40 ms after capture.
+        for (int i = 0; i <= 10; i++) {
+            long display = 1000 * ms + i * 100 * ms;
+            stats.recordDisplayed(display - 40 * ms, display);
+        }
+        stats.recordDropped();
+        assertEquals(11, stats.getFps(), 1e-3);
+        assertEquals(40f, stats.getLatencyMillis(), 1e-3);
+        assertEquals(1, stats.getDroppedFrames());
+        stats.reset();
+        assertEquals(0, stats.getDisplayedFrames());
+        assertEquals(0f, stats.getFps(), 0f);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class ResizeNormalizeKernelTest {
+
+    private static int gray(int v) {
+        return 0xFF000000 | (v << 16) | (v << 8) | v;
+    }
+
+    private static int[] grayImage(int... values) {
+        int[] argb = new int[values.length];
+        for (int i = 0; i < values.length; i++) argb[i] = gray(values[i]);
+        return argb;
+    }
+
+    /** Red channel of the NCHW tensor, scaled back to [0, 255]. */
+    private static float[] red(FloatBuffer tensor, int count) {
+        float[] out = new float[count];
+        for (int i = 0; i < count; i++) out[i] = tensor.get(i) * 255f;
+        return out;
+    }
+
+    private static float[] floats(int... values) {
+        float[] out = new float[values.length];
+        for (int i = 0; i < values.length; i++) out[i] = values[i];
+        return out;
+    }
+
+    @Test
+    public void sameSizeStretchMatchesDirectPacking() {
+        int[] argb = new int[6 * 4];
+        for (int i = 0; i < argb.length; i++) argb[i] = 0xFF000000 | (i * 9 << 16) | (i * 5 << 8) | i;
+
+        TensorPacker expected = new TensorPacker(6, 4, TensorPacker.Layout.NCHW);
+        expected.pack(argb, 0, 6);
+        ResizeNormalizeKernel kernel = new ResizeNormalizeKernel(new TensorPacker(6, 4, TensorPacker.Layout.NCHW));
+        FloatBuffer actual = kernel.run(PixelSource.of(argb, 6, 4), 0);
+
+        for (int i = 0; i < 3 * 6 * 4; i++) {
+            assertEquals(expected.getFloatBuffer().get(i), actual.get(i), 1e-6);
+        }
+    }
+
+    @Test
+    public void appliesExifRotation() {
+        // 3x2 source:  1 2 3
+        //              4 5 6
+        int[] src = grayImage(1, 2, 3, 4, 5, 6);
+        PixelSource source = PixelSource.of(src, 3, 2);
+
+        ResizeNormalizeKernel portrait = new ResizeNormalizeKernel(new TensorPacker(2, 3, TensorPacker.Layout.NCHW));
+        assertArrayEquals(floats(4, 1, 5, 2, 6, 3), red(portrait.run(source, 90), 6), 1e-3f);
+        assertArrayEquals(floats(3, 6, 2, 5, 1, 4), red(portrait.run(source, 270), 6), 1e-3f);
+
+        ResizeNormalizeKernel landscape = new ResizeNormalizeKernel(new TensorPacker(3, 2, TensorPacker.Layout.NCHW));
+        assertArrayEquals(floats(6, 5, 4, 3, 2, 1), red(landscape.run(source, 180), 6), 1e-3f);
+        assertArrayEquals(floats(1, 2, 3, 4, 5, 6), red(landscape.run(source, 360), 6), 1e-3f);
+    }
+
+    @Test
+    public void bilinearDownscaleSamplesPixelCenters() {
+        int[] src = grayImage(0, 100, 200, 40);
+        ResizeNormalizeKernel kernel = new ResizeNormalizeKernel(new TensorPacker(2, 1, TensorPacker.Layout.NCHW));
+        assertArrayEquals(floats(50, 120), red(kernel.run(PixelSource.of(src, 4, 1), 0), 2), 1e-3f);
+    }
+
+    @Test
+    public void areaFilterAveragesBlocks() {
+        int[] src = grayImage(
+                0, 40, 100, 100,
+                80, 120, 100, 100,
+                10, 10, 0, 0,
+                10, 10, 0, 255);
+        ResizeNormalizeKernel kernel = new ResizeNormalizeKernel(new TensorPacker(2, 2, TensorPacker.Layout.NCHW));
+        kernel.setFilter(ResizeNormalizeKernel.Filter.AREA);
+        float[] out = red(kernel.run(PixelSource.of(src, 4, 4), 0), 4);
+        assertEquals(60f, out[0], 1e-3);
+        assertEquals(100f, out[1], 1e-3);
+        assertEquals(10f, out[2], 1e-3);
+        assertEquals(63.75f, out[3], 1e-3);
+    }
+
+    @Test
+    public void letterboxPadsTopAndBottom() {
+        int[] src = grayImage(10, 20, 30, 40, 50, 60, 70, 80);
+        ResizeNormalizeKernel kernel = new ResizeNormalizeKernel(new TensorPacker(4, 4, TensorPacker.Layout.NCHW));
+        kernel.setFit(ResizeNormalizeKernel.Fit.LETTERBOX);
+        kernel.setPadColor(gray(255));
+        assertArrayEquals(floats(
+                255, 255, 255, 255,
+                10, 20, 30, 40,
+                50, 60, 70, 80,
+                255, 255, 255, 255), red(kernel.run(PixelSource.of(src, 4, 2), 0), 16), 1e-3f);
+    }
+
+    @Test
+    public void centerCropKeepsMiddleColumns() {
+        int[] src = grayImage(10, 20, 30, 40, 50, 60, 70, 80);
+        ResizeNormalizeKernel kernel = new ResizeNormalizeKernel(new TensorPacker(2, 2, TensorPacker.Layout.NCHW));
+        kernel.setFit(ResizeNormalizeKernel.Fit.CENTER_CROP);
+        assertArrayEquals(floats(20, 30, 60, 70), red(kernel.run(PixelSource.of(src, 4, 2), 0), 4), 1e-3f);
+    }
+}
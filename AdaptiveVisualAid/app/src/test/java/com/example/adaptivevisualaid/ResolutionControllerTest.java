@@ -0,0 +1,68 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResolutionControllerTest {
+
+    private static final long TARGET = 100_000_000L;
+
+    /** Latency that grows with the pixel count, {@code nanosAt512} at 512 x 512. */
+    private static long latency(int size, long nanosAt512) {
+        return nanosAt512 * size * size / (512L * 512);
+    }
+
+    private static void feed(ResolutionController controller, long nanosAt512, int frames) {
+        for (int i = 0; i < frames; i++) controller.record(latency(controller.getSize(), nanosAt512));
+    }
+
+    @Test
+    public void startsAtTheLargestSizeAndHoldsItWhenFast() {
+        ResolutionController controller = new ResolutionController(ResolutionController.SEGFORMER_SIZES, TARGET);
+        assertEquals(512, controller.getSize());
+        feed(controller, 60_000_000L, 100);
+        assertEquals(512, controller.getSize());
+        assertEquals(0, controller.getSwitches());
+    }
+
+    @Test
+    public void stepsDownUntilTheTargetFits() {
+        ResolutionController controller = new ResolutionController(ResolutionController.SEGFORMER_SIZES, TARGET);
+        feed(controller, 300_000_000L, 100); // 256 takes 75 ms, 384 takes 169 ms
+        assertEquals(256, controller.getSize());
+        assertEquals(2, controller.getSwitches());
+    }
+
+    @Test
+    public void stepsBackUpWhenTheDeviceSpeedsUp() {
+        ResolutionController controller = new ResolutionController(ResolutionController.SEGFORMER_SIZES, TARGET);
+        feed(controller, 300_000_000L, 100);
+        assertEquals(256, controller.getSize());
+        feed(controller, 50_000_000L, 100);
+        assertEquals(512, controller.getSize());
+    }
+
+    @Test
+    public void latencyBetweenTheThresholdsDoesNotOscillate() {
+        ResolutionController controller = new ResolutionController(ResolutionController.DEPTH_ANYTHING_SIZES, TARGET);
+        // 518 takes ~130 ms, over the target; 364 takes ~64 ms, but 518 is predicted at ~130 ms again.
+        feed(controller, 127_000_000L, 200);
+        assertEquals(364, controller.getSize());
+        assertEquals(1, controller.getSwitches());
+    }
+
+    @Test
+    public void waitsForTheSettlePeriodAfterASwitch() {
+        ResolutionController controller = new ResolutionController(new int[]{100, 200}, TARGET);
+        controller.setSettleFrames(5);
+        for (int i = 0; i < 4; i++) assertFalse(controller.record(500_000_000L));
+        assertTrue(controller.record(500_000_000L));
+        assertEquals(100, controller.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOverlappingThresholds() {
+        new ResolutionController(ResolutionController.SEGFORMER_SIZES, TARGET).setThresholds(1f, 1.2f);
+    }
+}
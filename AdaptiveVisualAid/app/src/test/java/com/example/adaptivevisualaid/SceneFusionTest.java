@@ -0,0 +1,102 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class SceneFusionTest {
+
+    private static final int WALL = 0;
+    private static final int FLOOR = 3;
+    private static final int PERSON = 12;
+
+    /** Vertical strips of {@code classes}, left to right. */
+    private static byte[] strips(int width, int height, int... classes) {
+        byte[] map = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                map[y * width + x] = (byte) classes[x * classes.length / width];
+            }
+        }
+        return map;
+    }
+
+    /** Inverse depth growing from the top row (far) to the bottom row (near), like a floor. */
+    private static FloatBuffer groundPlane(int width, int height) {
+        FloatBuffer depth = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) depth.put(y * width + x, 1f + 10f * y / (height - 1));
+        }
+        return depth;
+    }
+
+    @Test
+    public void stripsOverAGroundPlaneFillEverySector() {
+        SceneFusion fusion = new SceneFusion(30, 30, 3, new float[]{2 / 3f, 1 / 3f}, Ade20k.NUM_CLASSES);
+        SceneFusion.Summary summary = fusion.fuse(strips(128, 128, WALL, FLOOR, PERSON), 128, 128,
+                groundPlane(518, 518), 518, 518);
+
+        assertEquals(3, summary.columns);
+        assertEquals(3, summary.bands);
+        int[] expected = {WALL, FLOOR, PERSON};
+        for (int band = 0; band < 3; band++) {
+            for (int column = 0; column < 3; column++) {
+                int sector = summary.index(column, band);
+                assertEquals(expected[column], summary.dominantClass[sector]);
+                assertEquals(1 / 9f, summary.dominantArea[sector], 0.02f);
+                assertEquals(100, summary.cellCount[sector]);
+            }
+        }
+        // The bottom rows are the nearest of the frame; the far band tops out near 1/3.
+        assertEquals(1f, summary.dominantProximity[summary.index(1, 0)], 0.05f);
+        assertTrue(summary.dominantProximity[summary.index(1, 2)] < 1 / 3f);
+    }
+
+    @Test
+    public void nearObjectDominatesItsSectorOnly() {
+        int size = 100;
+        byte[] classMap = strips(size, size, FLOOR);
+        FloatBuffer depth = ByteBuffer.allocateDirect(size * size * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                boolean person = x >= 75 && y >= 20 && y < 80;
+                if (person) classMap[y * size + x] = PERSON;
+                depth.put(y * size + x, person ? 50f : 1f);
+            }
+        }
+        SceneFusion fusion = SceneFusion.threeByThree(Ade20k.NUM_CLASSES);
+        SceneFusion.Summary summary = fusion.fuse(classMap, size, size, depth, size, size);
+
+        assertEquals(PERSON, summary.dominantClass[summary.index(2, 0)]);
+        assertEquals(1f, summary.dominantProximity[summary.index(2, 0)], 1e-6f);
+        assertEquals(-1, summary.dominantClass[summary.index(0, 0)]); // nothing near on the left
+        assertEquals(FLOOR, summary.dominantClass[summary.index(0, 2)]);
+        assertEquals(FLOOR, summary.dominantClass[summary.index(2, 2)]);
+        assertEquals(0, summary.cellCount[summary.index(1, 1)]);
+    }
+
+    @Test
+    public void flatDepthPutsEverythingInTheFarBandAndSummaryIsReused() {
+        SceneFusion fusion = new SceneFusion(12, 12, 2, new float[]{0.5f}, Ade20k.NUM_CLASSES);
+        FloatBuffer flat = ByteBuffer.allocateDirect(64 * 64 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        SceneFusion.Summary first = fusion.fuse(strips(16, 16, WALL), 16, 16, flat, 64, 64);
+        assertEquals(-1, first.dominantClass[first.index(0, 0)]);
+        assertEquals(WALL, first.dominantClass[first.index(0, 1)]);
+        assertEquals(0.5f, first.dominantArea[first.index(1, 1)], 1e-6f);
+
+        // A different class map size rebuilds the lookup but keeps the same summary object.
+        SceneFusion.Summary second = fusion.fuse(strips(40, 20, PERSON, FLOOR), 40, 20, flat, 64, 64);
+        assertSame(first, second);
+        assertEquals(PERSON, second.dominantClass[second.index(0, 1)]);
+        assertEquals(FLOOR, second.dominantClass[second.index(1, 1)]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bandEdgesMustDescend() {
+        new SceneFusion(10, 10, 3, new float[]{0.3f, 0.6f}, Ade20k.NUM_CLASSES);
+    }
+}
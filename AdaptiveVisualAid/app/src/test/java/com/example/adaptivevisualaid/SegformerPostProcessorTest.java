@@ -0,0 +1,143 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegformerPostProcessorTest {
+
+    private static final int CLASSES = 150;
+    private static final int SIZE = 128;
+
+    /** The nested-array argmax the activity used before SegformerPostProcessor. */
+    private static int[][] legacyArgmax2D(float[][][] logits) {
+        int channels = logits.length;
+        int height = logits[0].length;
+        int width = logits[0][0].length;
+        int[][] classMap = new int[height][width];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float maxVal = logits[0][y][x];
+                int maxIdx = 0;
+                for (int c = 1; c < channels; c++) {
+                    if (logits[c][y][x] > maxVal) {
+                        maxVal = logits[c][y][x];
+                        maxIdx = c;
+                    }
+                }
+                classMap[y][x] = maxIdx;
+            }
+        }
+        return classMap;
+    }
+
+    private static float[] syntheticLogits(long seed) {
+        Random random = new Random(seed);
+        float[] logits = new float[CLASSES * SIZE * SIZE];
+        for (int i = 0; i < logits.length; i++) logits[i] = (float) random.nextGaussian();
+        return logits;
+    }
+
+    private static FloatBuffer direct(float[] values) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        buffer.put(values).rewind();
+        return buffer;
+    }
+
+    private static float[][][] nested(float[] flat) {
+        float[][][] out = new float[CLASSES][SIZE][SIZE];
+        for (int c = 0, i = 0; c < CLASSES; c++)
+            for (int y = 0; y < SIZE; y++)
+                for (int x = 0; x < SIZE; x++) out[c][y][x] = flat[i++];
+        return out;
+    }
+
+    @Test
+    public void matchesLegacyArgmax() {
+        float[] flat = syntheticLogits(42);
+        int[][] expected = legacyArgmax2D(nested(flat));
+
+        SegformerPostProcessor processor = new SegformerPostProcessor(CLASSES, SIZE, SIZE);
+        processor.process(direct(flat));
+
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                assertEquals(expected[y][x], processor.classAt(y * SIZE + x));
+            }
+        }
+    }
+
+    @Test
+    public void tiesKeepTheLowestClass() {
+        // 3 classes, 2x1 image; pixel 0 ties between classes 1 and 2, pixel 1 is won by class 2.
+        float[] flat = {0f, 0f, 5f, 1f, 5f, 7f};
+        SegformerPostProcessor processor = new SegformerPostProcessor(3, 2, 1);
+        processor.process(direct(flat));
+        assertEquals(1, processor.classAt(0));
+        assertEquals(2, processor.classAt(1));
+    }
+
+    @Test
+    public void classIdsAbove127AreUnsigned() {
+        float[] flat = new float[CLASSES];
+        flat[149] = 1f;
+        SegformerPostProcessor processor = new SegformerPostProcessor(CLASSES, 1, 1);
+        processor.process(direct(flat));
+        assertEquals(149, processor.classAt(0));
+    }
+
+    @Test
+    public void confidenceIsSoftmaxOfWinner() {
+        float[] flat = {0f, (float) Math.log(3)}; // 2 classes, 1 pixel: p = 3 / (1 + 3)
+        SegformerPostProcessor processor = new SegformerPostProcessor(2, 1, 1);
+        assertNull(processor.getConfidence());
+        processor.setComputeConfidence(true);
+        processor.process(direct(flat));
+        assertEquals(1, processor.classAt(0));
+        assertEquals(0.75f, processor.getConfidence()[0], 1e-5);
+    }
+
+    @Test
+    public void classGroupsAreAppliedToTheWinner() {
+        float[] flat = syntheticLogits(3);
+        SegformerPostProcessor plain = new SegformerPostProcessor(CLASSES, SIZE, SIZE);
+        byte[] classes = plain.process(direct(flat)).clone();
+
+        ClassGroups groups = ClassGroups.navigation();
+        SegformerPostProcessor grouped = new SegformerPostProcessor(CLASSES, SIZE, SIZE);
+        grouped.setClassGroups(groups);
+        grouped.process(direct(flat));
+        for (int i = 0; i < classes.length; i++) {
+            assertEquals(groups.groupOf(classes[i] & 0xFF), grouped.classAt(i));
+        }
+
+        grouped.setClassGroups(null);
+        assertArrayEquals(classes, grouped.process(direct(flat)));
+    }
+
+    @Test
+    public void matchesLegacyArgmaxWhenReusedAcrossFrames() {
+        // One processor and one input buffer for several frames, as in the realtime loop: nothing
+        // from a previous frame may leak into the next one's map.
+        SegformerPostProcessor processor = new SegformerPostProcessor(CLASSES, SIZE, SIZE);
+        processor.setComputeConfidence(true);
+        FloatBuffer buffer = direct(new float[CLASSES * SIZE * SIZE]);
+        for (long seed = 7; seed < 10; seed++) {
+            float[] flat = syntheticLogits(seed);
+            buffer.put(flat).rewind();
+            int[][] expected = legacyArgmax2D(nested(flat));
+            processor.process(buffer);
+            for (int y = 0; y < SIZE; y++) {
+                for (int x = 0; x < SIZE; x++) {
+                    assertEquals(expected[y][x], processor.classAt(y * SIZE + x));
+                }
+            }
+        }
+    }
+}
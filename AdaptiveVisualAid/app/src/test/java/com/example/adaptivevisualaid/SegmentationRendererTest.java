@@ -0,0 +1,70 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SegmentationRendererTest {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+    private static final int[] PALETTE = {RED, BLUE};
+
+    @Test
+    public void upsamplesNearestAndCountsArea() {
+        byte[] classMap = {0, 1, 1, 0}; // 2x2
+        int[] base = new int[4 * 4];
+        int[] out = new int[4 * 4];
+        SegmentationRenderer renderer = new SegmentationRenderer(PALETTE, 1f);
+        renderer.render(base, 4, 4, classMap, 2, 2, out);
+
+        assertArrayEquals(new int[]{
+                RED, RED, BLUE, BLUE,
+                RED, RED, BLUE, BLUE,
+                BLUE, BLUE, RED, RED,
+                BLUE, BLUE, RED, RED}, out);
+        assertEquals(8, renderer.getHistogram()[0]);
+        assertEquals(8, renderer.getHistogram()[1]);
+    }
+
+    @Test
+    public void blendsWithBase() {
+        int[] base = {0xFF204060};
+        int[] out = new int[1];
+        SegmentationRenderer renderer = new SegmentationRenderer(PALETTE, 0f);
+        renderer.render(base, 1, 1, new byte[]{0}, 1, 1, out);
+        assertEquals(0xFF204060, out[0]);
+
+        renderer.setAlpha(0.5f);
+        renderer.render(base, 1, 1, new byte[]{0}, 1, 1, out);
+        assertEquals(0xFF8F2030, out[0]);
+    }
+
+    @Test
+    public void histogramResetsBetweenFrames() {
+        SegmentationRenderer renderer = new SegmentationRenderer(PALETTE, 1f);
+        int[] pixels = new int[4];
+        renderer.render(pixels, 2, 2, new byte[]{1}, 1, 1, pixels);
+        renderer.render(pixels, 2, 2, new byte[]{0}, 1, 1, pixels);
+        assertEquals(4, renderer.getHistogram()[0]);
+        assertEquals(0, renderer.getHistogram()[1]);
+    }
+
+    @Test
+    public void listsClassesByArea() {
+        SegmentationRenderer renderer = new SegmentationRenderer(PALETTE, 1f);
+        int[] pixels = new int[9];
+        renderer.render(pixels, 3, 3, new byte[]{2, 0, 2, 5, 2, 0, 2, 3, 0}, 3, 3, pixels);
+        assertArrayEquals(new int[]{2, 0, 3, 5}, renderer.getClassesByArea(6));
+        assertArrayEquals(new int[]{2, 0}, renderer.getClassesByArea(3));
+    }
+
+    @Test
+    public void unknownClassesDrawBlack() {
+        int[] out = new int[1];
+        SegmentationRenderer renderer = new SegmentationRenderer(PALETTE, 1f);
+        renderer.render(new int[]{0xFFFFFFFF}, 1, 1, new byte[]{(byte) 200}, 1, 1, out);
+        assertEquals(0xFF000000, out[0]);
+        assertEquals(1, renderer.getHistogram()[200]);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class TensorPackerTest {
+
+    private static int argb(int r, int g, int b) {
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    // 3x2 image with distinct values per pixel and channel.
+    private static final int[] PIXELS = {
+            argb(0, 10, 20), argb(30, 40, 50), argb(60, 70, 80),
+            argb(90, 100, 110), argb(120, 130, 140), argb(255, 0, 255),
+    };
+
+    @Test
+    public void nchw_writesChannelPlanes() {
+        TensorPacker packer = new TensorPacker(3, 2, TensorPacker.Layout.NCHW);
+        FloatBuffer out = packer.pack(PIXELS, 0, 3);
+
+        assertEquals(0, out.position());
+        assertEquals(18, out.remaining());
+        for (int i = 0; i < 6; i++) {
+            int px = PIXELS[i];
+            assertEquals(((px >> 16) & 0xFF) / 255f, out.get(i), 1e-6);
+            assertEquals(((px >> 8) & 0xFF) / 255f, out.get(6 + i), 1e-6);
+            assertEquals((px & 0xFF) / 255f, out.get(12 + i), 1e-6);
+        }
+        assertArrayEquals(new long[]{1, 3, 2, 3}, packer.getShape());
+    }
+
+    @Test
+    public void nhwc_interleavesChannels() {
+        TensorPacker packer = new TensorPacker(3, 2, TensorPacker.Layout.NHWC);
+        FloatBuffer out = packer.pack(PIXELS, 0, 3);
+
+        for (int i = 0; i < 6; i++) {
+            int px = PIXELS[i];
+            assertEquals(((px >> 16) & 0xFF) / 255f, out.get(3 * i), 1e-6);
+            assertEquals(((px >> 8) & 0xFF) / 255f, out.get(3 * i + 1), 1e-6);
+            assertEquals((px & 0xFF) / 255f, out.get(3 * i + 2), 1e-6);
+        }
+        assertArrayEquals(new long[]{1, 2, 3, 3}, packer.getShape());
+    }
+
+    @Test
+    public void meanStdNormalizationIsPerChannel() {
+        TensorPacker packer = new TensorPacker(3, 2, TensorPacker.Layout.NCHW,
+                TensorPacker.IMAGENET_MEAN, TensorPacker.IMAGENET_STD);
+        FloatBuffer out = packer.pack(PIXELS, 0, 3);
+
+        // PIXELS[4] is (120, 130, 140).
+        assertEquals((120 / 255f - 0.485f) / 0.229f, out.get(4), 1e-5);
+        assertEquals((130 / 255f - 0.456f) / 0.224f, out.get(6 + 4), 1e-5);
+        assertEquals((140 / 255f - 0.406f) / 0.225f, out.get(12 + 4), 1e-5);
+    }
+
+    @Test
+    public void honoursOffsetAndStride() {
+        // Same image embedded at (1, 1) in a 5-wide buffer.
+        int[] padded = new int[5 * 3];
+        for (int y = 0; y < 2; y++) {
+            System.arraycopy(PIXELS, y * 3, padded, (y + 1) * 5 + 1, 3);
+        }
+        TensorPacker expected = new TensorPacker(3, 2, TensorPacker.Layout.NHWC);
+        TensorPacker actual = new TensorPacker(3, 2, TensorPacker.Layout.NHWC);
+        assertEquals(expected.pack(PIXELS, 0, 3), actual.pack(padded, 6, 5));
+    }
+
+    @Test
+    public void reusesTheSameDirectBuffer() {
+        TensorPacker packer = new TensorPacker(3, 2, TensorPacker.Layout.NCHW);
+        FloatBuffer first = packer.pack(PIXELS, 0, 3);
+        int[] black = new int[6];
+        FloatBuffer second = packer.pack(black, 0, 3);
+
+        assertSame(first, second);
+        assertTrue(second.isDirect());
+        assertEquals(0f, second.get(5), 0);
+        assertEquals(0, packer.getByteBuffer().position());
+    }
+}
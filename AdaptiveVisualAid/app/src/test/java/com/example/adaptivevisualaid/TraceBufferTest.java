@@ -0,0 +1,91 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class TraceBufferTest {
+
+    private static String json(TraceBuffer buffer) throws Exception {
+        StringWriter out = new StringWriter();
+        buffer.writeJson(out);
+        return out.toString();
+    }
+
+    private static int occurrences(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) count++;
+        return count;
+    }
+
+    @Test
+    public void namesAreRegisteredOnce() {
+        TraceBuffer buffer = new TraceBuffer(16);
+        int load = buffer.register("model load");
+        assertEquals(load, buffer.register("model load"));
+        assertTrue(buffer.register("inference") != load);
+        assertEquals("model load", buffer.getName(load));
+    }
+
+    @Test
+    public void writesChromeTraceEvents() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(16);
+        int section = buffer.register("say \"hi\"");
+        int wake = buffer.register("wake word");
+        buffer.begin(section);
+        buffer.instant(wake);
+        buffer.end(section);
+
+        String json = json(buffer);
+        assertTrue(json, json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(json, json.trim().endsWith("]}"));
+        assertEquals(2, occurrences(json, "\"name\":\"say \\\"hi\\\"\""));
+        assertTrue(json, json.contains("\"ph\":\"B\""));
+        assertTrue(json, json.contains("\"ph\":\"E\""));
+        assertTrue(json, json.contains("\"ph\":\"i\",\"ts\":"));
+        assertTrue(json, json.contains("\"name\":\"thread_name\""));
+        assertTrue(json, json.contains("\"" + Thread.currentThread().getName() + "\""));
+        // Events are written oldest first.
+        assertTrue(json.indexOf("\"ph\":\"B\"") < json.indexOf("\"ph\":\"i\""));
+        assertTrue(json.indexOf("\"ph\":\"i\"") < json.indexOf("\"ph\":\"E\""));
+    }
+
+    @Test
+    public void keepsOnlyTheNewestEventsWhenFull() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(8);
+        assertEquals(8, buffer.getCapacity());
+        int old = buffer.register("old");
+        int recent = buffer.register("recent");
+        for (int i = 0; i < 8; i++) buffer.instant(old);
+        for (int i = 0; i < 5; i++) buffer.instant(recent);
+
+        String json = json(buffer);
+        assertEquals(13, buffer.getRecordedCount());
+        assertEquals(3, occurrences(json, "\"name\":\"old\""));
+        assertEquals(5, occurrences(json, "\"name\":\"recent\""));
+    }
+
+    @Test
+    public void concurrentRecordingKeepsEveryEventOnce() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(4096);
+        int section = buffer.register("work");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    buffer.begin(section);
+                    buffer.end(section);
+                }
+            }, "worker-" + t);
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        String json = json(buffer);
+        assertEquals(2000, occurrences(json, "\"ph\":\"B\""));
+        assertEquals(2000, occurrences(json, "\"ph\":\"E\""));
+        for (int t = 0; t < threads.length; t++) assertTrue(json.contains("\"worker-" + t + "\""));
+    }
+}
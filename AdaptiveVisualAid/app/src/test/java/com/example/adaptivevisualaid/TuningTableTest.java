@@ -0,0 +1,52 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TuningTableTest {
+
+    @Test
+    public void medianAndP95() {
+        TuningTable table = new TuningTable();
+        table.add("cpu/4t", new double[]{50, 10, 40, 20, 30});
+        TuningTable.Row row = table.getRows().get(0);
+        assertEquals(30, row.medianMillis, 1e-9);
+        assertEquals(48, row.p95Millis, 1e-9); // 40 + 0.8 * (50 - 40)
+    }
+
+    @Test
+    public void bestIsLowestMedianAndSkipsFailures() {
+        TuningTable table = new TuningTable();
+        table.add("cpu/1t", new double[]{90, 90, 90});
+        table.addFailure("nnapi/4t", "unsupported op");
+        table.add("xnnpack/4t", new double[]{40, 41, 200});
+        table.add("cpu/4t", new double[]{40, 41, 42});
+        assertEquals("cpu/4t", table.best().config); // same median as xnnpack, better p95
+    }
+
+    @Test
+    public void bestIsNullWhenNothingRan() {
+        TuningTable table = new TuningTable();
+        table.addFailure("cpu/1t", "out of memory");
+        assertNull(table.best());
+    }
+
+    @Test
+    public void serializationRoundTrips() {
+        TuningTable table = new TuningTable();
+        table.add("nnapi_fp16/4t", new double[]{12.5, 13.5});
+        table.addFailure("xnnpack/2t", "bad; input\\nshape");
+        TuningTable parsed = TuningTable.parse(table.serialize());
+
+        assertEquals(2, parsed.getRows().size());
+        TuningTable.Row ok = parsed.getRows().get(0);
+        assertEquals("nnapi_fp16/4t", ok.config);
+        assertEquals(13.0, ok.medianMillis, 1e-9);
+        assertNull(ok.error);
+        TuningTable.Row failed = parsed.getRows().get(1);
+        assertEquals("xnnpack/2t", failed.config);
+        assertNotNull(failed.error);
+        assertTrue(parsed.format().contains("* nnapi_fp16/4t"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.adaptivevisualaid;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WarmedLoadTest {
+
+    /** Records the thread of every run. */
+    private static final class FakeModel {
+        final List<Thread> runs = Collections.synchronizedList(new ArrayList<>());
+
+        void run() {
+            runs.add(Thread.currentThread());
+        }
+
+        int runsOn(Thread thread) {
+            synchronized (runs) {
+                return Collections.frequency(runs, thread);
+            }
+        }
+    }
+
+    private final ExecutorService warmUpThread = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutDown() {
+        warmUpThread.shutdownNow();
+    }
+
+    @Test
+    public void swapFrameRunsOnlyOneInference() throws Exception {
+        CompletableFuture<FakeModel> loaded = new CompletableFuture<>();
+        CountDownLatch warming = new CountDownLatch(1);
+        CountDownLatch finishWarmUp = new CountDownLatch(1);
+        WarmedLoad<FakeModel> load = new WarmedLoad<>(loaded, model -> {
+            warming.countDown();
+            for (int size = 0; size < 3; size++) model.run(); // one setup run per input size
+            assertTrue(finishWarmUp.await(1, TimeUnit.SECONDS));
+        }, warmUpThread);
+        FakeModel model = new FakeModel();
+        loaded.complete(model);
+        assertTrue(warming.await(1, TimeUnit.SECONDS));
+        assertNull("loaded is not enough to swap", load.getNow());
+
+        finishWarmUp.countDown();
+        FakeModel swapped = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (swapped == null && System.nanoTime() < deadline) {
+            swapped = load.getNow(); // polled once per frame, like TieredModel.session()
+            Thread.sleep(1);
+        }
+        assertSame(model, swapped);
+        swapped.run(); // the swap frame's inference
+        assertEquals(1, model.runsOn(Thread.currentThread()));
+        assertEquals(4, model.runs.size());
+    }
+
+    @Test
+    public void failedWarmUpFailsTheLoad() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        WarmedLoad<FakeModel> load = new WarmedLoad<>(CompletableFuture.completedFuture(new FakeModel()), model -> {
+            throw new IllegalStateException("no such input");
+        }, warmUpThread);
+        load.whenDone(done::countDown);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(load.isFailed());
+        assertNull(load.getNow());
+    }
+
+    @Test
+    public void failedLoadSkipsTheWarmUp() throws Exception {
+        CompletableFuture<FakeModel> loaded = new CompletableFuture<>();
+        boolean[] warmedUp = new boolean[1];
+        WarmedLoad<FakeModel> load = new WarmedLoad<>(loaded, model -> warmedUp[0] = true, warmUpThread);
+        CountDownLatch done = new CountDownLatch(1);
+        load.whenDone(done::countDown);
+        loaded.completeExceptionally(new RuntimeException("missing asset"));
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(load.isFailed());
+        assertFalse(warmedUp[0]);
+    }
+}
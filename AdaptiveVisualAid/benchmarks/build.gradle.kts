@@ -0,0 +1,71 @@
+// Benchmarks on a plain JVM.
+// JMH benchmarks for the vision kernels; results go to benchmarks/build/results/jmh/results.json:
+//   ./gradlew :benchmarks:jmh
+// The bundled ONNX models over a directory of images, on the CPU (--help for the options):
+//   ./gradlew :benchmarks:run --args="--images /path/to/photos"
+plugins {
+    application
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The kernels are compiled straight from the app's sources, so the numbers are for the code that ships.
+// The filter applies to this module's own sources too, hence ModelBenchmark in the list.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/adaptivevisualaid/Ade20k.java",
+                "com/example/adaptivevisualaid/ClassGroups.java",
+                "com/example/adaptivevisualaid/DepthRenderer.java",
+                "com/example/adaptivevisualaid/LatencyHistogram.java",
+                "com/example/adaptivevisualaid/LatencyMetrics.java",
+                "com/example/adaptivevisualaid/ModelBenchmark.java",
+                "com/example/adaptivevisualaid/PixelSource.java",
+                "com/example/adaptivevisualaid/ResizeNormalizeKernel.java",
+                "com/example/adaptivevisualaid/SegformerPostProcessor.java",
+                "com/example/adaptivevisualaid/SegmentationRenderer.java",
+                "com/example/adaptivevisualaid/TensorPacker.java"
+            )
+        }
+    }
+}
+
+dependencies {
+    // android.graphics.Bitmap only has to resolve; the benchmarks use the int[] / float[] paths.
+    implementation(libs.android.stubs) {
+        isTransitive = false
+    }
+    implementation(libs.onnxruntime)
+    jmh(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator.annprocess)
+}
+
+application {
+    mainClass.set("com.example.adaptivevisualaid.ModelBenchmark")
+    applicationDefaultJvmArgs = listOf("-Xmx2g")
+}
+
+tasks.named<JavaExec>("run") {
+    // Relative paths, like the default --models, resolve against the module directory.
+    workingDir = projectDir
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    fork.set(2)
+    // Room for the 12 MP buffers and their float tensors.
+    jvmArgs.set(listOf("-Xms2g", "-Xmx2g"))
+    resultFormat.set("JSON")
+    // e.g. ./gradlew :benchmarks:jmh -Pjmh.includes=Packing
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
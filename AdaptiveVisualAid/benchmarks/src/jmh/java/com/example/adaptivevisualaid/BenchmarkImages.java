@@ -0,0 +1,77 @@
+package com.example.adaptivevisualaid;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Deterministic stand-ins for camera frames and model outputs. The same seed gives the same
+ * data on every run and machine, so results only move when the code does.
+ */
+final class BenchmarkImages {
+
+    /** Segformer input, Depth-Anything input and a 12 MP photo, as "WIDTHxHEIGHT". */
+    static final String SEGFORMER = "512x512";
+    static final String DEPTH_ANYTHING = "518x518";
+    static final String PHOTO_12MP = "4000x3000";
+
+    private static final long SEED = 0x5EED;
+
+    private BenchmarkImages() {}
+
+    static int width(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    static int height(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    /** Opaque noise, so no kernel gets an easy ride from uniform pixels. */
+    static int[] argb(int width, int height) {
+        Random random = new Random(SEED);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        return pixels;
+    }
+
+    /**
+     * A class map of {@code classes} ids in square patches of {@code patch} pixels, roughly the
+     * blobs a segmentation model produces.
+     */
+    static byte[] classMap(int width, int height, int classes, int patch) {
+        Random random = new Random(SEED);
+        int patchesX = (width + patch - 1) / patch;
+        int[] patchClass = new int[patchesX * ((height + patch - 1) / patch)];
+        for (int i = 0; i < patchClass.length; i++) patchClass[i] = random.nextInt(classes);
+        byte[] map = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) map[y * width + x] = (byte) patchClass[(y / patch) * patchesX + x / patch];
+        }
+        return map;
+    }
+
+    /** {@code [1, classes, height, width]} logits in a direct buffer, like an ORT output. */
+    static FloatBuffer logits(int classes, int width, int height) {
+        Random random = new Random(SEED);
+        FloatBuffer logits = direct(classes * width * height);
+        for (int i = 0; i < logits.capacity(); i++) logits.put(i, (float) random.nextGaussian() * 4f);
+        return logits;
+    }
+
+    /** A depth map: a floor-to-horizon ramp with noise, in a direct buffer. */
+    static FloatBuffer depth(int width, int height) {
+        Random random = new Random(SEED);
+        FloatBuffer depth = direct(width * height);
+        for (int y = 0; y < height; y++) {
+            float ramp = 10f * (height - y) / height;
+            for (int x = 0; x < width; x++) depth.put(y * width + x, ramp + random.nextFloat() * 0.5f);
+        }
+        return depth;
+    }
+
+    private static FloatBuffer direct(int floats) {
+        return ByteBuffer.allocateDirect(4 * floats).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+}
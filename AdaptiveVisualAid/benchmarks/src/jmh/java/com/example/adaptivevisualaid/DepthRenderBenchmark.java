@@ -0,0 +1,54 @@
+package com.example.adaptivevisualaid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Depth map to colors: finding the value range (min/max, or the 2nd..98th percentile) and
+ * mapping every value through the colormap, as the grayscale depth view does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DepthRenderBenchmark {
+
+    @Param({BenchmarkImages.SEGFORMER, BenchmarkImages.DEPTH_ANYTHING, BenchmarkImages.PHOTO_12MP})
+    public String size;
+
+    @Param({"GRAYSCALE", "TURBO"})
+    public DepthRenderer.Colormap colormap;
+
+    @Param({"false", "true"})
+    public boolean robustRange;
+
+    private int width;
+    private int height;
+    private FloatBuffer depth;
+    private int[] out;
+    private DepthRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkImages.width(size);
+        height = BenchmarkImages.height(size);
+        depth = BenchmarkImages.depth(width, height);
+        out = new int[width * height];
+        renderer = new DepthRenderer(colormap);
+        renderer.setRobustRange(robustRange);
+    }
+
+    @Benchmark
+    public int[] render() {
+        renderer.render(depth, width, height, out);
+        return out;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.adaptivevisualaid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pixels to model input: {@code pack} normalises an image already at the tensor size into NCHW
+ * floats; {@code resizeAndPack} is the app's preprocessing, resampling any image to the Segformer
+ * input and normalising on the way.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PackingBenchmark {
+
+    @Param({BenchmarkImages.SEGFORMER, BenchmarkImages.DEPTH_ANYTHING, BenchmarkImages.PHOTO_12MP})
+    public String size;
+
+    private int width;
+    private int[] pixels;
+    private TensorPacker packer;
+    private PixelSource source;
+    private ResizeNormalizeKernel resizeKernel;
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkImages.width(size);
+        int height = BenchmarkImages.height(size);
+        pixels = BenchmarkImages.argb(width, height);
+        packer = new TensorPacker(width, height, TensorPacker.Layout.NCHW);
+        source = PixelSource.of(pixels, width, height);
+        resizeKernel = new ResizeNormalizeKernel(new TensorPacker(512, 512, TensorPacker.Layout.NCHW));
+    }
+
+    @Benchmark
+    public FloatBuffer pack() {
+        return packer.pack(pixels, 0, width);
+    }
+
+    @Benchmark
+    public FloatBuffer resizeAndPack() {
+        return resizeKernel.run(source, 0);
+    }
+}
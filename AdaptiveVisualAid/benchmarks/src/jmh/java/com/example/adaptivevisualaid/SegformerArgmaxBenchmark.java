@@ -0,0 +1,52 @@
+package com.example.adaptivevisualaid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segformer logits to a class map. Segformer predicts at a quarter of its input, so the logits
+ * for a 512x512 input are 150 x 128 x 128; {@code full} is the worst case of logits as large as
+ * the input. Grouping maps the winners onto the navigation groups inside the argmax.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SegformerArgmaxBenchmark {
+
+    @Param({"128x128", BenchmarkImages.SEGFORMER})
+    public String logitsSize;
+
+    @Param({"false", "true"})
+    public boolean navigationGroups;
+
+    @Param({"false", "true"})
+    public boolean confidence;
+
+    private FloatBuffer logits;
+    private SegformerPostProcessor postProcessor;
+
+    @Setup
+    public void setUp() {
+        int width = BenchmarkImages.width(logitsSize);
+        int height = BenchmarkImages.height(logitsSize);
+        int classes = Ade20k.NUM_CLASSES;
+        logits = BenchmarkImages.logits(classes, width, height);
+        postProcessor = new SegformerPostProcessor(classes, width, height);
+        postProcessor.setClassGroups(navigationGroups ? ClassGroups.navigation() : null);
+        postProcessor.setComputeConfidence(confidence);
+    }
+
+    @Benchmark
+    public byte[] argmax() {
+        return postProcessor.process(logits);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.adaptivevisualaid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A 128x128 class map drawn over an image: {@code render} upsamples, colors and blends it in one
+ * sweep (what used to be decodeSegmentationMap followed by blendBitmaps), and {@code legend}
+ * collects the classes shown, largest area first, from the area histogram of that sweep.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SegmentationRenderBenchmark {
+
+    private static final int MAP_SIZE = 128;
+
+    @Param({BenchmarkImages.SEGFORMER, BenchmarkImages.DEPTH_ANYTHING, BenchmarkImages.PHOTO_12MP})
+    public String size;
+
+    private int width;
+    private int height;
+    private int[] base;
+    private int[] out;
+    private byte[] classMap;
+    private SegmentationRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkImages.width(size);
+        height = BenchmarkImages.height(size);
+        base = BenchmarkImages.argb(width, height);
+        out = new int[width * height];
+        classMap = BenchmarkImages.classMap(MAP_SIZE, MAP_SIZE, Ade20k.NUM_CLASSES, 8);
+        renderer = new SegmentationRenderer(Ade20k.palette(), 0.75f);
+        // Leaves the histogram of a full frame for legend().
+        renderer.render(base, width, height, classMap, MAP_SIZE, MAP_SIZE, out);
+    }
+
+    @Benchmark
+    public int[] render() {
+        renderer.render(base, width, height, classMap, MAP_SIZE, MAP_SIZE, out);
+        return out;
+    }
+
+    @Benchmark
+    public int[] legend() {
+        return renderer.getClassesByArea(Ade20k.NUM_CLASSES);
+    }
+}
@@ -0,0 +1,388 @@
+package com.example.adaptivevisualaid;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+
+/**
+ * Runs the app's ONNX models over a directory of images on the desktop CPU, with the app's own
+ * preprocessing ({@link ResizeNormalizeKernel}) and postprocessing ({@link SegformerPostProcessor},
+ * {@link DepthRenderer}), and reports session creation and warm-up time, throughput, latency
+ * percentiles per stage and the peak resident memory. Latencies are also written in the CSV
+ * format of the app's latency export, so desktop and device numbers can be compared directly.
+ * <pre>
+ * ./gradlew :benchmarks:run --args="--images /path/to/photos --model segformer --threads 4"
+ * </pre>
+ */
+public final class ModelBenchmark {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: ModelBenchmark --images DIR [options]",
+            "  --images DIR        directory of JPEG/PNG/BMP images (required)",
+            "  --models DIR        directory holding the .onnx files (default ../app/src/main/assets)",
+            "  --model NAME        segformer, depth or all (default all)",
+            "  --threads N         intra-op threads, 0 for ONNX Runtime's default (default 0)",
+            "  --inter-threads N   inter-op threads; above 1 runs independent nodes in parallel (default 1)",
+            "  --batch N           images per inference (default 1; needs a model with a dynamic batch)",
+            "  --opt LEVEL         graph optimisation: none, basic, extended or all (default all)",
+            "  --warmup N          batches run before measuring, at least the first (default 3)",
+            "  --passes N          measured passes over the images (default 1)",
+            "  --csv FILE          also write the latencies as CSV");
+
+    /** A bundled model and how the app feeds it. */
+    private enum Model {
+        SEGFORMER("segformer", "segformer-b2-finetuned-ade-512-512.onnx", 512),
+        DEPTH("depth", "depth_anything_v2_vits.onnx", 518);
+
+        final String option;
+        final String file;
+        /** Input side used when the model does not fix it. */
+        final int defaultSize;
+
+        Model(String option, String file, int defaultSize) {
+            this.option = option;
+            this.file = file;
+            this.defaultSize = defaultSize;
+        }
+    }
+
+    private static final class Options {
+        File images;
+        File models = new File("../app/src/main/assets");
+        List<Model> selected = Arrays.asList(Model.values());
+        int threads;
+        int interThreads = 1;
+        int batch = 1;
+        OrtSession.SessionOptions.OptLevel optLevel = OrtSession.SessionOptions.OptLevel.ALL_OPT;
+        int warmup = 3;
+        int passes = 1;
+        File csv;
+
+        /** E.g. "cpu/4t/opt=ALL_OPT/batch=1", the provider column of the report. */
+        String describe() {
+            return "cpu/" + (threads > 0 ? threads + "t" : "default") + (interThreads > 1 ? "+" + interThreads + "inter" : "")
+                    + "/opt=" + optLevel + "/batch=" + batch;
+        }
+    }
+
+    private final Options options;
+    private final List<File> imageFiles;
+    private final OrtEnvironment env = OrtEnvironment.getEnvironment();
+    private final LatencyMetrics metrics = LatencyMetrics.getInstance();
+
+    private ModelBenchmark(Options options, List<File> imageFiles) {
+        this.options = options;
+        this.imageFiles = imageFiles;
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        List<File> images = listImages(options.images);
+        if (images.isEmpty()) {
+            System.err.println("No images in " + options.images);
+            System.exit(2);
+        }
+        try {
+            new ModelBenchmark(options, images).run();
+        } catch (OrtException | IOException | IllegalArgumentException e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--help") || arg.equals("-h")) {
+                System.out.println(USAGE);
+                System.exit(0);
+            }
+            if (i + 1 == args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--images":
+                    options.images = new File(value);
+                    break;
+                case "--models":
+                    options.models = new File(value);
+                    break;
+                case "--model":
+                    options.selected = parseModels(value);
+                    break;
+                case "--threads":
+                    options.threads = parseCount(arg, value, 0);
+                    break;
+                case "--inter-threads":
+                    options.interThreads = parseCount(arg, value, 1);
+                    break;
+                case "--batch":
+                    options.batch = parseCount(arg, value, 1);
+                    break;
+                case "--opt":
+                    options.optLevel = parseOptLevel(value);
+                    break;
+                case "--warmup":
+                    options.warmup = parseCount(arg, value, 0);
+                    break;
+                case "--passes":
+                    options.passes = parseCount(arg, value, 1);
+                    break;
+                case "--csv":
+                    options.csv = new File(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (options.images == null) throw new IllegalArgumentException("--images is required");
+        return options;
+    }
+
+    private static List<Model> parseModels(String value) {
+        if (value.equals("all")) return Arrays.asList(Model.values());
+        for (Model model : Model.values()) {
+            if (model.option.equals(value)) return Collections.singletonList(model);
+        }
+        throw new IllegalArgumentException("Unknown model " + value);
+    }
+
+    private static int parseCount(String option, String value, int min) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= min) return count;
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " needs a number >= " + min + ", got " + value);
+    }
+
+    private static OrtSession.SessionOptions.OptLevel parseOptLevel(String value) {
+        switch (value) {
+            case "none":
+                return OrtSession.SessionOptions.OptLevel.NO_OPT;
+            case "basic":
+                return OrtSession.SessionOptions.OptLevel.BASIC_OPT;
+            case "extended":
+                return OrtSession.SessionOptions.OptLevel.EXTENDED_OPT;
+            case "all":
+                return OrtSession.SessionOptions.OptLevel.ALL_OPT;
+            default:
+                throw new IllegalArgumentException("Unknown optimisation level " + value);
+        }
+    }
+
+    private static List<File> listImages(File dir) {
+        List<File> images = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) return images;
+        for (File file : files) {
+            String name = file.getName().toLowerCase(Locale.ROOT);
+            if (file.isFile() && (name.endsWith(".jpg") || name.endsWith(".jpeg")
+                    || name.endsWith(".png") || name.endsWith(".bmp"))) {
+                images.add(file);
+            }
+        }
+        Collections.sort(images);
+        return images;
+    }
+
+    private void run() throws OrtException, IOException {
+        System.out.printf(Locale.US, "%d images, %s, ONNX Runtime %s%n%n", imageFiles.size(), options.describe(), env.getVersion());
+        for (Model model : options.selected) {
+            benchmark(model);
+        }
+        System.out.println(metrics.format());
+        System.out.println("Peak RSS: " + peakRss());
+        if (options.csv != null) {
+            try (Writer out = new FileWriter(options.csv)) {
+                metrics.writeCsv(out);
+            }
+            System.out.println("Wrote " + options.csv);
+        }
+    }
+
+    private void benchmark(Model model) throws OrtException, IOException {
+        File file = new File(options.models, model.file);
+        if (!file.isFile()) throw new IOException(file + " not found; pass --models");
+
+        long start = System.nanoTime();
+        try (OrtSession.SessionOptions sessionOptions = new OrtSession.SessionOptions()) {
+            sessionOptions.setOptimizationLevel(options.optLevel);
+            if (options.threads > 0) sessionOptions.setIntraOpNumThreads(options.threads);
+            if (options.interThreads > 1) {
+                sessionOptions.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.PARALLEL);
+                sessionOptions.setInterOpNumThreads(options.interThreads);
+            }
+            try (OrtSession session = env.createSession(file.getPath(), sessionOptions)) {
+                long loadNanos = System.nanoTime() - start;
+                Runner runner = new Runner(model, session);
+
+                start = System.nanoTime();
+                runner.runBatch(0, null);
+                long firstNanos = System.nanoTime() - start;
+                for (int i = 1; i < options.warmup; i++) runner.runBatch(i * options.batch, null);
+
+                int batches = (imageFiles.size() + options.batch - 1) / options.batch;
+                start = System.nanoTime();
+                for (int pass = 0; pass < options.passes; pass++) {
+                    for (int b = 0; b < batches; b++) runner.runBatch(b * options.batch, metrics);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                int images = batches * runner.batchSize() * options.passes;
+                System.out.printf(Locale.US, "%s: session %.0f ms, first batch %.0f ms, %d images in %.2f s, %.2f images/s%n%n",
+                        model.file, loadNanos / 1e6, firstNanos / 1e6, images, seconds, images / seconds);
+            }
+        }
+    }
+
+    /** One model's session with the app's pre- and postprocessing for it, at a fixed batch size. */
+    private final class Runner {
+        private final Model model;
+        private final OrtSession session;
+        private final String inputName;
+        private final String provider = options.describe();
+        private final int size;
+        private final ResizeNormalizeKernel resizeKernel;
+        private final FloatBuffer batchInput;
+        private SegformerPostProcessor postProcessor;
+        private final DepthRenderer depthRenderer = new DepthRenderer(DepthRenderer.Colormap.GRAYSCALE);
+        private int[] depthPixels = new int[0];
+
+        Runner(Model model, OrtSession session) throws OrtException {
+            this.model = model;
+            this.session = session;
+            Map.Entry<String, NodeInfo> input = session.getInputInfo().entrySet().iterator().next();
+            inputName = input.getKey();
+            long[] shape = ((TensorInfo) input.getValue().getInfo()).getShape(); // [N, 3, H, W]
+            if (shape[0] > 0 && shape[0] != options.batch) {
+                throw new IllegalArgumentException(model.file + " takes batches of " + shape[0] + ", not " + options.batch);
+            }
+            size = shape[3] > 0 ? (int) shape[3] : model.defaultSize;
+            resizeKernel = new ResizeNormalizeKernel(new TensorPacker(size, size, TensorPacker.Layout.NCHW));
+            batchInput = ByteBuffer.allocateDirect(4 * options.batch * 3 * size * size)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+
+        /** Images per batch; fewer images than a batch are repeated to fill it. */
+        int batchSize() {
+            return options.batch;
+        }
+
+        /**
+         * Runs a batch of the images from {@code first} on, wrapping around at the end, and records
+         * its stage times unless {@code into} is null.
+         */
+        void runBatch(int first, LatencyMetrics into) throws OrtException, IOException {
+            int count = options.batch;
+            long decodeNanos = 0;
+            long preprocessNanos = 0;
+            batchInput.clear();
+            for (int i = 0; i < count; i++) {
+                long start = System.nanoTime();
+                PixelSource source = decode(imageFiles.get((first + i) % imageFiles.size()));
+                long decoded = System.nanoTime();
+                batchInput.put(resizeKernel.run(source, 0));
+                decodeNanos += decoded - start;
+                preprocessNanos += System.nanoTime() - decoded;
+            }
+            batchInput.flip();
+
+            long start = System.nanoTime();
+            long postprocessNanos;
+            long inferenceNanos;
+            try (OnnxTensor tensor = OnnxTensor.createTensor(env, batchInput, new long[]{count, 3, size, size});
+                 OrtSession.Result result = session.run(Collections.singletonMap(inputName, tensor))) {
+                long inferred = System.nanoTime();
+                inferenceNanos = inferred - start;
+                OnnxTensor output = (OnnxTensor) result.get(0);
+                postprocess(output.getFloatBuffer(), output.getInfo().getShape(), count);
+                postprocessNanos = System.nanoTime() - inferred;
+            }
+            if (into == null) return;
+            record(into, "decoding", decodeNanos);
+            record(into, "preprocessing", preprocessNanos);
+            record(into, "inference", inferenceNanos);
+            record(into, "postprocessing", postprocessNanos);
+            record(into, "total", decodeNanos + preprocessNanos + inferenceNanos + postprocessNanos);
+        }
+
+        private void record(LatencyMetrics into, String stage, long nanos) {
+            into.histogram(model.file, provider, stage).record(nanos);
+        }
+
+        /** Segformer: the argmax to a class map. Depth Anything: the grayscale depth image. */
+        private void postprocess(FloatBuffer output, long[] shape, int count) {
+            int plane = (int) (shape[shape.length - 1] * shape[shape.length - 2]);
+            int perImage = output.capacity() / count;
+            for (int i = 0; i < count; i++) {
+                output.position(i * perImage);
+                FloatBuffer image = output.slice();
+                output.clear();
+                if (model == Model.SEGFORMER) {
+                    if (postProcessor == null) { // [N, 150, H, W]
+                        postProcessor = new SegformerPostProcessor((int) shape[1], (int) shape[3], (int) shape[2]);
+                    }
+                    postProcessor.process(image);
+                } else { // [N, H, W]
+                    if (depthPixels.length < plane) depthPixels = new int[plane];
+                    depthRenderer.render(image, (int) shape[shape.length - 1], (int) shape[shape.length - 2], depthPixels);
+                }
+            }
+        }
+    }
+
+    private static PixelSource decode(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) throw new IOException("Cannot decode " + file);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return PixelSource.of(image.getRGB(0, 0, width, height, null, 0, width), width, height);
+    }
+
+    /** Peak resident set size from /proc (Linux only). */
+    private static String peakRss() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    long kilobytes = Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                    return String.format(Locale.US, "%.1f MB", kilobytes / 1024.0);
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // not Linux
+        }
+        return "unavailable";
+    }
+}
@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "Adaptive Visual Aid"
 include(":app")
+include(":benchmarks")